@@ -0,0 +1,198 @@
+package de.hatoka.basicneuralnetwork;
+
+import com.google.gson.annotations.Expose;
+
+import de.hatoka.basicneuralnetwork.dataset.Dataset;
+import de.hatoka.basicneuralnetwork.dataset.Sample;
+
+/**
+ * InputNormalization standardizes input values per feature: <code>(value - mean) / standardDeviation</code>. The
+ * statistics are computed in one streaming pass (Welford's algorithm), features with constant values keep a standard
+ * deviation of 1.
+ * <p>
+ * A network is trained with normalized inputs (e.g. via the normalization of the trainer), afterwards
+ * {@link #fold(NeuralNetwork)} moves the normalization into the first layer: <code>weights[0] / std</code> and
+ * <code>biases[0] - weights[0] * (mean / std)</code>. The folded network takes raw inputs without extra work per
+ * guess. The statistics are kept by the network and written with it.
+ */
+public class InputNormalization
+{
+    @Expose(serialize = true, deserialize = true)
+    private final double[] mean;
+    @Expose(serialize = true, deserialize = true)
+    private final double[] standardDeviation;
+
+    /**
+     * @param mean mean per feature (copied)
+     * @param standardDeviation standard deviation per feature (copied)
+     */
+    public InputNormalization(double[] mean, double[] standardDeviation)
+    {
+        if (mean.length != standardDeviation.length)
+        {
+            throw new WrongDimensionException(standardDeviation.length, mean.length, "Input");
+        }
+        this.mean = mean.clone();
+        this.standardDeviation = standardDeviation.clone();
+    }
+
+    /**
+     * @param dataset samples
+     * @return statistics of the inputs of the samples
+     */
+    public static InputNormalization of(Dataset dataset)
+    {
+        Statistics statistics = new Statistics(dataset.getInputSize());
+        double[] input = new double[dataset.getInputSize()];
+        for (int i = 0; i < dataset.size(); i++)
+        {
+            dataset.copyInput(i, input, 0);
+            statistics.add(input);
+        }
+        return statistics.toNormalization();
+    }
+
+    /**
+     * @param samples samples, iterated once (e.g. streaming a file)
+     * @param inputSize number of input values per sample
+     * @return statistics of the inputs of the samples
+     */
+    public static InputNormalization of(Iterable<Sample> samples, int inputSize)
+    {
+        Statistics statistics = new Statistics(inputSize);
+        for (Sample sample : samples)
+        {
+            if (sample.input().length != inputSize)
+            {
+                throw new WrongDimensionException(sample.input().length, inputSize, "Input");
+            }
+            statistics.add(sample.input());
+        }
+        return statistics.toNormalization();
+    }
+
+    /**
+     * running mean and sum of squared differences per feature
+     */
+    private static final class Statistics
+    {
+        private final double[] mean;
+        private final double[] squares;
+        private long count = 0;
+
+        private Statistics(int size)
+        {
+            mean = new double[size];
+            squares = new double[size];
+        }
+
+        private void add(double[] input)
+        {
+            count++;
+            for (int i = 0; i < mean.length; i++)
+            {
+                double delta = input[i] - mean[i];
+                mean[i] += delta / count;
+                squares[i] += delta * (input[i] - mean[i]);
+            }
+        }
+
+        private InputNormalization toNormalization()
+        {
+            double[] deviation = new double[mean.length];
+            for (int i = 0; i < mean.length; i++)
+            {
+                double value = count == 0 ? 0 : Math.sqrt(squares[i] / count);
+                deviation[i] = value > 0 ? value : 1;
+            }
+            return new InputNormalization(mean, deviation);
+        }
+    }
+
+    /**
+     * @return number of features
+     */
+    public int size()
+    {
+        return mean.length;
+    }
+
+    /**
+     * @return mean per feature
+     */
+    public double[] getMean()
+    {
+        return mean.clone();
+    }
+
+    /**
+     * @return standard deviation per feature
+     */
+    public double[] getStandardDeviation()
+    {
+        return standardDeviation.clone();
+    }
+
+    /**
+     * Normalizes the values in place.
+     * @param input raw input values
+     */
+    public void normalize(double[] input)
+    {
+        if (input.length != mean.length)
+        {
+            throw new WrongDimensionException(input.length, mean.length, "Input");
+        }
+        normalize(input, 0);
+    }
+
+    /**
+     * Normalizes the values in place, e.g. one row of a mini-batch.
+     * @param values array containing raw input values
+     * @param offset position of first input value
+     */
+    public void normalize(double[] values, int offset)
+    {
+        for (int i = 0; i < mean.length; i++)
+        {
+            values[offset + i] = (values[offset + i] - mean[i]) / standardDeviation[i];
+        }
+    }
+
+    /**
+     * Moves the normalization into the first layer of a network trained with normalized inputs, afterwards the
+     * network takes raw inputs.
+     * @param nn network trained with normalized inputs
+     * @throws IllegalStateException if the network contains already a normalization
+     */
+    public void fold(NeuralNetwork nn)
+    {
+        if (nn.getInputNodes() != mean.length)
+        {
+            throw new WrongDimensionException(mean.length, nn.getInputNodes(), "Input");
+        }
+        if (nn.getInputNormalization() != null)
+        {
+            throw new IllegalStateException("Network contains already an input normalization.");
+        }
+        ParameterLayout layout = nn.getParameterLayout();
+        double[] parameters = new double[layout.getParameterCount()];
+        nn.copyParameters(parameters, 0);
+        int weights = layout.getWeightsOffset(0);
+        int biases = layout.getBiasesOffset(0);
+        int columns = layout.getColumns(0);
+        for (int r = 0; r < layout.getRows(0); r++)
+        {
+            double shift = 0;
+            for (int c = 0; c < columns; c++)
+            {
+                int index = weights + r * columns + c;
+                parameters[index] /= standardDeviation[c];
+                shift += parameters[index] * mean[c];
+            }
+            parameters[biases + r] -= shift;
+        }
+        nn.setParameters(parameters, 0);
+        nn.setInputNormalization(this);
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.Random;
 
 import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunctions;
+import de.hatoka.basicneuralnetwork.optimizers.Optimizers;
 
 public class NetworkBuilder
 {
@@ -43,28 +44,55 @@ public class NetworkBuilder
         Arrays.fill(hiddenLayerDefinition, hiddenNodes);
         NetworkConfiguration newConfig = new NetworkConfiguration(config.getInputNodes(), config.getOutputNodes(),
                         hiddenLayerDefinition, config.getLearningRate(), config.getActivationFunction(),
-                        config.getSeed());
+                        config.getSeed(), config.getOptimizer());
+        return new NetworkBuilder(newConfig);
+    }
+
+    /**
+     * @param hiddenNodes number of nodes per hidden layer
+     * @return builder for networks with the given hidden layers
+     */
+    public NetworkBuilder setHiddenLayerNodes(int... hiddenNodes)
+    {
+        NetworkConfiguration newConfig = new NetworkConfiguration(config.getInputNodes(), config.getOutputNodes(),
+                        hiddenNodes.clone(), config.getLearningRate(), config.getActivationFunction(),
+                        config.getSeed(), config.getOptimizer());
         return new NetworkBuilder(newConfig);
     }
 
     public NetworkBuilder setActivationFunction(ActivationFunctions activationFunction)
     {
         NetworkConfiguration newConfig = new NetworkConfiguration(config.getInputNodes(), config.getOutputNodes(),
-                        config.getHiddenLayers(), config.getLearningRate(), activationFunction, config.getSeed());
+                        config.getHiddenLayers(), config.getLearningRate(), activationFunction, config.getSeed(),
+                        config.getOptimizer());
         return new NetworkBuilder(newConfig);
     }
 
     public NetworkBuilder setSeed(long seed)
     {
         NetworkConfiguration newConfig = new NetworkConfiguration(config.getInputNodes(), config.getOutputNodes(),
-                        config.getHiddenLayers(), config.getLearningRate(), config.getActivationFunction(), seed);
+                        config.getHiddenLayers(), config.getLearningRate(), config.getActivationFunction(), seed,
+                        config.getOptimizer());
         return new NetworkBuilder(newConfig);
     }
 
     public NetworkBuilder setLearningRate(double learningRate)
     {
         NetworkConfiguration newConfig = new NetworkConfiguration(config.getInputNodes(), config.getOutputNodes(),
-                        config.getHiddenLayers(), learningRate, config.getActivationFunction(), config.getSeed());
+                        config.getHiddenLayers(), learningRate, config.getActivationFunction(), config.getSeed(),
+                        config.getOptimizer());
+        return new NetworkBuilder(newConfig);
+    }
+
+    /**
+     * @param optimizer optimizer applying the gradients during training (default {@link Optimizers#SGD})
+     * @return builder for networks with the given optimizer
+     */
+    public NetworkBuilder setOptimizer(Optimizers optimizer)
+    {
+        NetworkConfiguration newConfig = new NetworkConfiguration(config.getInputNodes(), config.getOutputNodes(),
+                        config.getHiddenLayers(), config.getLearningRate(), config.getActivationFunction(),
+                        config.getSeed(), optimizer);
         return new NetworkBuilder(newConfig);
     }
 }
@@ -6,6 +6,7 @@ import java.util.Objects;
 import com.google.gson.annotations.Expose;
 
 import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunctions;
+import de.hatoka.basicneuralnetwork.optimizers.Optimizers;
 
 public class NetworkConfiguration
 {
@@ -21,9 +22,20 @@ public class NetworkConfiguration
     private final ActivationFunctions activationFunction;
     @Expose(serialize = true, deserialize = true)
     private final long seed;
+    /**
+     * null for networks stored before optimizers were configurable (SGD)
+     */
+    @Expose(serialize = true, deserialize = true)
+    private final Optimizers optimizer;
 
     NetworkConfiguration(int inputNodes, int outputNodes, int[] hiddenLayers, double learningRate,
                     ActivationFunctions activationFunction, long seed)
+    {
+        this(inputNodes, outputNodes, hiddenLayers, learningRate, activationFunction, seed, Optimizers.SGD);
+    }
+
+    NetworkConfiguration(int inputNodes, int outputNodes, int[] hiddenLayers, double learningRate,
+                    ActivationFunctions activationFunction, long seed, Optimizers optimizer)
     {
         this.inputNodes = inputNodes;
         this.outputNodes = outputNodes;
@@ -31,6 +43,7 @@ public class NetworkConfiguration
         this.learningRate = learningRate;
         this.activationFunction = activationFunction;
         this.seed = seed;
+        this.optimizer = optimizer;
     }
 
     public int getInputNodes()
@@ -63,13 +76,19 @@ public class NetworkConfiguration
         return seed;
     }
 
+    public Optimizers getOptimizer()
+    {
+        return optimizer == null ? Optimizers.SGD : optimizer;
+    }
+
     @Override
     public int hashCode()
     {
         final int prime = 31;
         int result = 1;
         result = prime * result + Arrays.hashCode(hiddenLayers);
-        result = prime * result + Objects.hash(activationFunction, inputNodes, learningRate, outputNodes, seed);
+        result = prime * result + Objects.hash(activationFunction, inputNodes, learningRate, outputNodes, seed,
+                        getOptimizer());
         return result;
     }
 
@@ -83,7 +102,8 @@ public class NetworkConfiguration
             return activationFunction == other.activationFunction && Arrays.equals(hiddenLayers, other.hiddenLayers)
                             && inputNodes == other.inputNodes
                             && Double.doubleToLongBits(learningRate) == Double.doubleToLongBits(other.learningRate)
-                            && outputNodes == other.outputNodes && seed == other.seed;
+                            && outputNodes == other.outputNodes && seed == other.seed
+                            && getOptimizer() == other.getOptimizer();
         }
         return false;
     }
@@ -3,12 +3,22 @@ package de.hatoka.basicneuralnetwork;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
 
+import org.ejml.data.DMatrixRMaj;
 import org.ejml.simple.SimpleMatrix;
 
 import com.google.gson.annotations.Expose;
 
 import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunctions;
+import de.hatoka.basicneuralnetwork.optimizers.Optimizer;
+import de.hatoka.basicneuralnetwork.optimizers.OptimizerState;
+import de.hatoka.basicneuralnetwork.utilities.Crossover;
+import de.hatoka.basicneuralnetwork.utilities.GaussianMutation;
 import de.hatoka.basicneuralnetwork.utilities.MatrixUtilities;
 
 /**
@@ -16,22 +26,86 @@ import de.hatoka.basicneuralnetwork.utilities.MatrixUtilities;
  */
 public class NeuralNetwork
 {
+    /**
+     * source of unique layer stamps
+     */
+    private static final AtomicLong STAMPS = new AtomicLong();
+
     /**
      * randomizer to initialize the network
      */
     private Random random;
 
+    /**
+     * randomizer for genetic operators (merge, mutate), each copy gets an own stream derived from
+     * {@link #geneticSeed}
+     */
+    private SplittableGenerator geneticRandom;
+
+    /**
+     * seed of {@link #geneticRandom}, the streams of copies are derived from the seed and {@link #streams}
+     */
+    private long geneticSeed;
+
+    /**
+     * number of streams derived for copies and {@link #splitRandom()}, the only state of the source written by a
+     * copy
+     */
+    private AtomicLong streams;
+
     /**
      * Configuration of network
      */
     @Expose(serialize = true, deserialize = true)
-    private final NetworkConfiguration config;
+    private NetworkConfiguration config;
 
     @Expose(serialize = true, deserialize = true)
     private SimpleMatrix[] weights;
     @Expose(serialize = true, deserialize = true)
     private SimpleMatrix[] biases;
 
+    /**
+     * state of optimizer (null for SGD), allocated by the first training
+     */
+    @Expose(serialize = true, deserialize = true)
+    private OptimizerState optimizerState;
+    /**
+     * number of networks referencing the optimizer state, shared with the copies (copy on write like the matrices)
+     */
+    private AtomicInteger optimizerStateReferences;
+
+    /**
+     * statistics of the input normalization folded into the first layer (null for raw inputs)
+     */
+    @Expose(serialize = true, deserialize = true)
+    private InputNormalization inputNormalization;
+
+    /**
+     * per layer: number of networks referencing the weights matrix, the counter is shared with the copies referencing
+     * the same matrix (copy on write)
+     */
+    private AtomicInteger[] weightsReferences;
+    /**
+     * per layer: number of networks referencing the biases matrix (copy on write)
+     */
+    private AtomicInteger[] biasesReferences;
+
+    /**
+     * counts the changes of weights and biases (train, mutate, set)
+     */
+    private long modificationCount = 0;
+
+    /**
+     * cached fingerprint, valid if {@link #fingerprintValid} is set
+     */
+    private long fingerprint;
+    private volatile boolean fingerprintValid;
+
+    /**
+     * per layer: stamp identifying the content of weights and biases, changed with each modification of the layer
+     */
+    private long[] layerStamps;
+
     /**
      * Constructor a new neural network with multiple hidden layers with same amount of nodes per hidden layer
      * @param config configuration of network
@@ -40,8 +114,13 @@ public class NeuralNetwork
     {
         this.config = config;
         this.random = new Random(config.getSeed());
+        initializeGeneticRandom(config.getSeed());
         initializeWeights();
         initializeBiases();
+        this.weightsReferences = newReferences(weights.length);
+        this.biasesReferences = newReferences(biases.length);
+        this.optimizerStateReferences = new AtomicInteger(1);
+        this.layerStamps = newStamps(weights.length);
     }
 
     /**
@@ -50,27 +129,54 @@ public class NeuralNetwork
     public void afterLoad()
     {
         this.random = new Random(config.getSeed());
+        initializeGeneticRandom(config.getSeed());
+        this.weightsReferences = newReferences(weights.length);
+        this.biasesReferences = newReferences(biases.length);
+        this.optimizerStateReferences = new AtomicInteger(1);
+        this.fingerprintValid = false;
+        this.layerStamps = newStamps(weights.length);
     }
+
     /**
-     * Constructor to copy an existing network
+     * Constructor to copy an existing network. The matrices and the optimizer state are shared with the source network
+     * until one of both networks writes into them (copy on write). The source is only read (the reference counters
+     * are atomic), so copies of one network can be taken concurrently.
      * @param nn source network
      */
     private NeuralNetwork(NeuralNetwork nn)
     {
         this.config = nn.config;
         this.random = nn.random;
+        initializeGeneticRandom(nn.nextStreamSeed());
 
-        this.weights = new SimpleMatrix[config.getHiddenLayers().length + 1];
-        for (int i = 0; i < nn.weights.length; i++)
-        {
-            this.weights[i] = nn.weights[i].copy();
-        }
+        this.weights = nn.weights.clone();
+        this.biases = nn.biases.clone();
+        this.weightsReferences = reference(nn.weightsReferences);
+        this.biasesReferences = reference(nn.biasesReferences);
+        this.fingerprint = nn.fingerprint;
+        this.fingerprintValid = nn.fingerprintValid;
+        this.layerStamps = nn.layerStamps.clone();
+        this.optimizerState = nn.optimizerState;
+        this.optimizerStateReferences = nn.optimizerStateReferences;
+        optimizerStateReferences.incrementAndGet();
+        this.inputNormalization = nn.inputNormalization;
+    }
 
-        this.biases = new SimpleMatrix[config.getHiddenLayers().length + 1];
-        for (int i = 0; i < nn.biases.length; i++)
-        {
-            this.biases[i] = nn.biases[i].copy();
-        }
+    private void initializeGeneticRandom(long seed)
+    {
+        this.geneticSeed = seed;
+        this.geneticRandom = new SplittableRandom(seed);
+        this.streams = new AtomicLong();
+    }
+
+    /**
+     * Derives the seed of a new stream without touching {@link #geneticRandom}, so copies don't change the values of
+     * merge and mutate of this network. Thread safe, concurrent calls get different seeds.
+     * @return seed of next stream
+     */
+    private long nextStreamSeed()
+    {
+        return mix(geneticSeed + streams.incrementAndGet() * 0x9E3779B97F4A7C15L);
     }
 
     /**
@@ -170,6 +276,9 @@ public class NeuralNetwork
         {
             input = layers[j+1] = calculateLayer(weights[j], biases[j], input);
         }
+        // SGD scales the gradients by the learning rate, other optimizers get the unscaled gradients
+        OptimizerState state = prepareOptimizerState();
+        ParameterLayout layout = state == null ? null : getParameterLayout();
         double sumAdaption = 0;
         for (int n = config.getHiddenLayers().length + 1; n > 0; n--)
         {
@@ -177,25 +286,191 @@ public class NeuralNetwork
             SimpleMatrix errors = target.minus(layers[n]);
 
             // Calculate gradient
-            SimpleMatrix gradients = calculateGradient(layers[n], errors);
+            SimpleMatrix gradients = state == null ? calculateGradient(layers[n], errors)
+                            : applyActivationFunction(layers[n], true).elementMult(errors);
 
             // Calculate delta
             SimpleMatrix deltas = calculateDeltas(gradients, layers[n - 1]);
+            if (state != null)
+            {
+                applyOptimizer(deltas, state, layout.getWeightsOffset(n - 1));
+                applyOptimizer(gradients, state, layout.getBiasesOffset(n - 1));
+            }
 
             // Apply gradient to bias
             biases[n - 1] = biases[n - 1].plus(gradients);
+            release(biasesReferences, n - 1);
 
             // Apply delta to weights
             weights[n - 1] = weights[n - 1].plus(deltas);
+            release(weightsReferences, n - 1);
             sumAdaption += getAdaption(gradients) + getAdaption(deltas);
 
             // Calculate and set target for previous (next) layer
             SimpleMatrix previousError = weights[n - 1].transpose().mult(errors);
             target = previousError.plus(layers[n - 1]);
         }
+        fingerprintValid = false;
+        layerStamps = newStamps(layerStamps.length);
+        modificationCount++;
         return sumAdaption;
     }
 
+    /**
+     * Calculates the gradient of the squared error (the negative direction, without learning rate) for the given
+     * input and output without modifying the network. For the output layer it equals the adaption of
+     * {@link #train(double[], double[])} with learning rate 1. For hidden layers it differs from train, which
+     * propagates the error through the already updated weights, while the gradient uses the weights before the update.
+     * The gradient is added to the given array at the positions defined by {@link #getParameterLayout()}, so gradients
+     * of a mini-batch can be summed up and applied later (e.g. via {@link #setParameters(double[], int)}).
+     * @param inputArray the input data
+     * @param targetArray the expected output data
+     * @param gradient array receiving the sum of gradients
+     * @param offset position of first parameter in gradient
+     * @return sum of squared errors of the output
+     */
+    public double addGradient(double[] inputArray, double[] targetArray, double[] gradient, int offset)
+    {
+        if (inputArray.length != config.getInputNodes())
+        {
+            throw new WrongDimensionException(inputArray.length, config.getInputNodes(), "Input");
+        }
+        if (targetArray.length != config.getOutputNodes())
+        {
+            throw new WrongDimensionException(targetArray.length, config.getOutputNodes(), "Output");
+        }
+        ParameterLayout layout = getParameterLayout();
+        SimpleMatrix input = MatrixUtilities.arrayToMatrix(inputArray);
+        SimpleMatrix target = MatrixUtilities.arrayToMatrix(targetArray);
+        SimpleMatrix[] layers = new SimpleMatrix[config.getHiddenLayers().length + 2];
+        layers[0] = input;
+        for (int j = 0; j < config.getHiddenLayers().length + 1; j++)
+        {
+            input = layers[j + 1] = calculateLayer(weights[j], biases[j], input);
+        }
+        double result = 0;
+        for (int n = config.getHiddenLayers().length + 1; n > 0; n--)
+        {
+            SimpleMatrix errors = target.minus(layers[n]);
+            if (n == config.getHiddenLayers().length + 1)
+            {
+                result = errors.elementMult(errors).elementSum();
+            }
+            SimpleMatrix gradients = applyActivationFunction(layers[n], true).elementMult(errors);
+            SimpleMatrix deltas = calculateDeltas(gradients, layers[n - 1]);
+            add(deltas, gradient, offset + layout.getWeightsOffset(n - 1));
+            add(gradients, gradient, offset + layout.getBiasesOffset(n - 1));
+            target = weights[n - 1].transpose().mult(errors).plus(layers[n - 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Applies the summed gradients of a mini-batch (e.g. of {@link #addGradient(double[], double[], double[], int)})
+     * with the optimizer of the network: the mean gradient is turned into steps, using and updating the optimizer
+     * state of the network, and the steps are added to the parameters.
+     * @param gradient sum of gradients at the positions defined by {@link #getParameterLayout()}, replaced by the
+     *            steps
+     * @param batchSize number of samples of the gradient
+     * @return sum of absolute steps
+     */
+    public double applyGradient(double[] gradient, int batchSize)
+    {
+        ParameterLayout layout = getParameterLayout();
+        if (gradient.length != layout.getParameterCount())
+        {
+            throw new WrongDimensionException(gradient.length, layout.getParameterCount(), "Gradient");
+        }
+        if (batchSize <= 0)
+        {
+            throw new IllegalArgumentException("Batch size " + batchSize + " must be positive.");
+        }
+        double scale = 1d / batchSize;
+        for (int i = 0; i < gradient.length; i++)
+        {
+            gradient[i] *= scale;
+        }
+        config.getOptimizer().getOptimizer().update(gradient, gradient.length, config.getLearningRate(),
+                        prepareOptimizerState(), 0);
+        double result = 0;
+        for (int layer = 0; layer < layout.getLayers(); layer++)
+        {
+            double[] layerWeights = unshare(weights, weightsReferences, layer);
+            result += addSteps(layerWeights, weights[layer].getNumElements(), gradient, layout.getWeightsOffset(layer));
+            double[] layerBiases = unshare(biases, biasesReferences, layer);
+            result += addSteps(layerBiases, biases[layer].getNumElements(), gradient, layout.getBiasesOffset(layer));
+        }
+        fingerprintValid = false;
+        layerStamps = newStamps(layerStamps.length);
+        modificationCount++;
+        return result;
+    }
+
+    private static double addSteps(double[] values, int count, double[] steps, int offset)
+    {
+        double result = 0;
+        for (int i = 0; i < count; i++)
+        {
+            values[i] += steps[offset + i];
+            result += Math.abs(steps[offset + i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return state of optimizer for the next training step, null for SGD
+     */
+    private OptimizerState prepareOptimizerState()
+    {
+        Optimizer optimizer = config.getOptimizer().getOptimizer();
+        if (optimizer.getStateSize() == 0)
+        {
+            return null;
+        }
+        if (optimizerState == null)
+        {
+            releaseOptimizerState();
+            optimizerState = new OptimizerState(optimizer.getStateSize(), getParameterLayout().getParameterCount());
+        }
+        else if (optimizerStateReferences.get() > 1)
+        {
+            optimizerState = optimizerState.copy();
+            releaseOptimizerState();
+        }
+        optimizerState.nextStep();
+        return optimizerState;
+    }
+
+    /**
+     * Drops the reference to the previous optimizer state, the state is owned exclusively afterwards.
+     */
+    private void releaseOptimizerState()
+    {
+        if (optimizerStateReferences.get() != 1)
+        {
+            optimizerStateReferences.decrementAndGet();
+            optimizerStateReferences = new AtomicInteger(1);
+        }
+    }
+
+    /**
+     * Replaces the gradients of the matrix by the steps of the optimizer
+     */
+    private void applyOptimizer(SimpleMatrix matrix, OptimizerState state, int offset)
+    {
+        config.getOptimizer().getOptimizer().update(matrix.getDDRM().getData(), matrix.getNumElements(),
+                        config.getLearningRate(), state, offset);
+    }
+
+    private static void add(SimpleMatrix matrix, double[] target, int offset)
+    {
+        double[] values = matrix.getDDRM().getData();
+        for (int i = 0; i < matrix.getNumElements(); i++)
+        {
+            target[offset + i] += values[i];
+        }
+    }
+
     /**
      * @param matrix matrix used for adapt the network
      * @return sum of absolute values of elements
@@ -211,6 +486,10 @@ public class NeuralNetwork
     }
 
     /**
+     * The copy shares the matrices with this network, a matrix is copied when one of both networks writes into it
+     * (mutate, or access via {@link #getWeights()} and {@link #getBiases()}). The copy gets an own random stream for
+     * merge and mutate, the n-th copy of networks with the same seed gets the same stream. Copies can be taken
+     * concurrently from different threads, which copy gets which stream depends on the order of the calls then.
      * @return a copy of the network
      */
     public NeuralNetwork copy()
@@ -237,27 +516,49 @@ public class NeuralNetwork
      * @return merged network
      */
     public NeuralNetwork merge(NeuralNetwork nn, double probability)
+    {
+        return merge(nn, probability, geneticRandom);
+    }
+
+    /**
+     * Merges the weights and biases of two NeuralNetworks and returns a new object
+     * @param nn network to merge with current
+     * @param probability ratio between current and other network
+     * @param random source of random values deciding which value is taken
+     * @return merged network
+     */
+    public NeuralNetwork merge(NeuralNetwork nn, double probability, RandomGenerator random)
+    {
+        return merge(nn, Crossover.uniform(probability), random);
+    }
+
+    /**
+     * Creates a new network via crossover of the weights and biases of two NeuralNetworks
+     * @param nn network to merge with current (parent B of crossover)
+     * @param crossover crossover operator
+     * @param random source of random values used by crossover
+     * @return merged network
+     */
+    public NeuralNetwork merge(NeuralNetwork nn, Crossover crossover, RandomGenerator random)
     {
         // Check whether the nns have the same dimensions
         if (!Arrays.equals(this.getDimensions(), nn.getDimensions()))
         {
             throw new WrongDimensionException(this.getDimensions(), nn.getDimensions());
         }
-        else
+        // deeper hidden layers must match too, so the genes are aligned
+        if (!hasSameLayers(nn))
         {
-            NeuralNetwork result = this.copy();
-
-            for (int i = 0; i < result.weights.length; i++)
-            {
-                result.weights[i] = MatrixUtilities.mergeMatrices(this.weights[i], nn.weights[i], probability);
-            }
-
-            for (int i = 0; i < result.biases.length; i++)
-            {
-                result.biases[i] = MatrixUtilities.mergeMatrices(this.biases[i], nn.biases[i], probability);
-            }
-            return result;
+            throw new WrongDimensionException(this.getLayerNodes(), nn.getLayerNodes());
         }
+        ParameterLayout layout = getParameterLayout();
+        double[] parameters = new double[layout.getParameterCount() * 2];
+        this.copyParameters(parameters, 0);
+        nn.copyParameters(parameters, layout.getParameterCount());
+        crossover.apply(parameters, 0, parameters, layout.getParameterCount(), parameters, 0, layout, random);
+        NeuralNetwork result = this.copy();
+        result.setParameters(parameters, 0);
+        return result;
     }
 
     // Gaussian mutation with given probability, Slightly modifies values (weights +
@@ -267,26 +568,145 @@ public class NeuralNetwork
     // all the values will be mutated)
     public void mutate(double probability)
     {
-        applyMutation(weights, probability);
-        applyMutation(biases, probability);
+        mutate(probability, geneticRandom);
+    }
+
+    /**
+     * Derives a new random stream from the seed of the network, e.g. to run genetic operators on other threads.
+     * Streams derived in the same order from networks with the same seed provide the same values. Thread safe, the
+     * stream used by merge and mutate of this network isn't changed.
+     * @return new random stream
+     */
+    public SplittableGenerator splitRandom()
+    {
+        return new SplittableRandom(nextStreamSeed());
     }
 
-    // Adds a randomly generated gaussian number to each element of a Matrix in an
-    // array of matrices
-    // Probability: determines how many values will be modified
-    private void applyMutation(SimpleMatrix[] matrices, double probability)
+    /**
+     * Gaussian mutation with given probability and source of random values
+     * @param probability probability that a value is mutated
+     * @param random source of random values
+     */
+    public void mutate(double probability, RandomGenerator random)
     {
-        for (SimpleMatrix matrix : matrices)
+        mutate(probability, GaussianMutation.DEFAULT_STRENGTH, random);
+    }
+
+    /**
+     * Gaussian mutation with given probability, strength and source of random values
+     * @param probability probability that a value is mutated
+     * @param strength standard deviation of the offsets added to mutated values
+     * @param random source of random values
+     */
+    public void mutate(double probability, double strength, RandomGenerator random)
+    {
+        GaussianMutation mutation = new GaussianMutation(probability, strength);
+        ParameterLayout layout = getParameterLayout();
+        for (int layer = 0; layer < layout.getLayers(); layer++)
+        {
+            applyMutation(weights, weightsReferences, layer, layout.getWeightsOffset(layer), mutation, random);
+        }
+        for (int layer = 0; layer < layout.getLayers(); layer++)
         {
-            for (int j = 0; j < matrix.getNumElements(); j++)
+            applyMutation(biases, biasesReferences, layer, layout.getBiasesOffset(layer), mutation, random);
+        }
+        modificationCount++;
+    }
+
+    // Adds a randomly generated gaussian number to randomly selected elements of
+    // the matrix, the offsets are written directly into the matrix data. A shared
+    // matrix is copied before the first offset is written. A valid fingerprint is
+    // updated with the changed values.
+    private void applyMutation(SimpleMatrix[] matrices, AtomicInteger[] references, int layer, int parameterOffset,
+                    GaussianMutation mutation, RandomGenerator random)
+    {
+        double[][] data = new double[1][];
+        boolean updateFingerprint = fingerprintValid;
+        mutation.sample(0, matrices[layer].getNumElements(), random, (index, offset) -> {
+            if (data[0] == null)
+            {
+                data[0] = unshare(matrices, references, layer);
+                layerStamps[layer] = STAMPS.incrementAndGet();
+            }
+            double value = data[0][index];
+            data[0][index] = value + offset;
+            if (updateFingerprint)
             {
-                if (random.nextDouble() < probability)
-                {
-                    double offset = random.nextGaussian() / 2;
-                    matrix.set(j, matrix.get(j) + offset);
-                }
+                fingerprint += fingerprintOf(parameterOffset + index, data[0][index])
+                                - fingerprintOf(parameterOffset + index, value);
             }
+        });
+    }
+
+    /**
+     * Copies the matrix of the layer, if it's shared with another network
+     * @param matrices weights or biases
+     * @param references reference counters of matrices
+     * @param layer layer to write
+     * @return data of matrix, which can be modified
+     */
+    private static double[] unshare(SimpleMatrix[] matrices, AtomicInteger[] references, int layer)
+    {
+        if (references[layer].get() > 1)
+        {
+            matrices[layer] = matrices[layer].copy();
+            release(references, layer);
+        }
+        return matrices[layer].getDDRM().getData();
+    }
+
+    private static void unshareAll(SimpleMatrix[] matrices, AtomicInteger[] references)
+    {
+        for (int layer = 0; layer < matrices.length; layer++)
+        {
+            unshare(matrices, references, layer);
+        }
+    }
+
+    /**
+     * Drops the reference to the previous matrix of the layer, the matrix of the layer is owned exclusively
+     * afterwards. The last network referencing the previous matrix can write into it again.
+     * @param references reference counters of matrices
+     * @param layer layer with replaced matrix
+     */
+    private static void release(AtomicInteger[] references, int layer)
+    {
+        if (references[layer].get() != 1)
+        {
+            references[layer].decrementAndGet();
+            references[layer] = new AtomicInteger(1);
+        }
+    }
+
+    private static void releaseAll(AtomicInteger[] references)
+    {
+        for (AtomicInteger counter : references)
+        {
+            counter.decrementAndGet();
+        }
+    }
+
+    private static AtomicInteger[] newReferences(int layers)
+    {
+        AtomicInteger[] result = new AtomicInteger[layers];
+        for (int layer = 0; layer < layers; layer++)
+        {
+            result[layer] = new AtomicInteger(1);
+        }
+        return result;
+    }
+
+    /**
+     * @param references reference counters of source network
+     * @return reference counters for a copy sharing the matrices
+     */
+    private static AtomicInteger[] reference(AtomicInteger[] references)
+    {
+        for (AtomicInteger counter : references)
+        {
+            counter.incrementAndGet();
         }
+        return references.clone();
     }
 
     // Generic function to calculate one layer
@@ -324,6 +744,14 @@ public class NeuralNetwork
                         : config.getActivationFunction().getFunction().activate(input);
     }
 
+    /**
+     * @return configuration of network
+     */
+    public NetworkConfiguration getConfiguration()
+    {
+        return config;
+    }
+
     public ActivationFunctions getActivationFunction()
     {
         return config.getActivationFunction();
@@ -334,6 +762,17 @@ public class NeuralNetwork
         return config.getLearningRate();
     }
 
+    /**
+     * Changes the learning rate of the configuration, e.g. to reduce it while the training converges.
+     * @param learningRate new learning rate
+     */
+    public void setLearningRate(double learningRate)
+    {
+        config = new NetworkConfiguration(config.getInputNodes(), config.getOutputNodes(), config.getHiddenLayers(),
+                        learningRate, config.getActivationFunction(), config.getSeed(), config.getOptimizer());
+        fingerprintValid = false;
+    }
+
     public int getInputNodes()
     {
         return config.getInputNodes();
@@ -354,24 +793,228 @@ public class NeuralNetwork
         return config.getOutputNodes();
     }
 
+    /**
+     * Matrices shared with copies of this network are copied before, so the result can be modified. The cached
+     * fingerprint and the layer stamps are dropped, changes must be applied before the next call of
+     * {@link #getFingerprint()} or {@link #getLayerStamp(int)}. Read only access is provided by
+     * {@link #getWeight(int, int, int)} and {@link #copyParameters(double[], int)}, which keep the sharing and the
+     * caches.
+     * @return weights per layer
+     */
     public SimpleMatrix[] getWeights()
     {
+        unshareAll(weights, weightsReferences);
+        fingerprintValid = false;
+        layerStamps = newStamps(layerStamps.length);
         return weights;
     }
 
     public void setWeights(SimpleMatrix[] weights)
     {
+        releaseAll(weightsReferences);
         this.weights = weights;
+        this.weightsReferences = newReferences(weights.length);
+        fingerprintValid = false;
+        layerStamps = newStamps(weights.length);
+        modificationCount++;
     }
 
+    /**
+     * Matrices shared with copies of this network are copied before, so the result can be modified. The cached
+     * fingerprint and the layer stamps are dropped, changes must be applied before the next call of
+     * {@link #getFingerprint()} or {@link #getLayerStamp(int)}. Read only access is provided by
+     * {@link #getBias(int, int)} and {@link #copyParameters(double[], int)}.
+     * @return biases per layer
+     */
     public SimpleMatrix[] getBiases()
     {
+        unshareAll(biases, biasesReferences);
+        fingerprintValid = false;
+        layerStamps = newStamps(layerStamps.length);
         return biases;
     }
 
     public void setBiases(SimpleMatrix[] biases)
     {
+        releaseAll(biasesReferences);
         this.biases = biases;
+        this.biasesReferences = newReferences(biases.length);
+        fingerprintValid = false;
+        layerStamps = newStamps(biases.length);
+        modificationCount++;
+    }
+
+    /**
+     * Read only access to one weight, the matrices stay shared with copies and the caches stay valid.
+     * @param layer index of layer (0 connects the input)
+     * @param row node of layer
+     * @param column node of previous layer (or input)
+     * @return weight
+     */
+    public double getWeight(int layer, int row, int column)
+    {
+        return weights[layer].get(row, column);
+    }
+
+    /**
+     * Read only access to one bias, the matrices stay shared with copies and the caches stay valid.
+     * @param layer index of layer (0 connects the input)
+     * @param row node of layer
+     * @return bias
+     */
+    public double getBias(int layer, int row)
+    {
+        return biases[layer].get(row, 0);
+    }
+
+    /**
+     * The state may be shared with copies of this network until the next training step, so it must not be modified.
+     * @return state of optimizer (e.g. moments of Adam), null for SGD or before the first training
+     */
+    public OptimizerState getOptimizerState()
+    {
+        return optimizerState;
+    }
+
+    /**
+     * @param optimizerState state of optimizer to continue a training (e.g. loaded with the network), null resets the
+     *            state
+     */
+    public void setOptimizerState(OptimizerState optimizerState)
+    {
+        if (optimizerState != null)
+        {
+            int stateSize = config.getOptimizer().getOptimizer().getStateSize();
+            if (optimizerState.getStateSize() != stateSize)
+            {
+                throw new WrongDimensionException(optimizerState.getStateSize(), stateSize, "Optimizer state");
+            }
+            int parameterCount = getParameterLayout().getParameterCount();
+            if (optimizerState.getParameterCount() != parameterCount)
+            {
+                throw new WrongDimensionException(optimizerState.getParameterCount(), parameterCount, "Parameter");
+            }
+        }
+        releaseOptimizerState();
+        this.optimizerState = optimizerState;
+    }
+
+    /**
+     * @return statistics of the input normalization folded into the first layer, null if the network was trained
+     *         with raw inputs
+     */
+    public InputNormalization getInputNormalization()
+    {
+        return inputNormalization;
+    }
+
+    /**
+     * Stores the statistics only, the parameters aren't changed (e.g. reading a network written with its statistics).
+     * Use {@link InputNormalization#fold(NeuralNetwork)} to fold a normalization into the first layer.
+     * @param inputNormalization normalization folded into the first layer (null for raw inputs)
+     */
+    public void setInputNormalization(InputNormalization inputNormalization)
+    {
+        if (inputNormalization != null && inputNormalization.size() != getInputNodes())
+        {
+            throw new WrongDimensionException(inputNormalization.size(), getInputNodes(), "Input");
+        }
+        this.inputNormalization = inputNormalization;
+    }
+
+    /**
+     * The count changes with each train, mutate, setWeights and setBiases. Changes applied directly to the matrices
+     * provided by {@link #getWeights()} or {@link #getBiases()} are not counted.
+     * @return number of modifications of weights and biases
+     */
+    public long getModificationCount()
+    {
+        return modificationCount;
+    }
+
+    /**
+     * @return layout of parameters used by {@link #copyParameters(double[], int)} and
+     *         {@link #setParameters(double[], int)}
+     */
+    public ParameterLayout getParameterLayout()
+    {
+        return ParameterLayout.of(config);
+    }
+
+    /**
+     * Copies weights and biases to the given array, the positions are defined by {@link #getParameterLayout()}.
+     * @param target array receiving the parameters
+     * @param offset position of first parameter in target
+     */
+    public void copyParameters(double[] target, int offset)
+    {
+        for (int layer = 0; layer < weights.length; layer++)
+        {
+            double[] layerWeights = weights[layer].getDDRM().getData();
+            double[] layerBiases = biases[layer].getDDRM().getData();
+            System.arraycopy(layerWeights, 0, target, offset, weights[layer].getNumElements());
+            offset += weights[layer].getNumElements();
+            System.arraycopy(layerBiases, 0, target, offset, biases[layer].getNumElements());
+            offset += biases[layer].getNumElements();
+        }
+    }
+
+    /**
+     * Replaces weights and biases by the values of the given array, the positions are defined by
+     * {@link #getParameterLayout()}.
+     * @param source array containing the parameters
+     * @param offset position of first parameter in source
+     */
+    public void setParameters(double[] source, int offset)
+    {
+        ParameterLayout layout = getParameterLayout();
+        for (int layer = 0; layer < layout.getLayers(); layer++)
+        {
+            int weightsFrom = offset + layout.getWeightsOffset(layer);
+            int biasesFrom = offset + layout.getBiasesOffset(layer);
+            int layerEnd = offset + layout.getLayerEnd(layer);
+            // unchanged layers keep matrices (may be shared) and stamp
+            if (Arrays.equals(weights[layer].getDDRM().getData(), 0, weights[layer].getNumElements(), source,
+                            weightsFrom, biasesFrom)
+                            && Arrays.equals(biases[layer].getDDRM().getData(), 0, biases[layer].getNumElements(),
+                                            source, biasesFrom, layerEnd))
+            {
+                continue;
+            }
+            int rows = layout.getRows(layer);
+            int cols = layout.getColumns(layer);
+            weights[layer] = SimpleMatrix.wrap(
+                            DMatrixRMaj.wrap(rows, cols, Arrays.copyOfRange(source, weightsFrom, biasesFrom)));
+            biases[layer] = SimpleMatrix.wrap(
+                            DMatrixRMaj.wrap(rows, 1, Arrays.copyOfRange(source, biasesFrom, layerEnd)));
+            release(weightsReferences, layer);
+            release(biasesReferences, layer);
+            layerStamps[layer] = STAMPS.incrementAndGet();
+        }
+        fingerprintValid = false;
+        modificationCount++;
+    }
+
+    /**
+     * The stamp of a layer identifies the content of weights and biases of the layer. It changes with each
+     * modification of the layer (train, mutate, set) and is inherited by copies. Layers with the same stamp have the
+     * same content, e.g. a mutated copy keeps the stamps of the layers not touched by the mutation.
+     * @param layer index of layer (0 connects the input)
+     * @return stamp of layer
+     */
+    public long getLayerStamp(int layer)
+    {
+        return layerStamps[layer];
+    }
+
+    private static long[] newStamps(int layers)
+    {
+        long[] result = new long[layers];
+        for (int layer = 0; layer < layers; layer++)
+        {
+            result[layer] = STAMPS.incrementAndGet();
+        }
+        return result;
     }
 
     public int[] getDimensions()
@@ -380,28 +1023,101 @@ public class NeuralNetwork
         return new int[] { config.getInputNodes(), config.getHiddenLayers().length, config.getHiddenLayers()[0], config.getOutputNodes() };
     }
 
-    private int hashCode(SimpleMatrix[] matrices)
+    /**
+     * Networks with the same layers have the same {@link ParameterLayout}, e.g. they can be merged.
+     * @param nn other network
+     * @return true if input, hidden and output layers of both networks have the same number of nodes
+     */
+    public boolean hasSameLayers(NeuralNetwork nn)
+    {
+        return Arrays.equals(getLayerNodes(), nn.getLayerNodes());
+    }
+
+    /**
+     * @return number of nodes of input, hidden and output layers
+     */
+    private int[] getLayerNodes()
     {
-        final int prime = 31;
-        int result = 1;
-        for (SimpleMatrix matrix : matrices)
+        int[] hiddenLayers = config.getHiddenLayers();
+        int[] result = new int[hiddenLayers.length + 2];
+        result[0] = config.getInputNodes();
+        System.arraycopy(hiddenLayers, 0, result, 1, hiddenLayers.length);
+        result[result.length - 1] = config.getOutputNodes();
+        return result;
+    }
+
+    /**
+     * The fingerprint is a 64 bit hash of configuration, weights and biases. It's cached and updated incrementally by
+     * mutate, so it can be used as compact key e.g. to deduplicate populations. Networks with the same fingerprint
+     * are equal with high probability, networks with different fingerprints are never equal.
+     * @return fingerprint of network
+     */
+    public long getFingerprint()
+    {
+        if (fingerprintValid)
+        {
+            return fingerprint;
+        }
+        long result = fingerprintOf(config);
+        ParameterLayout layout = getParameterLayout();
+        for (int layer = 0; layer < layout.getLayers(); layer++)
         {
-            result = prime * result + hashCode(matrix);
+            result += fingerprintOf(weights[layer], layout.getWeightsOffset(layer));
+            result += fingerprintOf(biases[layer], layout.getBiasesOffset(layer));
         }
+        fingerprint = result;
+        fingerprintValid = true;
         return result;
     }
 
-    private int hashCode(SimpleMatrix matrix)
+    private static long fingerprintOf(NetworkConfiguration config)
+    {
+        long result = mix(config.getInputNodes());
+        result = mix(result + config.getOutputNodes());
+        for (int nodes : config.getHiddenLayers())
+        {
+            result = mix(result + nodes);
+        }
+        result = mix(result + config.getActivationFunction().ordinal());
+        result = mix(result + Double.doubleToLongBits(config.getLearningRate()));
+        return mix(result + config.getSeed());
+    }
+
+    private static long fingerprintOf(SimpleMatrix matrix, int parameterOffset)
     {
-        final int prime = 31;
-        int result = 1;
+        double[] data = matrix.getDDRM().getData();
+        long result = 0;
         for (int i = 0; i < matrix.getNumElements(); i++)
         {
-            result = prime * result + Double.valueOf(matrix.get(i)).hashCode();
+            result += fingerprintOf(parameterOffset + i, data[i]);
         }
         return result;
     }
 
+    /**
+     * The fingerprint of the network is the sum of the fingerprints of all parameters, so a changed value can be
+     * replaced without visiting the other values.
+     * @param index position of parameter in {@link #getParameterLayout()}
+     * @param value value of parameter
+     * @return fingerprint of one parameter
+     */
+    private static long fingerprintOf(int index, double value)
+    {
+        // -0.0 and 0.0 are identical for equals
+        long bits = value == 0 ? 0 : Double.doubleToLongBits(value);
+        return mix(bits ^ mix(index + 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * finalizer of MurmurHash3 (64 bit)
+     */
+    private static long mix(long value)
+    {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
     private boolean equalsMatrix(SimpleMatrix[] a, SimpleMatrix[] b)
     {
         if (a.length != b.length)
@@ -420,13 +1136,13 @@ public class NeuralNetwork
 
     private boolean equalsMatrix(SimpleMatrix a, SimpleMatrix b)
     {
-        return a.isIdentical(b, 0d);
+        return a == b || a.isIdentical(b, 0d);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(config, hashCode(biases), hashCode(weights));
+        return Long.hashCode(getFingerprint());
     }
 
     @Override
@@ -436,6 +1152,7 @@ public class NeuralNetwork
         if (obj == null) return false;
         if (getClass() != obj.getClass()) return false;
         NeuralNetwork other = (NeuralNetwork)obj;
+        if (getFingerprint() != other.getFingerprint()) return false;
         return Objects.equals(config, other.config) && equalsMatrix(biases, other.biases) && equalsMatrix(weights, other.weights);
     }
 }
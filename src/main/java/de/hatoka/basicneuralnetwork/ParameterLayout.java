@@ -0,0 +1,116 @@
+package de.hatoka.basicneuralnetwork;
+
+/**
+ * ParameterLayout describes the position of weights and biases of a network in one flat parameter array. Layer by layer
+ * the weights (row major) are followed by the biases of the layer.
+ */
+public class ParameterLayout
+{
+    /**
+     * @param config configuration of network
+     * @return layout of parameters of networks with given configuration
+     */
+    public static ParameterLayout of(NetworkConfiguration config)
+    {
+        int[] hiddenLayers = config.getHiddenLayers();
+        int[] nodes = new int[hiddenLayers.length + 2];
+        nodes[0] = config.getInputNodes();
+        System.arraycopy(hiddenLayers, 0, nodes, 1, hiddenLayers.length);
+        nodes[nodes.length - 1] = config.getOutputNodes();
+        return new ParameterLayout(nodes);
+    }
+
+    /**
+     * number of nodes per layer (nodes[0] is the input)
+     */
+    private final int[] nodes;
+    private final int[] offsets;
+    private final int parameterCount;
+
+    private ParameterLayout(int[] nodes)
+    {
+        this.nodes = nodes;
+        this.offsets = new int[nodes.length - 1];
+        int offset = 0;
+        for (int layer = 0; layer < offsets.length; layer++)
+        {
+            offsets[layer] = offset;
+            offset += (nodes[layer] + 1) * nodes[layer + 1];
+        }
+        this.parameterCount = offset;
+    }
+
+    /**
+     * @return number of layers with weights and biases (hidden layers + output layer)
+     */
+    public int getLayers()
+    {
+        return offsets.length;
+    }
+
+    /**
+     * @param layer layer index
+     * @return number of nodes of layer (rows of weights and biases)
+     */
+    public int getRows(int layer)
+    {
+        return nodes[layer + 1];
+    }
+
+    /**
+     * @param layer layer index
+     * @return number of inputs of layer (columns of weights)
+     */
+    public int getColumns(int layer)
+    {
+        return nodes[layer];
+    }
+
+    /**
+     * @param layer layer index
+     * @return position of first weight of layer
+     */
+    public int getWeightsOffset(int layer)
+    {
+        return offsets[layer];
+    }
+
+    /**
+     * @param layer layer index
+     * @return position of first bias of layer
+     */
+    public int getBiasesOffset(int layer)
+    {
+        return offsets[layer] + nodes[layer] * nodes[layer + 1];
+    }
+
+    /**
+     * @param layer layer index
+     * @return position behind last bias of layer
+     */
+    public int getLayerEnd(int layer)
+    {
+        return layer + 1 < offsets.length ? offsets[layer + 1] : parameterCount;
+    }
+
+    /**
+     * @return maximal number of nodes of all layers (incl. input)
+     */
+    public int getMaxNodes()
+    {
+        int result = 0;
+        for (int n : nodes)
+        {
+            result = Math.max(result, n);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of all weights and biases
+     */
+    public int getParameterCount()
+    {
+        return parameterCount;
+    }
+}
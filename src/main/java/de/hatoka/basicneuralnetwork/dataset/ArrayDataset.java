@@ -0,0 +1,71 @@
+package de.hatoka.basicneuralnetwork.dataset;
+
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+/**
+ * Dataset of samples kept in memory as arrays.
+ */
+public class ArrayDataset implements Dataset
+{
+    private final double[][] inputs;
+    private final double[][] targets;
+    private final int inputSize;
+    private final int targetSize;
+
+    /**
+     * @param inputs input values per sample (not copied)
+     * @param targets target values per sample (not copied)
+     */
+    public ArrayDataset(double[][] inputs, double[][] targets)
+    {
+        if (inputs.length != targets.length)
+        {
+            throw new WrongDimensionException(targets.length, inputs.length, "Target");
+        }
+        this.inputs = inputs;
+        this.targets = targets;
+        this.inputSize = inputs.length == 0 ? 0 : inputs[0].length;
+        this.targetSize = targets.length == 0 ? 0 : targets[0].length;
+        for (int i = 0; i < inputs.length; i++)
+        {
+            if (inputs[i].length != inputSize)
+            {
+                throw new WrongDimensionException(inputs[i].length, inputSize, "Input");
+            }
+            if (targets[i].length != targetSize)
+            {
+                throw new WrongDimensionException(targets[i].length, targetSize, "Target");
+            }
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return inputs.length;
+    }
+
+    @Override
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    @Override
+    public int getTargetSize()
+    {
+        return targetSize;
+    }
+
+    @Override
+    public void copyInput(int index, double[] target, int offset)
+    {
+        System.arraycopy(inputs[index], 0, target, offset, inputSize);
+    }
+
+    @Override
+    public void copyTarget(int index, double[] target, int offset)
+    {
+        System.arraycopy(targets[index], 0, target, offset, targetSize);
+    }
+}
@@ -0,0 +1,73 @@
+package de.hatoka.basicneuralnetwork.dataset;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+/**
+ * Dataset provides samples (input and expected output) with fixed dimensions by index. Samples are copied into arrays
+ * provided by the caller, so arrays can be reused for each sample or mini-batch.
+ */
+public interface Dataset
+{
+    /**
+     * @return number of samples
+     */
+    int size();
+
+    /**
+     * @return number of input values per sample
+     */
+    int getInputSize();
+
+    /**
+     * @return number of target values per sample
+     */
+    int getTargetSize();
+
+    /**
+     * @param index index of sample
+     * @param target array receiving the input values
+     * @param offset position of first value in target
+     */
+    void copyInput(int index, double[] target, int offset);
+
+    /**
+     * @param index index of sample
+     * @param target array receiving the target values
+     * @param offset position of first value in target
+     */
+    void copyTarget(int index, double[] target, int offset);
+
+    /**
+     * Copies a mini-batch of samples, row after row.
+     * @param indices indices of samples
+     * @param from position of first index of batch
+     * @param count number of samples of batch
+     * @param inputs receives <code>count * getInputSize()</code> input values
+     * @param targets receives <code>count * getTargetSize()</code> target values
+     */
+    default void copyBatch(int[] indices, int from, int count, double[] inputs, double[] targets)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            copyInput(indices[from + i], inputs, i * getInputSize());
+            copyTarget(indices[from + i], targets, i * getTargetSize());
+        }
+    }
+
+    /**
+     * @param nn network trained or evaluated with the samples
+     * @throws WrongDimensionException if input or target size doesn't match the network
+     */
+    default void checkDimensions(NeuralNetwork nn)
+    {
+        if (getInputSize() != nn.getInputNodes())
+        {
+            throw new WrongDimensionException(getInputSize(), nn.getInputNodes(), "Input");
+        }
+        if (getTargetSize() != nn.getOutputNodes())
+        {
+            throw new WrongDimensionException(getTargetSize(), nn.getOutputNodes(), "Output");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package de.hatoka.basicneuralnetwork.dataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+/**
+ * DatasetWriter writes samples into a file with fixed-width rows, which can be read by {@link MappedDataset}. The
+ * number of rows is written into the header at {@link #close()}, files of writers not closed can't be read.
+ */
+public class DatasetWriter implements AutoCloseable
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int inputSize;
+    private final int targetSize;
+    private long rows = 0;
+
+    /**
+     * @param file file to create (replaces existing file)
+     * @param inputSize number of input values per sample
+     * @param targetSize number of target values per sample
+     * @throws IOException in case the file can't be created
+     */
+    public DatasetWriter(Path file, int inputSize, int targetSize) throws IOException
+    {
+        this.inputSize = inputSize;
+        this.targetSize = targetSize;
+        this.buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, (inputSize + targetSize) * 8))
+                                .order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+        writeHeader();
+    }
+
+    /**
+     * @param file file to create (replaces existing file)
+     * @param nn network defining the input and target size
+     * @return writer for samples of the network
+     * @throws IOException in case the file can't be created
+     */
+    public static DatasetWriter create(Path file, NeuralNetwork nn) throws IOException
+    {
+        return new DatasetWriter(file, nn.getInputNodes(), nn.getOutputNodes());
+    }
+
+    private void writeHeader() throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(MappedDataset.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MappedDataset.MAGIC).putInt(inputSize).putInt(targetSize).putInt(0).putLong(rows).putLong(0);
+        header.flip();
+        while (header.hasRemaining())
+        {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * @param input input values of sample
+     * @param target target values of sample
+     * @throws IOException in case writing fails
+     */
+    public void write(double[] input, double[] target) throws IOException
+    {
+        if (input.length != inputSize)
+        {
+            throw new WrongDimensionException(input.length, inputSize, "Input");
+        }
+        if (target.length != targetSize)
+        {
+            throw new WrongDimensionException(target.length, targetSize, "Target");
+        }
+        if (buffer.remaining() < (inputSize + targetSize) * 8)
+        {
+            flush();
+        }
+        for (double value : input)
+        {
+            buffer.putDouble(value);
+        }
+        for (double value : target)
+        {
+            buffer.putDouble(value);
+        }
+        rows++;
+    }
+
+    /**
+     * Writes all samples of the dataset.
+     * @param dataset samples to write
+     * @throws IOException in case writing fails
+     */
+    public void write(Dataset dataset) throws IOException
+    {
+        double[] input = new double[dataset.getInputSize()];
+        double[] target = new double[dataset.getTargetSize()];
+        for (int i = 0; i < dataset.size(); i++)
+        {
+            dataset.copyInput(i, input, 0);
+            dataset.copyTarget(i, target, 0);
+            write(input, target);
+        }
+    }
+
+    /**
+     * @return number of rows written
+     */
+    public long getRows()
+    {
+        return rows;
+    }
+
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer, channel.size());
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+            writeHeader();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package de.hatoka.basicneuralnetwork.dataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedDataset reads a dataset file written by {@link DatasetWriter} via memory mapping, so the file may be larger
+ * than the heap. Samples are read directly from the mapped file without parsing and without allocation.
+ * <p>
+ * File format (little endian):
+ *
+ * <pre>
+ * int    magic 'BND1'
+ * int    input size
+ * int    target size
+ * int    reserved (0)
+ * long   number of rows
+ * long   reserved (0)
+ * rows   input values (double) followed by target values (double)
+ * </pre>
+ *
+ * Files are mapped in chunks of complete rows (at most 2 GB each). Instances are thread safe.
+ */
+public final class MappedDataset implements Dataset, AutoCloseable
+{
+    static final int MAGIC = 0x31444E42;
+    static final int HEADER_SIZE = 32;
+
+    private final FileChannel channel;
+    private final DoubleBuffer[] chunks;
+    private final int inputSize;
+    private final int targetSize;
+    private final int rowLength;
+    private final int rowsPerChunk;
+    private final int size;
+
+    private MappedDataset(FileChannel channel, int maxChunkBytes) throws IOException
+    {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0)
+        {
+            // read complete header
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC)
+        {
+            throw new IOException("File doesn't contain a dataset.");
+        }
+        inputSize = header.getInt(4);
+        targetSize = header.getInt(8);
+        long rows = header.getLong(16);
+        rowLength = inputSize + targetSize;
+        long rowBytes = rowLength * 8L;
+        if (rows > Integer.MAX_VALUE || channel.size() != HEADER_SIZE + rows * rowBytes)
+        {
+            throw new IOException("Dataset with " + rows + " rows of " + rowBytes + " bytes doesn't fit to file size "
+                            + channel.size() + " (incomplete file).");
+        }
+        size = (int)rows;
+        rowsPerChunk = (int)Math.max(1, maxChunkBytes / Math.max(1, rowBytes));
+        chunks = new DoubleBuffer[(size + rowsPerChunk - 1) / rowsPerChunk];
+        for (int chunk = 0; chunk < chunks.length; chunk++)
+        {
+            long firstRow = (long)chunk * rowsPerChunk;
+            long chunkRows = Math.min(rowsPerChunk, rows - firstRow);
+            chunks[chunk] = channel.map(MapMode.READ_ONLY, HEADER_SIZE + firstRow * rowBytes, chunkRows * rowBytes)
+                                   .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+    }
+
+    /**
+     * @param file file written by {@link DatasetWriter}
+     * @return mapped dataset
+     * @throws IOException in case the file can't be read or doesn't contain a dataset
+     */
+    public static MappedDataset open(Path file) throws IOException
+    {
+        return open(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param file file written by {@link DatasetWriter}
+     * @param maxChunkBytes maximal size of one mapping
+     * @return mapped dataset
+     * @throws IOException in case the file can't be read or doesn't contain a dataset
+     */
+    static MappedDataset open(Path file, int maxChunkBytes) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try
+        {
+            return new MappedDataset(channel, maxChunkBytes);
+        }
+        catch(IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    @Override
+    public int getTargetSize()
+    {
+        return targetSize;
+    }
+
+    /**
+     * @return number of mappings of the file
+     */
+    int getChunks()
+    {
+        return chunks.length;
+    }
+
+    @Override
+    public void copyInput(int index, double[] target, int offset)
+    {
+        chunks[index / rowsPerChunk].get((index % rowsPerChunk) * rowLength, target, offset, inputSize);
+    }
+
+    @Override
+    public void copyTarget(int index, double[] target, int offset)
+    {
+        chunks[index / rowsPerChunk].get((index % rowsPerChunk) * rowLength + inputSize, target, offset, targetSize);
+    }
+
+    /**
+     * @param index index of sample
+     * @return read only view of the input values in the mapped file
+     */
+    public DoubleBuffer getInputView(int index)
+    {
+        return chunks[index / rowsPerChunk].slice((index % rowsPerChunk) * rowLength, inputSize).asReadOnlyBuffer();
+    }
+
+    /**
+     * @param index index of sample
+     * @return read only view of the target values in the mapped file
+     */
+    public DoubleBuffer getTargetView(int index)
+    {
+        return chunks[index / rowsPerChunk].slice((index % rowsPerChunk) * rowLength + inputSize, targetSize)
+                                           .asReadOnlyBuffer();
+    }
+
+    /**
+     * Closes the file, the mapping is released by the garbage collector.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
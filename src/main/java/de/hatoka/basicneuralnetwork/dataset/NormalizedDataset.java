@@ -0,0 +1,69 @@
+package de.hatoka.basicneuralnetwork.dataset;
+
+import de.hatoka.basicneuralnetwork.InputNormalization;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+/**
+ * View of another dataset with normalized inputs, e.g. to evaluate a network trained with normalized inputs before
+ * the normalization is folded into it. The inputs are normalized while copied, the targets are unchanged.
+ */
+public class NormalizedDataset implements Dataset
+{
+    private final Dataset source;
+    private final InputNormalization normalization;
+
+    /**
+     * @param source dataset containing the raw samples
+     * @param normalization normalization of the inputs
+     */
+    public NormalizedDataset(Dataset source, InputNormalization normalization)
+    {
+        if (normalization.size() != source.getInputSize())
+        {
+            throw new WrongDimensionException(normalization.size(), source.getInputSize(), "Input");
+        }
+        this.source = source;
+        this.normalization = normalization;
+    }
+
+    @Override
+    public int size()
+    {
+        return source.size();
+    }
+
+    @Override
+    public int getInputSize()
+    {
+        return source.getInputSize();
+    }
+
+    @Override
+    public int getTargetSize()
+    {
+        return source.getTargetSize();
+    }
+
+    @Override
+    public void copyInput(int index, double[] target, int offset)
+    {
+        source.copyInput(index, target, offset);
+        normalization.normalize(target, offset);
+    }
+
+    @Override
+    public void copyTarget(int index, double[] target, int offset)
+    {
+        source.copyTarget(index, target, offset);
+    }
+
+    @Override
+    public void copyBatch(int[] indices, int from, int count, double[] inputs, double[] targets)
+    {
+        source.copyBatch(indices, from, count, inputs, targets);
+        for (int i = 0; i < count; i++)
+        {
+            normalization.normalize(inputs, i * getInputSize());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package de.hatoka.basicneuralnetwork.dataset;
+
+/**
+ * One sample for training or evaluation
+ * @param input input values
+ * @param target expected output values
+ */
+public record Sample(double[] input, double[] target)
+{
+}
@@ -0,0 +1,58 @@
+package de.hatoka.basicneuralnetwork.dataset;
+
+/**
+ * View of selected samples of another dataset, the samples are not copied. Several views (e.g. the folds of a cross
+ * validation) can share one dataset as long as the dataset supports concurrent reads.
+ */
+public class SubsetDataset implements Dataset
+{
+    private final Dataset source;
+    private final int[] indices;
+
+    /**
+     * @param source dataset containing the samples
+     * @param indices indices of selected samples in source (not copied)
+     */
+    public SubsetDataset(Dataset source, int[] indices)
+    {
+        for (int index : indices)
+        {
+            if (index < 0 || index >= source.size())
+            {
+                throw new IndexOutOfBoundsException("Index " + index + " not in dataset of size " + source.size());
+            }
+        }
+        this.source = source;
+        this.indices = indices;
+    }
+
+    @Override
+    public int size()
+    {
+        return indices.length;
+    }
+
+    @Override
+    public int getInputSize()
+    {
+        return source.getInputSize();
+    }
+
+    @Override
+    public int getTargetSize()
+    {
+        return source.getTargetSize();
+    }
+
+    @Override
+    public void copyInput(int index, double[] target, int offset)
+    {
+        source.copyInput(indices[index], target, offset);
+    }
+
+    @Override
+    public void copyTarget(int index, double[] target, int offset)
+    {
+        source.copyTarget(indices[index], target, offset);
+    }
+}
@@ -0,0 +1,227 @@
+package de.hatoka.basicneuralnetwork.distributed;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * GradientCodec writes gradients in a compact binary format (big endian). Values are written as double or as float16
+ * (half precision), optionally only the top-k values with the largest absolute value are written (sparsification).
+ * <p>
+ * Writing is lossy for float16 and top-k: after {@link #write(double[], DataOutput)} the gradient contains the part
+ * not transmitted. Adding this remainder to the next gradient (error feedback) ensures that all adaptions reach the
+ * receiver eventually.
+ *
+ * <pre>
+ * byte   format (bit 0: float16 values, bit 1: sparse)
+ * int    number of values
+ * int    indices of values (sparse only)
+ * double scale (float16 only, largest absolute value, float16 values are divided by scale)
+ * double values (or short with float16)
+ * </pre>
+ */
+public final class GradientCodec
+{
+    private static final int HALF = 1;
+    private static final int SPARSE = 2;
+
+    private final boolean half;
+    private final double fraction;
+
+    private GradientCodec(boolean half, double fraction)
+    {
+        this.half = half;
+        this.fraction = fraction;
+    }
+
+    /**
+     * @return codec writing all values as double (lossless)
+     */
+    public static GradientCodec dense()
+    {
+        return new GradientCodec(false, 1);
+    }
+
+    /**
+     * @return codec writing all values as float16
+     */
+    public static GradientCodec float16()
+    {
+        return new GradientCodec(true, 1);
+    }
+
+    /**
+     * @param fraction fraction of values written (e.g. 0.01 writes the 1% values with largest absolute value)
+     * @param half true writes values as float16
+     * @return codec writing the top-k values only
+     */
+    public static GradientCodec topK(double fraction, boolean half)
+    {
+        if (fraction <= 0 || fraction > 1)
+        {
+            throw new IllegalArgumentException("Fraction " + fraction + " not in (0, 1].");
+        }
+        return new GradientCodec(half, fraction);
+    }
+
+    /**
+     * @param name "dense", "float16", "topk=&lt;fraction&gt;" or "topk16=&lt;fraction&gt;"
+     * @return codec of given name
+     */
+    public static GradientCodec of(String name)
+    {
+        if (name.startsWith("topk16="))
+        {
+            return topK(Double.parseDouble(name.substring("topk16=".length())), true);
+        }
+        if (name.startsWith("topk="))
+        {
+            return topK(Double.parseDouble(name.substring("topk=".length())), false);
+        }
+        return switch (name)
+        {
+            case "dense" -> dense();
+            case "float16" -> float16();
+            default -> throw new IllegalArgumentException("Unknown gradient codec '" + name + "'.");
+        };
+    }
+
+    /**
+     * @param length number of values of gradient
+     * @return number of bytes written for a gradient of the given length
+     */
+    public int getSize(int length)
+    {
+        int count = getCount(length);
+        return 1 + 4 + (count < length ? count * 4 : 0) + (half ? 8 + count * 2 : count * 8);
+    }
+
+    private int getCount(int length)
+    {
+        return fraction >= 1 ? length : Math.max(1, (int)Math.ceil(length * fraction));
+    }
+
+    /**
+     * Writes the gradient, afterwards the gradient contains the remainder not transmitted.
+     * @param gradient gradient to write, replaced by remainder
+     * @param output receives the gradient
+     * @throws IOException in case writing fails
+     */
+    public void write(double[] gradient, DataOutput output) throws IOException
+    {
+        int count = getCount(gradient.length);
+        boolean sparse = count < gradient.length;
+        output.writeByte((half ? HALF : 0) | (sparse ? SPARSE : 0));
+        output.writeInt(count);
+        int[] indices = sparse ? selectLargest(gradient, count) : null;
+        if (sparse)
+        {
+            for (int index : indices)
+            {
+                output.writeInt(index);
+            }
+        }
+        double scale = 0;
+        if (half)
+        {
+            // scaled values avoid the low precision of small (subnormal) float16 values
+            for (int i = 0; i < count; i++)
+            {
+                scale = Math.max(scale, Math.abs(gradient[sparse ? indices[i] : i]));
+            }
+            scale = scale == 0 ? 1 : scale;
+            output.writeDouble(scale);
+        }
+        for (int i = 0; i < count; i++)
+        {
+            int index = sparse ? indices[i] : i;
+            gradient[index] = writeValue(gradient[index], scale, output);
+        }
+    }
+
+    /**
+     * @return remainder not transmitted
+     */
+    private double writeValue(double value, double scale, DataOutput output) throws IOException
+    {
+        if (!half)
+        {
+            output.writeDouble(value);
+            return 0;
+        }
+        short bits = Float.floatToFloat16((float)(value / scale));
+        output.writeShort(bits);
+        return value - Float.float16ToFloat(bits) * scale;
+    }
+
+    /**
+     * @param gradient values
+     * @param count number of selected values
+     * @return indices (ascending) of the values with the largest absolute value
+     */
+    private static int[] selectLargest(double[] gradient, int count)
+    {
+        double[] magnitudes = new double[gradient.length];
+        for (int i = 0; i < gradient.length; i++)
+        {
+            magnitudes[i] = Math.abs(gradient[i]);
+        }
+        Arrays.sort(magnitudes);
+        double threshold = magnitudes[gradient.length - count];
+        // values above threshold first, ties fill up the remaining places
+        int above = 0;
+        for (int i = gradient.length - count; i < gradient.length; i++)
+        {
+            if (magnitudes[i] > threshold)
+            {
+                above++;
+            }
+        }
+        int ties = count - above;
+        int[] result = new int[count];
+        int position = 0;
+        for (int i = 0; i < gradient.length && position < count; i++)
+        {
+            double magnitude = Math.abs(gradient[i]);
+            if (magnitude > threshold || magnitude == threshold && ties-- > 0)
+            {
+                result[position++] = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a gradient written by any codec and adds the values to the target.
+     * @param input provides the gradient
+     * @param target gradient receiving the values
+     * @throws IOException in case reading fails or the gradient doesn't fit to the target
+     */
+    public static void read(DataInput input, double[] target) throws IOException
+    {
+        int format = input.readByte();
+        int count = input.readInt();
+        boolean half = (format & HALF) != 0;
+        boolean sparse = (format & SPARSE) != 0;
+        if (sparse ? count < 0 || count > target.length : count != target.length)
+        {
+            throw new IOException("Gradient with " + count + " values doesn't fit to " + target.length + ".");
+        }
+        int[] indices = sparse ? new int[count] : null;
+        for (int i = 0; sparse && i < count; i++)
+        {
+            indices[i] = input.readInt();
+            if (indices[i] < 0 || indices[i] >= target.length)
+            {
+                throw new IOException("Gradient index " + indices[i] + " out of " + target.length + ".");
+            }
+        }
+        double scale = half ? input.readDouble() : 1;
+        for (int i = 0; i < count; i++)
+        {
+            double value = half ? Float.float16ToFloat(input.readShort()) * scale : input.readDouble();
+            target[sparse ? indices[i] : i] += value;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package de.hatoka.basicneuralnetwork.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.SplittableRandom;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.utilities.NetworkCodec;
+
+/**
+ * GradientWorker trains a network of a {@link ParameterServer} on its shard of the training data. Each step it
+ * calculates the gradient of a random mini-batch with the current parameters, sends the gradient to the server and
+ * continues with the parameters returned by the server.
+ * <p>
+ * Parts of the gradient not transmitted by a lossy {@link GradientCodec} (float16, top-k) are added to the next
+ * gradient (error feedback).
+ */
+public class GradientWorker
+{
+    /**
+     * Provides the shards of training data for worker processes, see {@link GradientWorker#main(String[])}.
+     */
+    public interface ShardProvider
+    {
+        /**
+         * @param shard index of shard
+         * @param shards number of shards
+         * @return worker for the given shard
+         */
+        GradientWorker createWorker(int shard, int shards);
+    }
+
+    /**
+     * Result of a worker
+     * @param steps number of gradients sent
+     * @param sentBytes number of bytes sent to the server
+     * @param loss mean squared error of the last mini-batch
+     * @param wallTimeNanos duration of the training
+     */
+    public record Report(int steps, long sentBytes, double loss, long wallTimeNanos)
+    {
+    }
+
+    private final double[][] inputs;
+    private final double[][] targets;
+    private GradientCodec codec = GradientCodec.dense();
+    private int batchSize = 32;
+
+    /**
+     * @param inputs input data of shard
+     * @param targets expected output data of shard
+     */
+    public GradientWorker(double[][] inputs, double[][] targets)
+    {
+        if (inputs.length != targets.length)
+        {
+            throw new WrongDimensionException(targets.length, inputs.length, "Targets");
+        }
+        this.inputs = inputs;
+        this.targets = targets;
+    }
+
+    /**
+     * @param codec format of gradients sent to server (default {@link GradientCodec#dense()})
+     * @return this worker
+     */
+    public GradientWorker setCodec(GradientCodec codec)
+    {
+        this.codec = codec;
+        return this;
+    }
+
+    /**
+     * @param batchSize number of samples per gradient (default 32)
+     * @return this worker
+     */
+    public GradientWorker setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param server address of parameter server
+     * @param steps number of gradients to send
+     * @param seed seed for selection of mini-batches
+     * @return steps, sent bytes and loss
+     * @throws IOException in case the communication with the server fails
+     */
+    public Report run(InetSocketAddress server, int steps, long seed) throws IOException
+    {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        try (Socket socket = new Socket(server.getAddress(), server.getPort()))
+        {
+            socket.setTcpNoDelay(true);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            NeuralNetwork nn = new NetworkCodec().read(input);
+            long version = input.readLong();
+            double[] parameters = new double[nn.getParameterLayout().getParameterCount()];
+            // contains the remainder of the last step not transmitted by the codec
+            double[] gradient = new double[parameters.length];
+            double loss = Double.NaN;
+            for (int step = 0; step < steps; step++)
+            {
+                double error = 0;
+                for (int i = 0; i < batchSize; i++)
+                {
+                    int sample = random.nextInt(inputs.length);
+                    error += nn.addGradient(inputs[sample], targets[sample], gradient, 0);
+                }
+                loss = error / batchSize / nn.getOutputNodes();
+                output.writeLong(version);
+                output.writeInt(batchSize);
+                codec.write(gradient, output);
+                output.flush();
+                version = input.readLong();
+                for (int i = 0; i < parameters.length; i++)
+                {
+                    parameters[i] = input.readDouble();
+                }
+                nn.setParameters(parameters, 0);
+            }
+            return new Report(steps, output.size(), loss, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs one worker as process and prints the result as line starting with <code>RESULT</code>.
+     * @param args class name of {@link ShardProvider} (with public constructor without parameters), port of
+     *            parameter server (loopback), shard, shards, steps, batch size, codec (see
+     *            {@link GradientCodec#of(String)}), seed
+     * @throws Exception in case the worker fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        ShardProvider provider = (ShardProvider)Class.forName(args[0]).getConstructor().newInstance();
+        InetSocketAddress server = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1]));
+        GradientWorker worker = provider.createWorker(Integer.parseInt(args[2]), Integer.parseInt(args[3]))
+                                        .setBatchSize(Integer.parseInt(args[5]))
+                                        .setCodec(GradientCodec.of(args[6]));
+        Report report = worker.run(server, Integer.parseInt(args[4]), Long.parseLong(args[7]));
+        System.out.println("RESULT steps=" + report.steps() + " sentBytes=" + report.sentBytes() + " loss="
+                        + report.loss() + " wallTimeNanos=" + report.wallTimeNanos());
+        System.out.flush();
+    }
+}
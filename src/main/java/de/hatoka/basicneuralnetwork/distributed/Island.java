@@ -0,0 +1,373 @@
+package de.hatoka.basicneuralnetwork.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.genetic.EvolutionRunner;
+import de.hatoka.basicneuralnetwork.genetic.FitnessEvaluator;
+import de.hatoka.basicneuralnetwork.genetic.GenerationStatistics;
+import de.hatoka.basicneuralnetwork.utilities.NetworkCodec;
+
+/**
+ * Island evolves a sub-population with an {@link EvolutionRunner} and exchanges individuals with other islands (island
+ * model). Every migration interval the best individuals are sent to the neighbor island via TCP, received migrants
+ * replace the worst individuals before the next generation is bred. Islands are usually connected as ring, each
+ * island in its own process.
+ * <p>
+ * Migration is asynchronous: an island never waits for migrants, so islands can run at different speed. The evolution
+ * is not reproducible as soon as migrants are received.
+ * <p>
+ * Wire format of a migration (big endian): <code>int count</code>, followed by <code>count</code> times
+ * <code>double fitness</code> and the network in the format of {@link NetworkCodec}.
+ */
+public class Island implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(Island.class);
+
+    /**
+     * Result of an island
+     * @param result last generation with fitness and statistics
+     * @param sent number of individuals sent to neighbor
+     * @param received number of received individuals integrated into the population
+     * @param wallTimeNanos duration of the evolution
+     */
+    public record Report(EvolutionRunner.Result result, long sent, long received, long wallTimeNanos)
+    {
+        /**
+         * @return evaluated generations per second
+         */
+        public double getGenerationsPerSecond()
+        {
+            return result.statistics().size() * 1e9 / wallTimeNanos;
+        }
+    }
+
+    /**
+     * received individual
+     */
+    private record Migrant(NeuralNetwork network, double fitness)
+    {
+    }
+
+    private final EvolutionRunner runner;
+    private final ServerSocket serverSocket;
+    private final NetworkCodec codec = new NetworkCodec();
+    private final Queue<Migrant> arrivals = new ConcurrentLinkedQueue<>();
+    private final List<Socket> connections = new ArrayList<>();
+    private final AtomicLong received = new AtomicLong();
+    private InetSocketAddress neighbor;
+    private Socket neighborSocket;
+    private DataOutputStream neighborOutput;
+    private int migrationInterval = 5;
+    private int migrants = 2;
+    private long sent = 0;
+
+    /**
+     * Creates an island listening for migrants on the given address
+     * @param runner evolves the population of the island
+     * @param address address receiving migrants (port 0 selects a free port)
+     * @throws IOException in case the address can't be bound
+     */
+    public Island(EvolutionRunner runner, InetSocketAddress address) throws IOException
+    {
+        this.runner = runner;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        Thread.ofVirtual().name("island-accept-", serverSocket.getLocalPort()).start(this::accept);
+    }
+
+    /**
+     * @return address receiving migrants
+     */
+    public InetSocketAddress getAddress()
+    {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    /**
+     * @param neighbor address of island receiving the migrants of this island (null for isolated island)
+     * @return this island
+     */
+    public Island setNeighbor(InetSocketAddress neighbor)
+    {
+        this.neighbor = neighbor;
+        return this;
+    }
+
+    /**
+     * @param migrationInterval number of generations between migrations (default 5)
+     * @return this island
+     */
+    public Island setMigrationInterval(int migrationInterval)
+    {
+        this.migrationInterval = migrationInterval;
+        return this;
+    }
+
+    /**
+     * @param migrants number of best individuals sent per migration (default 2)
+     * @return this island
+     */
+    public Island setMigrants(int migrants)
+    {
+        this.migrants = migrants;
+        return this;
+    }
+
+    /**
+     * @param initial first generation
+     * @param generations number of generations to evaluate (at least 1)
+     * @param seed seed of random streams used for selection, merge and mutation
+     * @return last generation with fitness, statistics and migration counts
+     */
+    public Report run(List<NeuralNetwork> initial, int generations, long seed)
+    {
+        if (generations < 1)
+        {
+            throw new IllegalArgumentException("Generations must be positive, but is " + generations + ".");
+        }
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<GenerationStatistics> statistics = new ArrayList<>();
+        List<NeuralNetwork> population = initial;
+        for (int generation = 0;; generation++)
+        {
+            long generationStart = System.nanoTime();
+            long[] evaluationNanos = new long[population.size()];
+            double[] fitness = runner.evaluate(population, evaluationNanos);
+            statistics.add(GenerationStatistics.of(generation, fitness, evaluationNanos,
+                            System.nanoTime() - generationStart));
+            boolean last = generation == generations - 1;
+            if (!last && (generation + 1) % migrationInterval == 0)
+            {
+                population = new ArrayList<>(population);
+                migrate(population, fitness);
+            }
+            if (last)
+            {
+                return new Report(new EvolutionRunner.Result(population, fitness, statistics), sent, received.get(),
+                                System.nanoTime() - start);
+            }
+            population = runner.breed(population, fitness, random.split());
+        }
+    }
+
+    /**
+     * Sends the best individuals to the neighbor and replaces the worst individuals by the latest received migrants.
+     * Migrants with other layers than the population are dropped.
+     * @param population population (will be modified)
+     * @param fitness fitness of population (will be modified)
+     */
+    private void migrate(List<NeuralNetwork> population, double[] fitness)
+    {
+        Integer[] order = new Integer[population.size()];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        // best first
+        Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+        send(population, fitness, order);
+        // a faster neighbor sends more migrants than integrated, keep only the latest ones
+        while (arrivals.size() > migrants)
+        {
+            arrivals.poll();
+        }
+        int worst = order.length - 1;
+        Migrant migrant;
+        while (worst >= migrants && (migrant = arrivals.poll()) != null)
+        {
+            if (!migrant.network().hasSameLayers(population.get(0)))
+            {
+                // neighbor evolves differently configured networks, they can't be merged with the population
+                LOGGER.warn("dropped migrant with configuration {}", migrant.network().getConfiguration());
+                continue;
+            }
+            population.set(order[worst], migrant.network());
+            fitness[order[worst]] = migrant.fitness();
+            received.incrementAndGet();
+            worst--;
+        }
+    }
+
+    private void send(List<NeuralNetwork> population, double[] fitness, Integer[] order)
+    {
+        if (neighbor == null)
+        {
+            return;
+        }
+        int count = Math.min(migrants, order.length);
+        try
+        {
+            if (neighborOutput == null)
+            {
+                neighborSocket = new Socket(neighbor.getAddress(), neighbor.getPort());
+                neighborSocket.setTcpNoDelay(true);
+                neighborOutput = new DataOutputStream(new BufferedOutputStream(neighborSocket.getOutputStream()));
+            }
+            neighborOutput.writeInt(count);
+            for (int i = 0; i < count; i++)
+            {
+                neighborOutput.writeDouble(fitness[order[i]]);
+                codec.write(population.get(order[i]), neighborOutput);
+            }
+            neighborOutput.flush();
+            sent += count;
+        }
+        catch(IOException e)
+        {
+            // neighbor may have finished already, the evolution goes on without migration
+            LOGGER.debug("migration to {} failed: {}", neighbor, e.getMessage());
+            closeNeighbor();
+        }
+    }
+
+    private void accept()
+    {
+        while (!serverSocket.isClosed())
+        {
+            try
+            {
+                Socket socket = serverSocket.accept();
+                synchronized (connections)
+                {
+                    connections.add(socket);
+                }
+                Thread.ofVirtual().start(() -> receive(socket));
+            }
+            catch(IOException e)
+            {
+                if (!serverSocket.isClosed())
+                {
+                    LOGGER.warn("accept of migrants failed", e);
+                }
+            }
+        }
+    }
+
+    private void receive(Socket socket)
+    {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream())))
+        {
+            while (true)
+            {
+                int count = input.readInt();
+                for (int i = 0; i < count; i++)
+                {
+                    double fitness = input.readDouble();
+                    arrivals.add(new Migrant(codec.read(input), fitness));
+                }
+            }
+        }
+        catch(EOFException | SocketException e)
+        {
+            // connection closed by neighbor or island
+        }
+        catch(IOException e)
+        {
+            LOGGER.warn("receiving migrants failed", e);
+        }
+        catch(RuntimeException e)
+        {
+            // the socket is closed with the input, the neighbor has to reconnect
+            LOGGER.warn("decoding migrants failed", e);
+        }
+    }
+
+    private void closeNeighbor()
+    {
+        try
+        {
+            if (neighborSocket != null)
+            {
+                neighborSocket.close();
+            }
+        }
+        catch(IOException e)
+        {
+            LOGGER.debug("close of neighbor connection failed", e);
+        }
+        neighborSocket = null;
+        neighborOutput = null;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closeNeighbor();
+        serverSocket.close();
+        synchronized (connections)
+        {
+            for (Socket socket : connections)
+            {
+                socket.close();
+            }
+            connections.clear();
+        }
+    }
+
+    /**
+     * Runs one island as process. The island listens on a free loopback port and prints
+     * <code>LISTEN &lt;port&gt;</code>, afterwards it reads the port of the neighbor island from the standard input
+     * (<code>0</code> for none). The result is printed as line starting with <code>RESULT</code>.
+     * @param args class name of {@link FitnessEvaluator} (with public constructor without parameters), input nodes,
+     *            hidden nodes, output nodes, population size, generations, seed, migration interval, migrants
+     * @throws Exception in case the island fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        FitnessEvaluator evaluator = (FitnessEvaluator)Class.forName(args[0]).getConstructor().newInstance();
+        NetworkBuilder builder = NetworkBuilder.create(Integer.parseInt(args[1]), Integer.parseInt(args[3]))
+                                               .setHiddenLayers(1, Integer.parseInt(args[2]));
+        int size = Integer.parseInt(args[4]);
+        int generations = Integer.parseInt(args[5]);
+        long seed = Long.parseLong(args[6]);
+        List<NeuralNetwork> population = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            population.add(builder.setSeed(seed * size + i).build());
+        }
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (Island island = new Island(new EvolutionRunner(evaluator), new InetSocketAddress(loopback, 0)))
+        {
+            island.setMigrationInterval(Integer.parseInt(args[7])).setMigrants(Integer.parseInt(args[8]));
+            System.out.println("LISTEN " + island.getAddress().getPort());
+            System.out.flush();
+            BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            int neighborPort = Integer.parseInt(stdin.readLine().trim());
+            if (neighborPort != 0)
+            {
+                island.setNeighbor(new InetSocketAddress(loopback, neighborPort));
+            }
+            Report report = island.run(population, generations, seed);
+            System.out.println("RESULT generationsPerSecond=" + report.getGenerationsPerSecond() + " best="
+                            + Arrays.stream(report.result().fitness()).max().orElse(Double.NaN) + " sent="
+                            + report.sent() + " received=" + report.received());
+            System.out.flush();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package de.hatoka.basicneuralnetwork.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.utilities.NetworkCodec;
+
+/**
+ * ParameterServer holds the authoritative parameters of a network trained by several {@link GradientWorker}s
+ * (data-parallel training). Workers send gradients of mini-batches, the server applies the mean gradient via the
+ * optimizer of the network ({@link NeuralNetwork#applyGradient(double[], int)}, the optimizer state is kept by the
+ * server) and answers with the new parameters.
+ * <ul>
+ * <li>synchronous: the gradients of all workers of one version are averaged and applied together, every worker
+ * waits for the slowest worker</li>
+ * <li>asynchronous: each gradient is applied as soon as it arrives, as long as it was calculated on a version not
+ * older than the maximal staleness. Older gradients are dropped, the worker continues with the current version.</li>
+ * </ul>
+ * Wire format (big endian): at connect the server sends the network ({@link NetworkCodec}) and the version (long).
+ * Afterwards the worker sends <code>long version, int batch size</code> and the gradient ({@link GradientCodec}), the
+ * server answers with <code>long version</code> and all parameters as double. The worker closes the connection when
+ * it's finished.
+ */
+public class ParameterServer implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParameterServer.class);
+
+    private final NeuralNetwork network;
+    private final double[] parameters;
+    private final ServerSocket serverSocket;
+    private final NetworkCodec codec = new NetworkCodec();
+    private final List<Socket> connections = new ArrayList<>();
+    private final Object lock = new Object();
+    private int workers = 1;
+    private boolean synchronous = true;
+    private int maxStaleness = 4;
+    // all fields below are guarded by lock
+    private long version = 0;
+    private int connected = 0;
+    private int finished = 0;
+    private final double[] pendingGradient;
+    private int pendingBatch = 0;
+    private int pendingWorkers = 0;
+    private long appliedGradients = 0;
+    private long droppedGradients = 0;
+
+    /**
+     * Creates a server listening for workers on the given address
+     * @param network network to train (initial parameters)
+     * @param address address receiving workers (port 0 selects a free port)
+     * @throws IOException in case the address can't be bound
+     */
+    public ParameterServer(NeuralNetwork network, InetSocketAddress address) throws IOException
+    {
+        this.network = network.copy();
+        this.parameters = new double[network.getParameterLayout().getParameterCount()];
+        this.pendingGradient = new double[parameters.length];
+        network.copyParameters(parameters, 0);
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        Thread.ofVirtual().name("parameter-server-accept-", serverSocket.getLocalPort()).start(this::accept);
+    }
+
+    /**
+     * @return address receiving workers
+     */
+    public InetSocketAddress getAddress()
+    {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    /**
+     * @param workers number of workers (synchronous training starts after all workers are connected, default 1)
+     * @return this server
+     */
+    public ParameterServer setWorkers(int workers)
+    {
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * @param synchronous true applies the gradients of all workers together (default), false applies each gradient
+     *            as soon as it arrives
+     * @return this server
+     */
+    public ParameterServer setSynchronous(boolean synchronous)
+    {
+        this.synchronous = synchronous;
+        return this;
+    }
+
+    /**
+     * @param maxStaleness maximal number of versions a gradient may be behind in asynchronous training (default 4)
+     * @return this server
+     */
+    public ParameterServer setMaxStaleness(int maxStaleness)
+    {
+        this.maxStaleness = maxStaleness;
+        return this;
+    }
+
+    /**
+     * @return current version (number of parameter updates)
+     */
+    public long getVersion()
+    {
+        synchronized (lock)
+        {
+            return version;
+        }
+    }
+
+    /**
+     * @return number of gradients applied
+     */
+    public long getAppliedGradients()
+    {
+        synchronized (lock)
+        {
+            return appliedGradients;
+        }
+    }
+
+    /**
+     * @return number of gradients dropped because they were too stale
+     */
+    public long getDroppedGradients()
+    {
+        synchronized (lock)
+        {
+            return droppedGradients;
+        }
+    }
+
+    /**
+     * @return copy of network with current parameters and optimizer state
+     */
+    public NeuralNetwork getNetwork()
+    {
+        synchronized (lock)
+        {
+            return network.copy();
+        }
+    }
+
+    /**
+     * Waits until the configured number of workers has connected and finished.
+     * @param timeout maximal time to wait
+     * @param unit unit of timeout
+     * @return true if all workers are finished
+     * @throws InterruptedException in case the thread is interrupted
+     */
+    public boolean awaitWorkers(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long end = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock)
+        {
+            while (finished < workers)
+            {
+                long remaining = end - System.nanoTime();
+                if (remaining <= 0)
+                {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+
+    private void accept()
+    {
+        while (!serverSocket.isClosed())
+        {
+            try
+            {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                synchronized (connections)
+                {
+                    connections.add(socket);
+                }
+                Thread.ofVirtual().start(() -> serve(socket));
+            }
+            catch(IOException e)
+            {
+                if (!serverSocket.isClosed())
+                {
+                    LOGGER.warn("accept of worker failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket)
+    {
+        synchronized (lock)
+        {
+            connected++;
+            lock.notifyAll();
+        }
+        double[] snapshot = new double[parameters.length];
+        double[] gradient = new double[parameters.length];
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                        DataOutputStream output = new DataOutputStream(
+                                        new BufferedOutputStream(socket.getOutputStream())))
+        {
+            codec.write(getNetwork(), output);
+            output.writeLong(getVersion());
+            output.flush();
+            while (true)
+            {
+                long base;
+                try
+                {
+                    base = input.readLong();
+                }
+                catch(EOFException e)
+                {
+                    // worker finished
+                    break;
+                }
+                int batch = input.readInt();
+                if (batch <= 0)
+                {
+                    throw new IOException("Invalid batch size " + batch + ".");
+                }
+                GradientCodec.read(input, gradient);
+                long current = update(base, batch, gradient, snapshot);
+                Arrays.fill(gradient, 0);
+                output.writeLong(current);
+                for (double parameter : snapshot)
+                {
+                    output.writeDouble(parameter);
+                }
+                output.flush();
+            }
+        }
+        catch(SocketException e)
+        {
+            // connection closed by server
+        }
+        catch(IOException e)
+        {
+            LOGGER.warn("communication with worker failed", e);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            synchronized (lock)
+            {
+                finished++;
+                // remaining workers mustn't wait for this worker
+                if (synchronous && pendingWorkers > 0 && pendingWorkers >= connected - finished)
+                {
+                    applyPending();
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Applies or collects the gradient of a worker.
+     * @param base version the gradient was calculated on
+     * @param batch number of samples of gradient
+     * @param gradient sum of adaptions of samples
+     * @param snapshot receives the parameters of the returned version
+     * @return version of parameters for the next gradient of the worker
+     */
+    private long update(long base, int batch, double[] gradient, double[] snapshot) throws InterruptedException
+    {
+        synchronized (lock)
+        {
+            if (synchronous)
+            {
+                add(gradient, pendingGradient);
+                pendingBatch += batch;
+                pendingWorkers++;
+                while (version == base && !serverSocket.isClosed())
+                {
+                    if (connected >= workers && pendingWorkers >= connected - finished)
+                    {
+                        applyPending();
+                        break;
+                    }
+                    lock.wait();
+                }
+            }
+            else if (version - base <= maxStaleness)
+            {
+                apply(gradient, batch);
+                appliedGradients++;
+            }
+            else
+            {
+                droppedGradients++;
+            }
+            System.arraycopy(parameters, 0, snapshot, 0, parameters.length);
+            return version;
+        }
+    }
+
+    private void applyPending()
+    {
+        apply(pendingGradient, pendingBatch);
+        appliedGradients += pendingWorkers;
+        Arrays.fill(pendingGradient, 0);
+        pendingBatch = 0;
+        pendingWorkers = 0;
+        lock.notifyAll();
+    }
+
+    private void apply(double[] gradient, int batch)
+    {
+        network.applyGradient(gradient, batch);
+        network.copyParameters(parameters, 0);
+        version++;
+    }
+
+    private static void add(double[] source, double[] target)
+    {
+        for (int i = 0; i < source.length; i++)
+        {
+            target[i] += source[i];
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        serverSocket.close();
+        synchronized (lock)
+        {
+            lock.notifyAll();
+        }
+        synchronized (connections)
+        {
+            for (Socket socket : connections)
+            {
+                socket.close();
+            }
+            connections.clear();
+        }
+    }
+}
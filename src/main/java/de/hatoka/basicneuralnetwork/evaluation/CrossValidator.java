@@ -0,0 +1,199 @@
+package de.hatoka.basicneuralnetwork.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.dataset.Dataset;
+import de.hatoka.basicneuralnetwork.dataset.SubsetDataset;
+import de.hatoka.basicneuralnetwork.training.Trainer;
+
+/**
+ * CrossValidator rates a network configuration by k-fold cross validation. The samples are shuffled and split into k
+ * folds, for each fold a network is built, trained on the other folds and evaluated on the held-out fold. The folds
+ * are trained concurrently on the configured executor, all folds read the same dataset via {@link SubsetDataset}
+ * views, so the samples are not copied.
+ * <p>
+ * Fold assignment, initial weights and training order are derived from the seed in a fixed order, so the result is
+ * reproducible for a fixed seed independent of the thread scheduling.
+ */
+public class CrossValidator
+{
+    /**
+     * Result of a cross validation
+     * @param networks trained network per fold
+     * @param folds evaluation of network on its held-out fold
+     */
+    public record Result(List<NeuralNetwork> networks, List<Evaluation> folds)
+    {
+        /**
+         * @return evaluation of all held-out samples of all folds
+         */
+        public Evaluation getAggregate()
+        {
+            return folds.stream().reduce(Evaluation::merge).orElseThrow();
+        }
+
+        /**
+         * @return mean of mean squared errors of folds
+         */
+        public double getMeanSquaredError()
+        {
+            return folds.stream().mapToDouble(Evaluation::getMeanSquaredError).average().orElse(0);
+        }
+
+        /**
+         * @return standard deviation of mean squared errors of folds
+         */
+        public double getMeanSquaredErrorDeviation()
+        {
+            double mean = getMeanSquaredError();
+            double variance = folds.stream().mapToDouble(e -> Math.pow(e.getMeanSquaredError() - mean, 2))
+                                   .average().orElse(0);
+            return Math.sqrt(variance);
+        }
+    }
+
+    private final NetworkBuilder builder;
+    private final Executor executor;
+    private int folds = 5;
+    private int epochs = 10;
+    private int batchSize = 32;
+    private long seed = 1;
+
+    /**
+     * Validator training on the common fork join pool
+     * @param builder configuration of the networks
+     */
+    public CrossValidator(NetworkBuilder builder)
+    {
+        this(builder, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param builder configuration of the networks
+     * @param executor trains and evaluates the folds
+     */
+    public CrossValidator(NetworkBuilder builder, Executor executor)
+    {
+        this.builder = builder;
+        this.executor = executor;
+    }
+
+    /**
+     * @param folds number of folds k (default 5)
+     * @return this validator
+     */
+    public CrossValidator setFolds(int folds)
+    {
+        this.folds = folds;
+        return this;
+    }
+
+    /**
+     * @param epochs number of training epochs per fold (default 10)
+     * @return this validator
+     */
+    public CrossValidator setEpochs(int epochs)
+    {
+        this.epochs = epochs;
+        return this;
+    }
+
+    /**
+     * @param batchSize number of samples loaded together during training and evaluation (default 32)
+     * @return this validator
+     */
+    public CrossValidator setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param seed seed of fold assignment, initial weights and training order (default 1), replaces the seed of the
+     *            builder
+     * @return this validator
+     */
+    public CrossValidator setSeed(long seed)
+    {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param dataset samples (must support concurrent reads)
+     * @return trained networks and evaluations of all folds
+     */
+    public Result run(Dataset dataset)
+    {
+        if (folds < 2 || folds > dataset.size())
+        {
+            throw new IllegalArgumentException("Can't split " + dataset.size() + " samples into " + folds + " folds.");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] order = shuffle(dataset.size(), random);
+        NeuralNetwork[] networks = new NeuralNetwork[folds];
+        Evaluation[] evaluations = new Evaluation[folds];
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(folds);
+        for (int f = 0; f < folds; f++)
+        {
+            int from = (int)((long)order.length * f / folds);
+            int to = (int)((long)order.length * (f + 1) / folds);
+            int[] heldOut = Arrays.copyOfRange(order, from, to);
+            int[] training = new int[order.length - heldOut.length];
+            System.arraycopy(order, 0, training, 0, from);
+            System.arraycopy(order, to, training, from, order.length - to);
+            // seeds are taken in fixed order, so each fold is independent of the scheduling (seed 0 means random)
+            NeuralNetwork nn = builder.setSeed(random.nextLong() | 1).build();
+            long trainingSeed = random.nextLong();
+            dataset.checkDimensions(nn);
+            int fold = f;
+            tasks.add(CompletableFuture.runAsync(() -> {
+                new Trainer(nn).setBatchSize(batchSize).setSeed(trainingSeed)
+                               .train(new SubsetDataset(dataset, training), epochs);
+                // evaluated on the thread of the fold, the folds already use the executor
+                evaluations[fold] = new Evaluator(Runnable::run).setTasks(1).setBatchSize(batchSize)
+                                                                .evaluate(nn, dataset, heldOut);
+                networks[fold] = nn;
+            }, executor));
+        }
+        try
+        {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        }
+        catch(CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw e;
+        }
+        return new Result(List.of(networks), List.of(evaluations));
+    }
+
+    private static int[] shuffle(int size, SplittableRandom random)
+    {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int swap = result[i];
+            result[i] = result[j];
+            result[j] = swap;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+package de.hatoka.basicneuralnetwork.evaluation;
+
+/**
+ * Evaluation contains the quality metrics of a network on a test set: mean squared error, accuracy and confusion
+ * matrix of the classification. The class of an output (or target) is the index of its highest value, a network with
+ * one output node classifies with a threshold of 0.5 (class 1 above).
+ */
+public final class Evaluation
+{
+    private final long samples;
+    private final int outputs;
+    private final double squaredError;
+    private final int classes;
+    /**
+     * row major, row is the expected class, column the predicted class
+     */
+    private final long[] confusion;
+
+    /**
+     * @param samples number of evaluated samples
+     * @param outputs number of output values per sample
+     * @param squaredError sum of squared errors of all output values
+     * @param classes number of classes
+     * @param confusion row major confusion matrix (row expected, column predicted), not copied
+     */
+    Evaluation(long samples, int outputs, double squaredError, int classes, long[] confusion)
+    {
+        this.samples = samples;
+        this.outputs = outputs;
+        this.squaredError = squaredError;
+        this.classes = classes;
+        this.confusion = confusion;
+    }
+
+    /**
+     * @return number of evaluated samples
+     */
+    public long getSamples()
+    {
+        return samples;
+    }
+
+    /**
+     * @return sum of squared errors of all output values
+     */
+    public double getSquaredError()
+    {
+        return squaredError;
+    }
+
+    /**
+     * @return mean of squared errors per output value
+     */
+    public double getMeanSquaredError()
+    {
+        return samples == 0 ? 0 : squaredError / (samples * outputs);
+    }
+
+    /**
+     * @return number of samples classified correct
+     */
+    public long getCorrect()
+    {
+        long result = 0;
+        for (int c = 0; c < classes; c++)
+        {
+            result += confusion[c * classes + c];
+        }
+        return result;
+    }
+
+    /**
+     * @return part of samples classified correct
+     */
+    public double getAccuracy()
+    {
+        return samples == 0 ? 0 : (double)getCorrect() / samples;
+    }
+
+    /**
+     * @return number of classes
+     */
+    public int getClasses()
+    {
+        return classes;
+    }
+
+    /**
+     * @param expected class of target
+     * @param predicted class of output
+     * @return number of samples of expected class classified as predicted class
+     */
+    public long getConfusion(int expected, int predicted)
+    {
+        return confusion[expected * classes + predicted];
+    }
+
+    /**
+     * @return confusion matrix, row is the expected class, column the predicted class
+     */
+    public long[][] getConfusionMatrix()
+    {
+        long[][] result = new long[classes][classes];
+        for (int row = 0; row < classes; row++)
+        {
+            System.arraycopy(confusion, row * classes, result[row], 0, classes);
+        }
+        return result;
+    }
+
+    /**
+     * @param other evaluation of further samples with the same outputs
+     * @return evaluation of the samples of both evaluations
+     */
+    public Evaluation merge(Evaluation other)
+    {
+        if (other.outputs != outputs)
+        {
+            throw new IllegalArgumentException("Evaluations of " + outputs + " and " + other.outputs + " outputs.");
+        }
+        long[] merged = confusion.clone();
+        for (int i = 0; i < merged.length; i++)
+        {
+            merged[i] += other.confusion[i];
+        }
+        return new Evaluation(samples + other.samples, outputs, squaredError + other.squaredError, classes, merged);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Evaluation [samples=" + samples + ", mse=" + getMeanSquaredError() + ", accuracy=" + getAccuracy()
+                        + "]";
+    }
+}
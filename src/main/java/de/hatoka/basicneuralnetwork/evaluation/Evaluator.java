@@ -0,0 +1,273 @@
+package de.hatoka.basicneuralnetwork.evaluation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunction;
+import de.hatoka.basicneuralnetwork.dataset.ArrayDataset;
+import de.hatoka.basicneuralnetwork.dataset.Dataset;
+import de.hatoka.basicneuralnetwork.dataset.MappedDataset;
+
+/**
+ * Evaluator runs a test set through a network and collects an {@link Evaluation}. The samples are split into
+ * contiguous ranges evaluated concurrently on the configured executor. Each task runs forward passes of whole batches
+ * on a snapshot of the parameters with preallocated buffers, so no arrays are allocated per sample.
+ * <p>
+ * The squared errors are summed per batch and the batch sums are added in index order, so the result doesn't depend
+ * on the number of tasks or the scheduling.
+ */
+public class Evaluator
+{
+    private final Executor executor;
+    private int batchSize = 64;
+    private int tasks = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Evaluator using the common fork join pool
+     */
+    public Evaluator()
+    {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor executes the evaluation tasks
+     */
+    public Evaluator(Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * @param batchSize number of samples per forward pass (default 64)
+     * @return this evaluator
+     */
+    public Evaluator setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param tasks number of concurrent tasks (default number of processors)
+     * @return this evaluator
+     */
+    public Evaluator setTasks(int tasks)
+    {
+        this.tasks = tasks;
+        return this;
+    }
+
+    /**
+     * @param nn network to evaluate
+     * @param inputs input values per sample
+     * @param targets expected output values per sample
+     * @return metrics of the network
+     */
+    public Evaluation evaluate(NeuralNetwork nn, double[][] inputs, double[][] targets)
+    {
+        return evaluate(nn, new ArrayDataset(inputs, targets));
+    }
+
+    /**
+     * @param nn network to evaluate
+     * @param file dataset file written by {@link de.hatoka.basicneuralnetwork.dataset.DatasetWriter}
+     * @return metrics of the network
+     * @throws IOException if the file can't be read
+     */
+    public Evaluation evaluate(NeuralNetwork nn, Path file) throws IOException
+    {
+        try (MappedDataset dataset = MappedDataset.open(file))
+        {
+            return evaluate(nn, dataset);
+        }
+    }
+
+    /**
+     * @param nn network to evaluate
+     * @param dataset test set
+     * @return metrics of the network
+     */
+    public Evaluation evaluate(NeuralNetwork nn, Dataset dataset)
+    {
+        int[] all = new int[dataset.size()];
+        for (int i = 0; i < all.length; i++)
+        {
+            all[i] = i;
+        }
+        return evaluate(nn, dataset, all);
+    }
+
+    /**
+     * @param nn network to evaluate
+     * @param dataset test set
+     * @param indices indices of samples of dataset to evaluate (e.g. a fold)
+     * @return metrics of the network
+     */
+    public Evaluation evaluate(NeuralNetwork nn, Dataset dataset, int[] indices)
+    {
+        dataset.checkDimensions(nn);
+        Forward forward = new Forward(nn);
+        int outputs = nn.getOutputNodes();
+        int classes = Math.max(2, outputs);
+        int batches = (indices.length + batchSize - 1) / batchSize;
+        double[] batchErrors = new double[batches];
+        int taskCount = Math.max(1, Math.min(tasks, batches));
+        long[][] confusions = new long[taskCount][classes * classes];
+        List<CompletableFuture<Void>> futures = new ArrayList<>(taskCount);
+        for (int t = 0; t < taskCount; t++)
+        {
+            int first = (int)((long)batches * t / taskCount);
+            int end = (int)((long)batches * (t + 1) / taskCount);
+            long[] confusion = confusions[t];
+            futures.add(CompletableFuture.runAsync(
+                            () -> evaluate(forward, dataset, indices, first, end, batchErrors, confusion), executor));
+        }
+        try
+        {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        }
+        catch(CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+            {
+                throw runtimeException;
+            }
+            throw e;
+        }
+        double squaredError = 0;
+        for (double batchError : batchErrors)
+        {
+            squaredError += batchError;
+        }
+        long[] confusion = confusions[0];
+        for (int t = 1; t < taskCount; t++)
+        {
+            for (int i = 0; i < confusion.length; i++)
+            {
+                confusion[i] += confusions[t][i];
+            }
+        }
+        return new Evaluation(indices.length, outputs, squaredError, classes, confusion);
+    }
+
+    /**
+     * Evaluates the batches [first, end) with buffers of this task
+     */
+    private void evaluate(Forward forward, Dataset dataset, int[] indices, int first, int end, double[] batchErrors,
+                    long[] confusion)
+    {
+        int inputSize = dataset.getInputSize();
+        int outputs = dataset.getTargetSize();
+        int classes = Math.max(2, outputs);
+        double[] current = new double[batchSize * forward.layout.getMaxNodes()];
+        double[] next = new double[current.length];
+        double[] targets = new double[batchSize * outputs];
+        for (int batch = first; batch < end; batch++)
+        {
+            int from = batch * batchSize;
+            int count = Math.min(batchSize, indices.length - from);
+            for (int i = 0; i < count; i++)
+            {
+                dataset.copyInput(indices[from + i], current, i * inputSize);
+                dataset.copyTarget(indices[from + i], targets, i * outputs);
+            }
+            double[] output = forward.run(current, next, count);
+            double error = 0;
+            for (int i = 0; i < count; i++)
+            {
+                int offset = i * outputs;
+                for (int o = 0; o < outputs; o++)
+                {
+                    double difference = targets[offset + o] - output[offset + o];
+                    error += difference * difference;
+                }
+                int expected = classify(targets, offset, outputs);
+                confusion[expected * classes + classify(output, offset, outputs)]++;
+            }
+            batchErrors[batch] = error;
+        }
+    }
+
+    /**
+     * @return index of highest value (lowest index wins a tie), threshold 0.5 for a single value
+     */
+    private static int classify(double[] values, int offset, int length)
+    {
+        if (length == 1)
+        {
+            return values[offset] > 0.5 ? 1 : 0;
+        }
+        int best = 0;
+        for (int i = 1; i < length; i++)
+        {
+            if (values[offset + i] > values[offset + best])
+            {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Batched forward pass on a snapshot of the parameters, the same operations as
+     * {@link NeuralNetwork#guess(double[])}.
+     */
+    private static final class Forward
+    {
+        private final ParameterLayout layout;
+        private final double[] parameters;
+        private final ActivationFunction function;
+
+        private Forward(NeuralNetwork nn)
+        {
+            this.layout = nn.getParameterLayout();
+            this.parameters = new double[layout.getParameterCount()];
+            this.function = nn.getActivationFunction().getFunction();
+            nn.copyParameters(parameters, 0);
+        }
+
+        /**
+         * @param current input values row by row, used as buffer
+         * @param next buffer of same size
+         * @param count number of samples
+         * @return buffer containing the output values row by row
+         */
+        private double[] run(double[] current, double[] next, int count)
+        {
+            for (int layer = 0; layer < layout.getLayers(); layer++)
+            {
+                int rows = layout.getRows(layer);
+                int columns = layout.getColumns(layer);
+                int weights = layout.getWeightsOffset(layer);
+                int biases = layout.getBiasesOffset(layer);
+                for (int r = 0; r < rows; r++)
+                {
+                    int row = weights + r * columns;
+                    for (int i = 0; i < count; i++)
+                    {
+                        int input = i * columns;
+                        double total = 0;
+                        for (int c = 0; c < columns; c++)
+                        {
+                            total += parameters[row + c] * current[input + c];
+                        }
+                        next[i * rows + r] = function.activate(total + parameters[biases + r]);
+                    }
+                }
+                double[] swap = current;
+                current = next;
+                next = swap;
+            }
+            return current;
+        }
+    }
+}
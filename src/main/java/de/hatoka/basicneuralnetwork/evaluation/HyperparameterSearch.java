@@ -0,0 +1,410 @@
+package de.hatoka.basicneuralnetwork.evaluation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NetworkConfiguration;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunctions;
+import de.hatoka.basicneuralnetwork.dataset.Dataset;
+import de.hatoka.basicneuralnetwork.training.Trainer;
+import de.hatoka.basicneuralnetwork.utilities.NetworkCodec;
+
+/**
+ * HyperparameterSearch selects the best of several network configurations by successive halving. All surviving
+ * candidates are trained concurrently on the configured executor with the same read-only training set until the
+ * epoch budget of the rung, then they are rated by the mean squared error on the validation set. Only the best
+ * <code>1 / reductionFactor</code> of the candidates survive, the budget of the next rung is multiplied by the
+ * reduction factor. The search ends after a rung with one candidate or with the maximal number of epochs.
+ * <p>
+ * Candidates of a rung are scheduled by their last loss, so the promising candidates are trained first. Initial
+ * weights and training order are derived from the seed, so a search is reproducible for a fixed seed. With a
+ * checkpoint file the state is written after each rung and a new search with the same candidates resumes from it.
+ */
+public class HyperparameterSearch
+{
+    private static final int MAGIC = 0x42485331;
+
+    /**
+     * State of a candidate
+     * @param network trained network (contains the configuration)
+     * @param epochs number of trained epochs
+     * @param loss mean squared error on the validation set after the last rung (infinity before)
+     * @param alive false if the candidate was pruned
+     */
+    public record Trial(NeuralNetwork network, int epochs, double loss, boolean alive)
+    {
+        /**
+         * @return configuration of the candidate
+         */
+        public NetworkConfiguration getConfiguration()
+        {
+            return network.getConfiguration();
+        }
+    }
+
+    /**
+     * State of a search
+     * @param rungs number of completed rungs
+     * @param finished true after the last rung
+     * @param trials state of all candidates (in order of the candidates)
+     */
+    public record Result(int rungs, boolean finished, List<Trial> trials)
+    {
+        /**
+         * @return surviving candidate with the lowest loss
+         */
+        public Trial getBest()
+        {
+            return trials.stream().filter(Trial::alive).min(Comparator.comparingDouble(Trial::loss)).orElseThrow();
+        }
+    }
+
+    private final List<NetworkBuilder> candidates;
+    private final Executor executor;
+    private int minEpochs = 1;
+    private int maxEpochs = 100;
+    private int reductionFactor = 2;
+    private int batchSize = 32;
+    private long seed = 1;
+    private Path checkpoint;
+    private Consumer<Result> listener = result -> {};
+
+    /**
+     * Search training on the common fork join pool
+     * @param candidates configurations to compare
+     */
+    public HyperparameterSearch(List<NetworkBuilder> candidates)
+    {
+        this(candidates, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param candidates configurations to compare
+     * @param executor trains and evaluates the candidates (e.g. a fixed thread pool)
+     */
+    public HyperparameterSearch(List<NetworkBuilder> candidates, Executor executor)
+    {
+        if (candidates.isEmpty())
+        {
+            throw new IllegalArgumentException("Search needs at least one candidate.");
+        }
+        this.candidates = List.copyOf(candidates);
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the candidates of a grid search space.
+     * @param base builder with input and output nodes
+     * @param hiddenLayers options of hidden layer nodes
+     * @param learningRates options of learning rate
+     * @param activationFunctions options of activation function
+     * @return builder of each combination
+     */
+    public static List<NetworkBuilder> grid(NetworkBuilder base, int[][] hiddenLayers, double[] learningRates,
+                    ActivationFunctions... activationFunctions)
+    {
+        List<NetworkBuilder> result = new ArrayList<>();
+        for (int[] hiddenNodes : hiddenLayers)
+        {
+            for (double learningRate : learningRates)
+            {
+                for (ActivationFunctions function : activationFunctions)
+                {
+                    result.add(base.setHiddenLayerNodes(hiddenNodes).setLearningRate(learningRate)
+                                   .setActivationFunction(function));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param minEpochs epochs of the first rung (default 1, at most max epochs)
+     * @return this search
+     */
+    public HyperparameterSearch setMinEpochs(int minEpochs)
+    {
+        if (minEpochs < 1)
+        {
+            throw new IllegalArgumentException("Minimal epochs must be positive, but is " + minEpochs + ".");
+        }
+        this.minEpochs = minEpochs;
+        return this;
+    }
+
+    /**
+     * @param maxEpochs maximal epochs of a candidate (default 100)
+     * @return this search
+     */
+    public HyperparameterSearch setMaxEpochs(int maxEpochs)
+    {
+        if (maxEpochs < 1)
+        {
+            throw new IllegalArgumentException("Maximal epochs must be positive, but is " + maxEpochs + ".");
+        }
+        this.maxEpochs = maxEpochs;
+        return this;
+    }
+
+    /**
+     * @param reductionFactor one of reductionFactor candidates survives a rung (default 2, at least 2)
+     * @return this search
+     */
+    public HyperparameterSearch setReductionFactor(int reductionFactor)
+    {
+        if (reductionFactor < 2)
+        {
+            throw new IllegalArgumentException("Reduction factor must be at least 2, but is " + reductionFactor + ".");
+        }
+        this.reductionFactor = reductionFactor;
+        return this;
+    }
+
+    /**
+     * @param batchSize number of samples loaded together during training and evaluation (default 32)
+     * @return this search
+     */
+    public HyperparameterSearch setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param seed seed of initial weights and training order (default 1), replaces the seeds of the builders
+     * @return this search
+     */
+    public HyperparameterSearch setSeed(long seed)
+    {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param checkpoint file receiving the state after each rung, an existing file is resumed
+     * @return this search
+     */
+    public HyperparameterSearch setCheckpoint(Path checkpoint)
+    {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * @param listener receives the state after each rung
+     * @return this search
+     */
+    public HyperparameterSearch setListener(Consumer<Result> listener)
+    {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * @param training training set (must support concurrent reads)
+     * @param validation validation set rating the candidates (must support concurrent reads)
+     * @return state of all candidates after the last rung
+     * @throws IOException in case the checkpoint can't be read or written
+     * @throws IllegalArgumentException if the minimal epochs exceed the maximal epochs
+     */
+    public Result run(Dataset training, Dataset validation) throws IOException
+    {
+        if (minEpochs > maxEpochs)
+        {
+            throw new IllegalArgumentException("Minimal epochs " + minEpochs + " exceed maximal epochs " + maxEpochs
+                            + ".");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] trainingSeeds = new long[candidates.size()];
+        Trial[] trials = new Trial[candidates.size()];
+        for (int i = 0; i < trials.length; i++)
+        {
+            // seed 0 means random
+            NeuralNetwork nn = candidates.get(i).setSeed(random.nextLong() | 1).build();
+            training.checkDimensions(nn);
+            validation.checkDimensions(nn);
+            trials[i] = new Trial(nn, 0, Double.POSITIVE_INFINITY, true);
+            trainingSeeds[i] = random.nextLong();
+        }
+        Result result = new Result(0, false, List.of(trials));
+        if (checkpoint != null && Files.exists(checkpoint))
+        {
+            result = readCheckpoint(trials);
+        }
+        for (int rung = result.rungs(); !result.finished(); rung++)
+        {
+            int budget = getBudget(rung);
+            int alive = countAlive(trials);
+            runRung(trials, rung, budget, training, validation, trainingSeeds);
+            boolean finished = alive == 1 || budget >= maxEpochs;
+            if (!finished)
+            {
+                prune(trials, (alive + reductionFactor - 1) / reductionFactor);
+            }
+            result = new Result(rung + 1, finished, List.of(trials));
+            if (checkpoint != null)
+            {
+                writeCheckpoint(result);
+            }
+            listener.accept(result);
+        }
+        return result;
+    }
+
+    private int getBudget(int rung)
+    {
+        long result = minEpochs;
+        for (int r = 0; r < rung && result < maxEpochs; r++)
+        {
+            result *= reductionFactor;
+        }
+        return (int)Math.min(result, maxEpochs);
+    }
+
+    private static int countAlive(Trial[] trials)
+    {
+        int result = 0;
+        for (Trial trial : trials)
+        {
+            result += trial.alive() ? 1 : 0;
+        }
+        return result;
+    }
+
+    /**
+     * Trains all surviving candidates to the budget, the candidates with the lowest loss are scheduled first
+     */
+    private void runRung(Trial[] trials, int rung, int budget, Dataset training, Dataset validation,
+                    long[] trainingSeeds)
+    {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < trials.length; i++)
+        {
+            if (trials[i].alive())
+            {
+                order.add(i);
+            }
+        }
+        order.sort(Comparator.comparingDouble(i -> trials[i].loss()));
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(order.size());
+        for (int index : order)
+        {
+            Trial trial = trials[index];
+            tasks.add(CompletableFuture.runAsync(() -> {
+                NeuralNetwork nn = trial.network();
+                new Trainer(nn).setBatchSize(batchSize).setSeed(trainingSeeds[index] + rung)
+                               .train(training, budget - trial.epochs());
+                double loss = new Evaluator(Runnable::run).setTasks(1).setBatchSize(batchSize)
+                                                          .evaluate(nn, validation).getMeanSquaredError();
+                trials[index] = new Trial(nn, budget, loss, true);
+            }, executor));
+        }
+        try
+        {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        }
+        catch(CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Keeps the survivors with the lowest loss (the lower index wins a tie)
+     */
+    private static void prune(Trial[] trials, int survivors)
+    {
+        List<Integer> ranking = new ArrayList<>();
+        for (int i = 0; i < trials.length; i++)
+        {
+            if (trials[i].alive())
+            {
+                ranking.add(i);
+            }
+        }
+        ranking.sort(Comparator.comparingDouble(i -> trials[i].loss()));
+        for (int i = survivors; i < ranking.size(); i++)
+        {
+            Trial trial = trials[ranking.get(i)];
+            trials[ranking.get(i)] = new Trial(trial.network(), trial.epochs(), trial.loss(), false);
+        }
+    }
+
+    private void writeCheckpoint(Result result) throws IOException
+    {
+        // written to a temporary file first, so an interrupted write keeps the previous checkpoint
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        NetworkCodec codec = new NetworkCodec();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary))))
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(result.trials().size());
+            output.writeInt(result.rungs());
+            output.writeBoolean(result.finished());
+            for (Trial trial : result.trials())
+            {
+                output.writeBoolean(trial.alive());
+                output.writeInt(trial.epochs());
+                output.writeDouble(trial.loss());
+                codec.write(trial.network(), output);
+            }
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param trials initial trials, replaced by the trials of the checkpoint
+     * @return state of the checkpoint
+     */
+    private Result readCheckpoint(Trial[] trials) throws IOException
+    {
+        NetworkCodec codec = new NetworkCodec();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint))))
+        {
+            if (input.readInt() != MAGIC)
+            {
+                throw new IOException("File " + checkpoint + " doesn't contain a search checkpoint.");
+            }
+            if (input.readInt() != trials.length)
+            {
+                throw new IOException("Checkpoint " + checkpoint + " doesn't match the candidates.");
+            }
+            int rungs = input.readInt();
+            boolean finished = input.readBoolean();
+            for (int i = 0; i < trials.length; i++)
+            {
+                boolean alive = input.readBoolean();
+                int epochs = input.readInt();
+                double loss = input.readDouble();
+                NeuralNetwork nn = codec.read(input);
+                if (!nn.getConfiguration().equals(trials[i].getConfiguration()))
+                {
+                    throw new IOException("Checkpoint " + checkpoint + " doesn't match the candidates.");
+                }
+                trials[i] = new Trial(nn, epochs, loss, alive);
+            }
+            return new Result(rungs, finished, List.of(trials));
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunction;
+import de.hatoka.basicneuralnetwork.utilities.GaussianMutation;
+
+/**
+ * DeltaGenome stores the parameters (weights and biases in {@link ParameterLayout} order) of a network either dense or
+ * as reference to the parent genome plus a sparse list of (index, delta) produced by mutation. With low mutation
+ * probabilities a child needs only a few percent of the memory of a dense genome.
+ * <ul>
+ * <li>A child is stored dense, if the chain of parents would exceed the maximal depth or if more than a quarter of
+ * the parameters are mutated.</li>
+ * <li>{@link #guess(double[])} flattens the genome once to dense storage and releases the parent.</li>
+ * </ul>
+ * Genomes are immutable from outside, flattening is synchronized, so a genome can be used by several threads.
+ */
+public final class DeltaGenome
+{
+    /**
+     * default maximal length of parent chain
+     */
+    public static final int DEFAULT_MAX_DEPTH = 8;
+
+    /**
+     * Creates a dense genome with the parameters of the network
+     * @param nn network providing dimensions, activation function and parameters
+     * @return dense genome
+     */
+    public static DeltaGenome of(NeuralNetwork nn)
+    {
+        return of(nn, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates a dense genome with the parameters of the network
+     * @param nn network providing dimensions, activation function and parameters
+     * @param maxDepth maximal length of parent chain of descendants
+     * @return dense genome
+     */
+    public static DeltaGenome of(NeuralNetwork nn, int maxDepth)
+    {
+        ParameterLayout layout = nn.getParameterLayout();
+        double[] values = new double[layout.getParameterCount()];
+        nn.copyParameters(values, 0);
+        return new DeltaGenome(new Family(nn, layout, maxDepth), values);
+    }
+
+    /**
+     * Shared by all genomes derived from the same root
+     */
+    private record Family(NeuralNetwork template, ParameterLayout layout, int maxDepth)
+    {
+    }
+
+    private final Family family;
+    /**
+     * dense parameters, null as long as genome is stored as delta
+     */
+    private volatile double[] values;
+    private DeltaGenome parent;
+    /**
+     * positions of deltas (ascending)
+     */
+    private int[] indices;
+    private double[] deltas;
+    /**
+     * length of parent chain (0 for dense genomes)
+     */
+    private int depth;
+
+    private DeltaGenome(Family family, double[] values)
+    {
+        this.family = family;
+        this.values = values;
+    }
+
+    private DeltaGenome(Family family, DeltaGenome parent, int depth, int[] indices, double[] deltas)
+    {
+        this.family = family;
+        this.parent = parent;
+        this.depth = depth;
+        this.indices = indices;
+        this.deltas = deltas;
+    }
+
+    /**
+     * Creates a mutated child with the default mutation strength
+     * @param probability probability that a parameter is mutated
+     * @param random source of random values
+     * @return child genome
+     */
+    public DeltaGenome mutate(double probability, RandomGenerator random)
+    {
+        return mutate(GaussianMutation.of(probability), random);
+    }
+
+    /**
+     * Creates a mutated child. The child is stored as delta of this genome, if possible.
+     * @param mutation mutation selecting the changed parameters
+     * @param random source of random values
+     * @return child genome
+     */
+    public DeltaGenome mutate(GaussianMutation mutation, RandomGenerator random)
+    {
+        int size = getParameterCount();
+        DeltaBuffer buffer = new DeltaBuffer((int)Math.min(size, size * mutation.getProbability() * 1.25 + 8));
+        mutation.sample(0, size, random, buffer);
+        int childDepth = getDepth() + 1;
+        if (childDepth > family.maxDepth() || buffer.count > size / 4)
+        {
+            double[] dense = toArray();
+            for (int i = 0; i < buffer.count; i++)
+            {
+                dense[buffer.indices[i]] += buffer.deltas[i];
+            }
+            return new DeltaGenome(family, dense);
+        }
+        return new DeltaGenome(family, this, childDepth, Arrays.copyOf(buffer.indices, buffer.count),
+                        Arrays.copyOf(buffer.deltas, buffer.count));
+    }
+
+    /**
+     * @return number of parameters
+     */
+    public int getParameterCount()
+    {
+        return family.layout().getParameterCount();
+    }
+
+    /**
+     * @return layout of parameters
+     */
+    public ParameterLayout getLayout()
+    {
+        return family.layout();
+    }
+
+    /**
+     * @return length of parent chain (0 for dense genomes)
+     */
+    public synchronized int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return true, if the genome is stored dense
+     */
+    public boolean isDense()
+    {
+        return values != null;
+    }
+
+    /**
+     * @return number of parameters stored by this genome (all for dense genomes, number of deltas otherwise)
+     */
+    public synchronized int getStoredParameters()
+    {
+        return values != null ? values.length : deltas.length;
+    }
+
+    /**
+     * The deltas are added from the root to this genome, like the mutations were applied to dense parameters, so the
+     * value is identical to the value of {@link #toArray()}.
+     * @param index position of parameter
+     * @return value of parameter
+     */
+    public double get(int index)
+    {
+        DeltaGenome ancestor;
+        double delta;
+        synchronized (this)
+        {
+            if (values != null)
+            {
+                return values[index];
+            }
+            int position = Arrays.binarySearch(indices, index);
+            if (position < 0)
+            {
+                return parent.get(index);
+            }
+            ancestor = parent;
+            delta = deltas[position];
+        }
+        return ancestor.get(index) + delta;
+    }
+
+    /**
+     * Copies the parameters to the given array
+     * @param target array receiving the parameters
+     * @param offset position of first parameter in target
+     */
+    public synchronized void copyParameters(double[] target, int offset)
+    {
+        if (values != null)
+        {
+            System.arraycopy(values, 0, target, offset, values.length);
+            return;
+        }
+        parent.copyParameters(target, offset);
+        for (int i = 0; i < indices.length; i++)
+        {
+            target[offset + indices[i]] += deltas[i];
+        }
+    }
+
+    /**
+     * @return new array with all parameters
+     */
+    public double[] toArray()
+    {
+        double[] result = new double[getParameterCount()];
+        copyParameters(result, 0);
+        return result;
+    }
+
+    /**
+     * Converts the genome to dense storage and releases the parent.
+     * @return dense parameters (must not be modified)
+     */
+    private double[] flatten()
+    {
+        double[] result = values;
+        if (result != null)
+        {
+            return result;
+        }
+        synchronized (this)
+        {
+            if (values == null)
+            {
+                double[] dense = toArray();
+                parent = null;
+                indices = null;
+                deltas = null;
+                depth = 0;
+                values = dense;
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Flattens the genome (if necessary) and calculates the output
+     * @param input array of input values for the network
+     * @return array of output values calculated (guess) by the genome via forward propagation
+     */
+    public double[] guess(double[] input)
+    {
+        NeuralNetwork template = family.template();
+        if (input.length != template.getInputNodes())
+        {
+            throw new WrongDimensionException(input.length, template.getInputNodes(), "Input");
+        }
+        ActivationFunction function = template.getActivationFunction().getFunction();
+        return Population.guess(flatten(), 0, family.layout(), function, input);
+    }
+
+    /**
+     * @return new network with the parameters of the genome and the configuration of the root network
+     */
+    public NeuralNetwork toNetwork()
+    {
+        NeuralNetwork result = family.template().copy();
+        result.setParameters(toArray(), 0);
+        return result;
+    }
+
+    /**
+     * Collects the mutations of a child
+     */
+    private static final class DeltaBuffer implements GaussianMutation.OffsetConsumer
+    {
+        private int[] indices;
+        private double[] deltas;
+        private int count;
+
+        private DeltaBuffer(int capacity)
+        {
+            this.indices = new int[Math.max(1, capacity)];
+            this.deltas = new double[indices.length];
+        }
+
+        @Override
+        public void accept(int index, double offset)
+        {
+            if (count == indices.length)
+            {
+                indices = Arrays.copyOf(indices, count * 2);
+                deltas = Arrays.copyOf(deltas, count * 2);
+            }
+            indices[count] = index;
+            deltas[count] = offset;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.utilities.Crossover;
+import de.hatoka.basicneuralnetwork.utilities.GaussianMutation;
+
+/**
+ * EvolutionRunner evolves a population of networks. Each generation is evaluated concurrently on the configured
+ * executor (e.g. {@link ForkJoinPool#commonPool()} or a virtual thread executor). The next generation keeps the elite
+ * and breeds the other individuals via tournament selection, {@link NeuralNetwork#merge(NeuralNetwork, Crossover,
+ * RandomGenerator)} and {@link NeuralNetwork#mutate(double, RandomGenerator)}.
+ * <p>
+ * Every child gets its own random stream split from the seed in a fixed order, so the result is reproducible for a
+ * fixed seed independent of the thread scheduling (as long as the fitness depends only on the network).
+ */
+public class EvolutionRunner
+{
+    /**
+     * Result of an evolution
+     * @param population last generation
+     * @param fitness fitness of last generation
+     * @param statistics statistics of all generations
+     */
+    public record Result(List<NeuralNetwork> population, double[] fitness, List<GenerationStatistics> statistics)
+    {
+        /**
+         * @return individual of last generation with highest fitness
+         */
+        public NeuralNetwork getBest()
+        {
+            int best = 0;
+            for (int i = 1; i < fitness.length; i++)
+            {
+                if (fitness[i] > fitness[best])
+                {
+                    best = i;
+                }
+            }
+            return population.get(best);
+        }
+    }
+
+    private final FitnessEvaluator evaluator;
+    private final Executor executor;
+    private int eliteCount = 1;
+    private int tournamentSize = 3;
+    private Crossover crossover = Crossover.uniform(0.5);
+    private double mutationProbability = 0.1;
+    private double mutationStrength = GaussianMutation.DEFAULT_STRENGTH;
+    private Consumer<GenerationStatistics> listener = statistics -> {};
+
+    /**
+     * Runner evaluating on the common fork join pool
+     * @param evaluator rates the individuals
+     */
+    public EvolutionRunner(FitnessEvaluator evaluator)
+    {
+        this(evaluator, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param evaluator rates the individuals
+     * @param executor executes evaluation and breeding of individuals
+     */
+    public EvolutionRunner(FitnessEvaluator evaluator, Executor executor)
+    {
+        this.evaluator = evaluator;
+        this.executor = executor;
+    }
+
+    /**
+     * @param eliteCount number of best individuals taken unchanged into the next generation (default 1)
+     * @return this runner
+     */
+    public EvolutionRunner setEliteCount(int eliteCount)
+    {
+        this.eliteCount = eliteCount;
+        return this;
+    }
+
+    /**
+     * @param tournamentSize number of individuals competing for being a parent (default 3)
+     * @return this runner
+     */
+    public EvolutionRunner setTournamentSize(int tournamentSize)
+    {
+        this.tournamentSize = tournamentSize;
+        return this;
+    }
+
+    /**
+     * @param mergeProbability probability that a value is taken from the second parent (default 0.5)
+     * @return this runner
+     */
+    public EvolutionRunner setMergeProbability(double mergeProbability)
+    {
+        return setCrossover(Crossover.uniform(mergeProbability));
+    }
+
+    /**
+     * @param crossover crossover operator creating a child from two parents (default uniform with 0.5)
+     * @return this runner
+     */
+    public EvolutionRunner setCrossover(Crossover crossover)
+    {
+        this.crossover = crossover;
+        return this;
+    }
+
+    /**
+     * @param mutationProbability probability that a value of a child is mutated (default 0.1)
+     * @return this runner
+     */
+    public EvolutionRunner setMutationProbability(double mutationProbability)
+    {
+        this.mutationProbability = mutationProbability;
+        return this;
+    }
+
+    /**
+     * @param mutationStrength standard deviation of offsets added by mutation (default
+     *            {@link GaussianMutation#DEFAULT_STRENGTH})
+     * @return this runner
+     */
+    public EvolutionRunner setMutationStrength(double mutationStrength)
+    {
+        this.mutationStrength = mutationStrength;
+        return this;
+    }
+
+    /**
+     * @param listener receives the statistics after each generation
+     * @return this runner
+     */
+    public EvolutionRunner setListener(Consumer<GenerationStatistics> listener)
+    {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * @param initial first generation
+     * @param generations number of generations to evaluate (at least 1)
+     * @param seed seed of random streams used for selection, merge and mutation
+     * @return last generation with fitness and statistics
+     */
+    public Result run(List<NeuralNetwork> initial, int generations, long seed)
+    {
+        if (generations < 1)
+        {
+            throw new IllegalArgumentException("Generations must be positive, but is " + generations + ".");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        List<GenerationStatistics> statistics = new ArrayList<>();
+        List<NeuralNetwork> population = initial;
+        for (int generation = 0;; generation++)
+        {
+            long start = System.nanoTime();
+            long[] evaluationNanos = new long[population.size()];
+            double[] fitness = evaluate(population, evaluationNanos);
+            boolean last = generation == generations - 1;
+            List<NeuralNetwork> next = last ? population : breed(population, fitness, random.split());
+            GenerationStatistics generationStatistics = GenerationStatistics.of(generation, fitness, evaluationNanos,
+                            System.nanoTime() - start);
+            statistics.add(generationStatistics);
+            listener.accept(generationStatistics);
+            if (last)
+            {
+                return new Result(population, fitness, statistics);
+            }
+            population = next;
+        }
+    }
+
+    /**
+     * Evaluates all individuals concurrently
+     * @param population individuals
+     * @param evaluationNanos receives the evaluation time per individual
+     * @return fitness per individual
+     */
+    public double[] evaluate(List<NeuralNetwork> population, long[] evaluationNanos)
+    {
+        double[] fitness = new double[population.size()];
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(population.size());
+        for (int i = 0; i < fitness.length; i++)
+        {
+            int index = i;
+            tasks.add(CompletableFuture.runAsync(() -> {
+                long start = System.nanoTime();
+                fitness[index] = evaluator.evaluate(population.get(index));
+                evaluationNanos[index] = System.nanoTime() - start;
+            }, executor));
+        }
+        join(tasks);
+        return fitness;
+    }
+
+    /**
+     * Creates the next generation: the elite is copied, all other individuals are bred concurrently.
+     * @param population current generation
+     * @param fitness fitness per individual of current generation
+     * @param random source of the random streams of the children
+     * @return next generation
+     */
+    public List<NeuralNetwork> breed(List<NeuralNetwork> population, double[] fitness, SplittableRandom random)
+    {
+        NeuralNetwork[] next = new NeuralNetwork[population.size()];
+        int[] elite = selectBest(fitness, Math.min(eliteCount, next.length));
+        for (int i = 0; i < elite.length; i++)
+        {
+            next[i] = population.get(elite[i]).copy();
+        }
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(next.length);
+        for (int i = elite.length; i < next.length; i++)
+        {
+            // split in fixed order, so each child gets the same stream independent of the scheduling
+            SplittableRandom childRandom = random.split();
+            int index = i;
+            tasks.add(CompletableFuture.runAsync(() -> {
+                NeuralNetwork parentA = population.get(selectTournament(fitness, childRandom));
+                NeuralNetwork parentB = population.get(selectTournament(fitness, childRandom));
+                NeuralNetwork child = parentA.merge(parentB, crossover, childRandom);
+                child.mutate(mutationProbability, mutationStrength, childRandom);
+                next[index] = child;
+            }, executor));
+        }
+        join(tasks);
+        return Arrays.asList(next);
+    }
+
+    private int selectTournament(double[] fitness, RandomGenerator random)
+    {
+        int best = random.nextInt(fitness.length);
+        for (int i = 1; i < tournamentSize; i++)
+        {
+            int candidate = random.nextInt(fitness.length);
+            if (fitness[candidate] > fitness[best])
+            {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static int[] selectBest(double[] fitness, int count)
+    {
+        int[] result = new int[count];
+        boolean[] selected = new boolean[fitness.length];
+        for (int r = 0; r < count; r++)
+        {
+            int best = -1;
+            for (int i = 0; i < fitness.length; i++)
+            {
+                if (!selected[i] && (best < 0 || fitness[i] > fitness[best]))
+                {
+                    best = i;
+                }
+            }
+            selected[best] = true;
+            result[r] = best;
+        }
+        return result;
+    }
+
+    private static void join(List<CompletableFuture<Void>> tasks)
+    {
+        try
+        {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        }
+        catch(CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
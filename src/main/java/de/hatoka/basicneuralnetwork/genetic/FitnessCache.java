@@ -0,0 +1,216 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+
+/**
+ * FitnessCache memorizes the fitness of networks by {@link NeuralNetwork#getFingerprint()}. Elite copies and
+ * offspring equal to a parent (e.g. copy without mutation) are not evaluated again.
+ * <ul>
+ * <li>Concurrent requests for the same fingerprint are collapsed, only the first request evaluates the network, the
+ * other requests wait for the result.</li>
+ * <li>The number of entries is bounded, the oldest entries are evicted first. An entry needs about 100 bytes, so the
+ * capacity bounds the memory, too.</li>
+ * <li>Failed evaluations are not cached.</li>
+ * </ul>
+ * The cache relies on the evaluator returning the same fitness for equal networks. Two different networks share a
+ * fingerprint with a probability of about 2^-64.
+ */
+public class FitnessCache implements FitnessEvaluator
+{
+    private record Entry(double fitness, long evaluationNanos)
+    {
+    }
+
+    /**
+     * inserted entry, outdated as soon as the key maps to another future (failed or evicted and inserted again)
+     */
+    private record Insertion(Long key, CompletableFuture<Entry> future)
+    {
+    }
+
+    private final FitnessEvaluator evaluator;
+    private final int capacity;
+    private final ConcurrentHashMap<Long, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+    /**
+     * insertions in order for eviction
+     */
+    private final Queue<Insertion> insertionOrder = new ConcurrentLinkedQueue<>();
+    /**
+     * length of insertion order, includes outdated insertions
+     */
+    private final AtomicInteger insertions = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
+
+    /**
+     * @param evaluator rates the networks not found in cache
+     * @param capacity maximal number of cached fitness values
+     */
+    public FitnessCache(FitnessEvaluator evaluator, int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be positive, but is " + capacity + ".");
+        }
+        this.evaluator = evaluator;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public double evaluate(NeuralNetwork nn)
+    {
+        Long key = nn.getFingerprint();
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = entries.putIfAbsent(key, created);
+        if (existing != null)
+        {
+            hits.increment();
+            Entry entry = join(existing);
+            savedNanos.add(entry.evaluationNanos());
+            return entry.fitness();
+        }
+        misses.increment();
+        insertionOrder.add(new Insertion(key, created));
+        insertions.incrementAndGet();
+        evict();
+        long start = System.nanoTime();
+        try
+        {
+            double fitness = evaluator.evaluate(nn);
+            long nanos = System.nanoTime() - start;
+            evaluationNanos.add(nanos);
+            created.complete(new Entry(fitness, nanos));
+            return fitness;
+        }
+        catch(RuntimeException | Error e)
+        {
+            // the insertion is outdated now and skipped by the eviction
+            entries.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the oldest entries above the capacity. Outdated insertions are dropped too, so failed evaluations can't
+     * grow the insertion order beyond twice the capacity.
+     */
+    private void evict()
+    {
+        while (entries.size() > capacity || insertions.get() > 2L * capacity)
+        {
+            Insertion oldest = insertionOrder.poll();
+            if (oldest == null)
+            {
+                return;
+            }
+            insertions.decrementAndGet();
+            entries.remove(oldest.key(), oldest.future());
+        }
+    }
+
+    private static Entry join(CompletableFuture<Entry> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch(CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return maximal number of cached fitness values
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return number of cached fitness values (including running evaluations)
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return number of requests answered from cache (or by waiting for a running evaluation)
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of evaluations
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return hits / (hits + misses)
+     */
+    public double getHitRate()
+    {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0 : (double)h / total;
+    }
+
+    /**
+     * @return time spent for evaluations in nanoseconds
+     */
+    public long getEvaluationNanos()
+    {
+        return evaluationNanos.sum();
+    }
+
+    /**
+     * @return evaluation time of cache hits (time the evaluations needed when they were done) in nanoseconds
+     */
+    public long getSavedNanos()
+    {
+        return savedNanos.sum();
+    }
+
+    /**
+     * Resets hits, misses and times, the cached values are kept.
+     */
+    public void resetStatistics()
+    {
+        hits.reset();
+        misses.reset();
+        evaluationNanos.reset();
+        savedNanos.reset();
+    }
+
+    /**
+     * Removes all cached values
+     */
+    public void clear()
+    {
+        entries.clear();
+        insertionOrder.clear();
+        insertions.set(0);
+    }
+}
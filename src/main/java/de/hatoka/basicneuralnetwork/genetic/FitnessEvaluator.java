@@ -0,0 +1,18 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+
+/**
+ * FitnessEvaluator rates a network for evolution, a higher fitness is better. The {@link EvolutionRunner} calls the
+ * evaluator concurrently for different networks, so implementations must be thread safe. To get reproducible
+ * evolutions the fitness must only depend on the network.
+ */
+@FunctionalInterface
+public interface FitnessEvaluator
+{
+    /**
+     * @param nn network to rate (must not be modified)
+     * @return fitness of network
+     */
+    double evaluate(NeuralNetwork nn);
+}
@@ -0,0 +1,50 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+/**
+ * Statistics of one evaluated generation
+ * @param generation number of generation (starts with 0)
+ * @param bestFitness highest fitness of generation
+ * @param meanFitness mean fitness of generation
+ * @param wallTimeNanos wall time of evaluation and creation of next generation
+ * @param evaluationNanos sum of evaluation time of all individuals
+ * @param maxEvaluationNanos longest evaluation time of one individual
+ * @param individuals number of evaluated individuals
+ */
+public record GenerationStatistics(int generation, double bestFitness, double meanFitness, long wallTimeNanos,
+                long evaluationNanos, long maxEvaluationNanos, int individuals)
+{
+    /**
+     * @param generation number of generation (starts with 0)
+     * @param fitness fitness per individual
+     * @param evaluationNanos evaluation time per individual
+     * @param wallTimeNanos wall time of evaluation and creation of next generation
+     * @return statistics of generation
+     */
+    public static GenerationStatistics of(int generation, double[] fitness, long[] evaluationNanos, long wallTimeNanos)
+    {
+        double best = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (double f : fitness)
+        {
+            best = Math.max(best, f);
+            sum += f;
+        }
+        long evaluationSum = 0;
+        long evaluationMax = 0;
+        for (long nanos : evaluationNanos)
+        {
+            evaluationSum += nanos;
+            evaluationMax = Math.max(evaluationMax, nanos);
+        }
+        return new GenerationStatistics(generation, best, fitness.length == 0 ? 0 : sum / fitness.length,
+                        wallTimeNanos, evaluationSum, evaluationMax, fitness.length);
+    }
+
+    /**
+     * @return mean evaluation time per individual
+     */
+    public long getMeanEvaluationNanos()
+    {
+        return individuals == 0 ? 0 : evaluationNanos / individuals;
+    }
+}
@@ -0,0 +1,390 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunction;
+import de.hatoka.basicneuralnetwork.utilities.Crossover;
+import de.hatoka.basicneuralnetwork.utilities.GaussianMutation;
+
+/**
+ * Population stores the genomes (weights and biases) of networks with the same dimensions in one packed parameter
+ * array. Each genome uses the {@link ParameterLayout} of the networks, genome <code>i</code> starts at
+ * <code>i * genomeSize</code>. Mutation, crossover and selection run as passes over the primitive array, no network
+ * objects are necessary. {@link Individual} provides a view on one genome with the known guess API.
+ * <p>
+ * A population is not thread safe.
+ */
+public class Population
+{
+    /**
+     * Creates a population with random weights and biases between -1 and 1.
+     * @param template network defining dimensions and activation function of all individuals
+     * @param size number of individuals (at least 1)
+     * @param random source of random values
+     * @return population
+     * @throws ArithmeticException if the genomes of all individuals exceed the size of an array
+     */
+    public static Population create(NeuralNetwork template, int size, RandomGenerator random)
+    {
+        Population result = new Population(template, size);
+        for (int i = 0; i < result.genomes.length; i++)
+        {
+            result.genomes[i] = random.nextDouble(-1, 1);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a population from existing networks.
+     * @param networks networks with same dimensions and activation function (at least one)
+     * @return population
+     * @throws ArithmeticException if the genomes of all individuals exceed the size of an array
+     */
+    public static Population of(List<NeuralNetwork> networks)
+    {
+        if (networks.isEmpty())
+        {
+            throw new IllegalArgumentException("Population needs at least one network.");
+        }
+        NeuralNetwork template = networks.get(0);
+        Population result = new Population(template, networks.size());
+        for (int i = 0; i < networks.size(); i++)
+        {
+            NeuralNetwork nn = networks.get(i);
+            if (nn.getInputNodes() != template.getInputNodes() || nn.getOutputNodes() != template.getOutputNodes()
+                            || !Arrays.equals(nn.getConfiguration().getHiddenLayers(),
+                                            template.getConfiguration().getHiddenLayers()))
+            {
+                throw new WrongDimensionException();
+            }
+            if (nn.getActivationFunction() != template.getActivationFunction())
+            {
+                throw new IllegalArgumentException("Individuals of population must use the same activation function.");
+            }
+            nn.copyParameters(result.genomes, result.getOffset(i));
+        }
+        return result;
+    }
+
+    private final NeuralNetwork template;
+    private final ParameterLayout layout;
+    private final ActivationFunction function;
+    private final int size;
+    private final int genomeSize;
+    /**
+     * parameters of all individuals
+     */
+    private double[] genomes;
+    /**
+     * buffer for the next generation (swapped with genomes)
+     */
+    private double[] offspring;
+    private double mutationStrength = GaussianMutation.DEFAULT_STRENGTH;
+
+    private Population(NeuralNetwork template, int size)
+    {
+        if (size < 1)
+        {
+            throw new IllegalArgumentException("Size must be positive, but is " + size + ".");
+        }
+        this.template = template;
+        this.layout = template.getParameterLayout();
+        this.function = template.getActivationFunction().getFunction();
+        this.size = size;
+        this.genomeSize = layout.getParameterCount();
+        // all offsets fit into int afterwards
+        int length = Math.multiplyExact(size, genomeSize);
+        this.genomes = new double[length];
+        this.offspring = new double[length];
+    }
+
+    /**
+     * @return number of individuals
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return layout of one genome
+     */
+    public ParameterLayout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * @return number of parameters of one genome
+     */
+    public int getGenomeSize()
+    {
+        return genomeSize;
+    }
+
+    /**
+     * @param mutationStrength standard deviation of offsets added by mutation
+     * @return this population
+     */
+    public Population setMutationStrength(double mutationStrength)
+    {
+        this.mutationStrength = mutationStrength;
+        return this;
+    }
+
+    /**
+     * @return packed parameters of all individuals (the array is replaced by {@link #evolve})
+     */
+    public double[] getGenomes()
+    {
+        return genomes;
+    }
+
+    /**
+     * @param individual index of individual
+     * @return position of first parameter of individual in {@link #getGenomes()}
+     */
+    public int getOffset(int individual)
+    {
+        return individual * genomeSize;
+    }
+
+    /**
+     * @param individual index of individual
+     * @return view on individual
+     */
+    public Individual get(int individual)
+    {
+        return new Individual(individual);
+    }
+
+    /**
+     * Applies gaussian mutation to all individuals.
+     * @param probability probability that a parameter is mutated
+     * @param random source of random values
+     */
+    public void mutate(double probability, RandomGenerator random)
+    {
+        new GaussianMutation(probability, mutationStrength).mutate(genomes, 0, genomes.length, random);
+    }
+
+    /**
+     * Applies gaussian mutation to one individual.
+     * @param individual index of individual
+     * @param probability probability that a parameter is mutated
+     * @param random source of random values
+     */
+    public void mutate(int individual, double probability, RandomGenerator random)
+    {
+        int offset = getOffset(individual);
+        new GaussianMutation(probability, mutationStrength).mutate(genomes, offset, offset + genomeSize, random);
+    }
+
+    /**
+     * Uniform crossover of two individuals into a third one (child may be one of the parents).
+     * @param parentA index of first parent
+     * @param parentB index of second parent
+     * @param child index of individual receiving the result
+     * @param probability probability that a parameter is taken from parentB
+     * @param random source of random values
+     */
+    public void crossover(int parentA, int parentB, int child, double probability, RandomGenerator random)
+    {
+        crossover(parentA, parentB, child, Crossover.uniform(probability), random);
+    }
+
+    /**
+     * Crossover of two individuals into a third one (child may be one of the parents).
+     * @param parentA index of first parent
+     * @param parentB index of second parent
+     * @param child index of individual receiving the result
+     * @param crossover crossover operator
+     * @param random source of random values
+     */
+    public void crossover(int parentA, int parentB, int child, Crossover crossover, RandomGenerator random)
+    {
+        crossover.apply(genomes, getOffset(parentA), genomes, getOffset(parentB), genomes, getOffset(child), layout,
+                        random);
+    }
+
+    /**
+     * Tournament selection
+     * @param fitness fitness per individual (higher is better)
+     * @param tournamentSize number of randomly chosen individuals per tournament
+     * @param random source of random values
+     * @return index of the best individual of one tournament
+     */
+    public int selectTournament(double[] fitness, int tournamentSize, RandomGenerator random)
+    {
+        int best = random.nextInt(size);
+        for (int i = 1; i < tournamentSize; i++)
+        {
+            int candidate = random.nextInt(size);
+            if (fitness[candidate] > fitness[best])
+            {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param fitness fitness per individual (higher is better)
+     * @param count number of requested individuals
+     * @return indices of the best individuals, best first
+     */
+    public int[] selectBest(double[] fitness, int count)
+    {
+        int[] result = new int[Math.min(count, size)];
+        boolean[] selected = new boolean[size];
+        for (int r = 0; r < result.length; r++)
+        {
+            int best = -1;
+            for (int i = 0; i < size; i++)
+            {
+                if (!selected[i] && (best < 0 || fitness[i] > fitness[best]))
+                {
+                    best = i;
+                }
+            }
+            selected[best] = true;
+            result[r] = best;
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the population by the next generation. The elite is copied unchanged to the first positions, all
+     * other individuals are created by uniform crossover of two tournament winners followed by mutation.
+     * @param fitness fitness per individual (higher is better)
+     * @param eliteCount number of best individuals kept unchanged
+     * @param tournamentSize number of randomly chosen individuals per tournament
+     * @param crossoverProbability probability that a parameter is taken from the second parent
+     * @param mutationProbability probability that a parameter of a child is mutated
+     * @param random source of random values
+     */
+    public void evolve(double[] fitness, int eliteCount, int tournamentSize, double crossoverProbability,
+                    double mutationProbability, RandomGenerator random)
+    {
+        evolve(fitness, eliteCount, tournamentSize, Crossover.uniform(crossoverProbability), mutationProbability,
+                        random);
+    }
+
+    /**
+     * Replaces the population by the next generation. The elite is copied unchanged to the first positions, all
+     * other individuals are created by crossover of two tournament winners followed by mutation.
+     * @param fitness fitness per individual (higher is better)
+     * @param eliteCount number of best individuals kept unchanged
+     * @param tournamentSize number of randomly chosen individuals per tournament
+     * @param crossover crossover operator creating a child from two parents
+     * @param mutationProbability probability that a parameter of a child is mutated
+     * @param random source of random values
+     */
+    public void evolve(double[] fitness, int eliteCount, int tournamentSize, Crossover crossover,
+                    double mutationProbability, RandomGenerator random)
+    {
+        if (fitness.length != size)
+        {
+            throw new WrongDimensionException(fitness.length, size, "Fitness");
+        }
+        GaussianMutation mutation = new GaussianMutation(mutationProbability, mutationStrength);
+        int[] elite = selectBest(fitness, eliteCount);
+        for (int i = 0; i < elite.length; i++)
+        {
+            System.arraycopy(genomes, getOffset(elite[i]), offspring, getOffset(i), genomeSize);
+        }
+        for (int i = elite.length; i < size; i++)
+        {
+            int parentA = selectTournament(fitness, tournamentSize, random);
+            int parentB = selectTournament(fitness, tournamentSize, random);
+            int offset = getOffset(i);
+            crossover.apply(genomes, getOffset(parentA), genomes, getOffset(parentB), offspring, offset, layout,
+                            random);
+            mutation.mutate(offspring, offset, offset + genomeSize, random);
+        }
+        double[] previous = genomes;
+        genomes = offspring;
+        offspring = previous;
+    }
+
+    /**
+     * Forward propagation with parameters stored in a flat array
+     * @param parameters array containing the parameters
+     * @param offset position of first parameter
+     * @param layout layout of parameters
+     * @param function activation function
+     * @param input array of input values
+     * @return array of output values
+     */
+    static double[] guess(double[] parameters, int offset, ParameterLayout layout, ActivationFunction function,
+                    double[] input)
+    {
+        double[] current = input;
+        for (int layer = 0; layer < layout.getLayers(); layer++)
+        {
+            int rows = layout.getRows(layer);
+            int cols = layout.getColumns(layer);
+            int weight = offset + layout.getWeightsOffset(layer);
+            int bias = offset + layout.getBiasesOffset(layer);
+            double[] next = new double[rows];
+            for (int r = 0; r < rows; r++)
+            {
+                double total = 0;
+                for (int c = 0; c < cols; c++)
+                {
+                    total += parameters[weight++] * current[c];
+                }
+                next[r] = function.activate(total + parameters[bias + r]);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * View on one individual of the population. The view reads the current parameters at the position of the
+     * individual.
+     */
+    public class Individual
+    {
+        private final int index;
+
+        private Individual(int index)
+        {
+            this.index = index;
+        }
+
+        public int getIndex()
+        {
+            return index;
+        }
+
+        /**
+         * @param input array of input values for the network
+         * @return array of output values calculated (guess) by the individual via forward propagation
+         */
+        public double[] guess(double[] input)
+        {
+            if (input.length != template.getInputNodes())
+            {
+                throw new WrongDimensionException(input.length, template.getInputNodes(), "Input");
+            }
+            return Population.guess(genomes, getOffset(index), layout, function, input);
+        }
+
+        /**
+         * @return new network with the parameters of the individual and the configuration of the population template
+         */
+        public NeuralNetwork toNetwork()
+        {
+            NeuralNetwork result = template.copy();
+            result.setParameters(genomes, getOffset(index));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package de.hatoka.basicneuralnetwork.inference;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunction;
+
+/**
+ * ActivationCache evaluates networks on a fixed dataset and keeps the activations of the layers for all inputs. The
+ * activations of a layer are identified by the {@link NeuralNetwork#getLayerStamp(int) stamps} of the layer and all
+ * layers before. An offspring sharing the leading layers with an evaluated network (e.g. mutation confined to later
+ * layers or layerwise crossover) starts with the cached activations of the last unchanged layer.
+ * <p>
+ * The cache is bounded by the memory of the cached activations, least recently used entries are evicted first. It's
+ * thread safe, so it can be used by a {@link de.hatoka.basicneuralnetwork.genetic.FitnessEvaluator}.
+ */
+public class ActivationCache
+{
+    /**
+     * stamps of the layers leading to the cached activations
+     */
+    private static final class Key
+    {
+        private final long[] stamps;
+        private final int hash;
+
+        private Key(long[] stamps)
+        {
+            this.stamps = stamps;
+            this.hash = Arrays.hashCode(stamps);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Key other && Arrays.equals(stamps, other.stamps);
+        }
+    }
+
+    private final double[][] inputs;
+    private final int inputNodes;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, double[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes = 0;
+    private long reusedLayers = 0;
+    private long calculatedLayers = 0;
+
+    /**
+     * @param inputs dataset (all inputs have the same length)
+     * @param maxBytes maximal memory of cached activations
+     */
+    public ActivationCache(double[][] inputs, long maxBytes)
+    {
+        this.inputs = inputs;
+        this.inputNodes = inputs.length == 0 ? 0 : inputs[0].length;
+        this.maxBytes = maxBytes;
+        for (double[] input : inputs)
+        {
+            if (input.length != inputNodes)
+            {
+                throw new WrongDimensionException(input.length, inputNodes, "Input");
+            }
+        }
+    }
+
+    /**
+     * @param nn network to evaluate
+     * @return output values of the network per input of the dataset
+     */
+    public double[][] guess(NeuralNetwork nn)
+    {
+        if (nn.getInputNodes() != inputNodes)
+        {
+            throw new WrongDimensionException(inputNodes, nn.getInputNodes(), "Input");
+        }
+        ParameterLayout layout = nn.getParameterLayout();
+        int layers = layout.getLayers();
+        Key[] keys = new Key[layers];
+        long[] stamps = new long[layers];
+        for (int layer = 0; layer < layers; layer++)
+        {
+            stamps[layer] = nn.getLayerStamp(layer);
+            keys[layer] = new Key(Arrays.copyOf(stamps, layer + 1));
+        }
+        // find the deepest cached layer
+        int layer = layers - 1;
+        double[] activations = null;
+        while (layer >= 0 && (activations = get(keys[layer])) == null)
+        {
+            layer--;
+        }
+        if (activations == null)
+        {
+            activations = flatInputs();
+        }
+        int first = layer + 1;
+        if (first < layers)
+        {
+            double[] parameters = new double[layout.getParameterCount()];
+            nn.copyParameters(parameters, 0);
+            ActivationFunction function = nn.getActivationFunction().getFunction();
+            for (layer = first; layer < layers; layer++)
+            {
+                activations = calculateLayer(parameters, layout, layer, function, activations);
+                put(keys[layer], activations);
+            }
+        }
+        synchronized (this)
+        {
+            reusedLayers += first;
+            calculatedLayers += layers - first;
+        }
+        int outputNodes = nn.getOutputNodes();
+        double[][] result = new double[inputs.length][];
+        for (int sample = 0; sample < inputs.length; sample++)
+        {
+            result[sample] = Arrays.copyOfRange(activations, sample * outputNodes, (sample + 1) * outputNodes);
+        }
+        return result;
+    }
+
+    private double[] flatInputs()
+    {
+        double[] result = new double[inputs.length * inputNodes];
+        for (int sample = 0; sample < inputs.length; sample++)
+        {
+            System.arraycopy(inputs[sample], 0, result, sample * inputNodes, inputNodes);
+        }
+        return result;
+    }
+
+    /**
+     * @param parameters parameters of network
+     * @param layout layout of parameters
+     * @param layer layer to calculate
+     * @param function activation function
+     * @param input activations of previous layer (sample by sample)
+     * @return activations of layer (sample by sample)
+     */
+    private double[] calculateLayer(double[] parameters, ParameterLayout layout, int layer,
+                    ActivationFunction function, double[] input)
+    {
+        int rows = layout.getRows(layer);
+        int cols = layout.getColumns(layer);
+        int weights = layout.getWeightsOffset(layer);
+        int biases = layout.getBiasesOffset(layer);
+        double[] result = new double[inputs.length * rows];
+        for (int sample = 0; sample < inputs.length; sample++)
+        {
+            int in = sample * cols;
+            int out = sample * rows;
+            for (int r = 0; r < rows; r++)
+            {
+                int weight = weights + r * cols;
+                double total = 0;
+                for (int c = 0; c < cols; c++)
+                {
+                    total += parameters[weight + c] * input[in + c];
+                }
+                result[out + r] = function.activate(total + parameters[biases + r]);
+            }
+        }
+        return result;
+    }
+
+    private synchronized double[] get(Key key)
+    {
+        return entries.get(key);
+    }
+
+    private synchronized void put(Key key, double[] activations)
+    {
+        long bytes = sizeOf(activations);
+        if (bytes > maxBytes)
+        {
+            return;
+        }
+        double[] previous = entries.put(key, activations);
+        usedBytes += bytes - (previous == null ? 0 : sizeOf(previous));
+        Iterator<Map.Entry<Key, double[]>> eldest = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext())
+        {
+            usedBytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static long sizeOf(double[] activations)
+    {
+        return (long)activations.length * Double.BYTES;
+    }
+
+    /**
+     * @return memory of cached activations
+     */
+    public synchronized long getUsedBytes()
+    {
+        return usedBytes;
+    }
+
+    /**
+     * @return number of cached layer activations
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return number of layers taken from cache
+     */
+    public synchronized long getReusedLayers()
+    {
+        return reusedLayers;
+    }
+
+    /**
+     * @return number of calculated layers
+     */
+    public synchronized long getCalculatedLayers()
+    {
+        return calculatedLayers;
+    }
+}
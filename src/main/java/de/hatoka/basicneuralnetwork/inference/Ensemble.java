@@ -0,0 +1,238 @@
+package de.hatoka.basicneuralnetwork.inference;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.hatoka.basicneuralnetwork.NetworkConfiguration;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunction;
+
+/**
+ * Ensemble evaluates several networks with the same dimensions and activation function on the same input in one pass.
+ * The first layer weights of all members are stacked to one tall matrix, so the input is multiplied only once. The
+ * deeper layers are stored member by member in one array per layer and evaluated batched for all members.
+ * <p>
+ * The ensemble is a snapshot of the members, later changes (e.g. training) of the members are not reflected.
+ */
+public class Ensemble
+{
+    private final int members;
+    private final int inputNodes;
+    private final int outputNodes;
+    /**
+     * number of nodes per layer (layerNodes[0] is the input)
+     */
+    private final int[] layerNodes;
+    /**
+     * weights[layer] contains the row major weights of all members, member by member
+     */
+    private final double[][] weights;
+    /**
+     * biases[layer] contains the biases of all members, member by member
+     */
+    private final double[][] biases;
+    private final ActivationFunction function;
+
+    /**
+     * @param networks members of ensemble
+     */
+    public Ensemble(NeuralNetwork... networks)
+    {
+        this(List.of(networks));
+    }
+
+    /**
+     * @param networks members of ensemble
+     */
+    public Ensemble(List<NeuralNetwork> networks)
+    {
+        if (networks.isEmpty())
+        {
+            throw new IllegalArgumentException("Ensemble needs at least one network.");
+        }
+        NetworkConfiguration config = networks.get(0).getConfiguration();
+        for (NeuralNetwork nn : networks)
+        {
+            NetworkConfiguration other = nn.getConfiguration();
+            if (other.getInputNodes() != config.getInputNodes() || other.getOutputNodes() != config.getOutputNodes()
+                            || !Arrays.equals(other.getHiddenLayers(), config.getHiddenLayers()))
+            {
+                throw new WrongDimensionException();
+            }
+            if (other.getActivationFunction() != config.getActivationFunction())
+            {
+                throw new IllegalArgumentException("Members of ensemble must use the same activation function.");
+            }
+        }
+        this.members = networks.size();
+        this.inputNodes = config.getInputNodes();
+        this.outputNodes = config.getOutputNodes();
+        this.function = config.getActivationFunction().getFunction();
+        int layers = config.getHiddenLayers().length + 1;
+        this.layerNodes = new int[layers + 1];
+        layerNodes[0] = inputNodes;
+        System.arraycopy(config.getHiddenLayers(), 0, layerNodes, 1, layers - 1);
+        layerNodes[layers] = outputNodes;
+        this.weights = new double[layers][];
+        this.biases = new double[layers][];
+        for (int layer = 0; layer < layers; layer++)
+        {
+            weights[layer] = new double[members * layerNodes[layer + 1] * layerNodes[layer]];
+            biases[layer] = new double[members * layerNodes[layer + 1]];
+        }
+        // read the parameters without touching the matrices (they may be shared with copies of the networks)
+        ParameterLayout layout = ParameterLayout.of(config);
+        double[] parameters = new double[layout.getParameterCount()];
+        for (int m = 0; m < members; m++)
+        {
+            networks.get(m).copyParameters(parameters, 0);
+            for (int layer = 0; layer < layers; layer++)
+            {
+                int weightSize = layout.getBiasesOffset(layer) - layout.getWeightsOffset(layer);
+                int biasSize = layout.getLayerEnd(layer) - layout.getBiasesOffset(layer);
+                System.arraycopy(parameters, layout.getWeightsOffset(layer), weights[layer], m * weightSize,
+                                weightSize);
+                System.arraycopy(parameters, layout.getBiasesOffset(layer), biases[layer], m * biasSize, biasSize);
+            }
+        }
+    }
+
+    /**
+     * @return number of members
+     */
+    public int size()
+    {
+        return members;
+    }
+
+    /**
+     * @param input array of input values for the networks
+     * @return output values of all members (member by member)
+     */
+    public double[][] guessAll(double[] input)
+    {
+        double[] outputs = forward(input);
+        double[][] result = new double[members][];
+        for (int m = 0; m < members; m++)
+        {
+            result[m] = Arrays.copyOfRange(outputs, m * outputNodes, (m + 1) * outputNodes);
+        }
+        return result;
+    }
+
+    /**
+     * @param input array of input values for the networks
+     * @return mean of output values of all members
+     */
+    public double[] guessMean(double[] input)
+    {
+        double[] outputs = forward(input);
+        double[] result = new double[outputNodes];
+        for (int m = 0; m < members; m++)
+        {
+            for (int o = 0; o < outputNodes; o++)
+            {
+                result[o] += outputs[m * outputNodes + o];
+            }
+        }
+        for (int o = 0; o < outputNodes; o++)
+        {
+            result[o] /= members;
+        }
+        return result;
+    }
+
+    /**
+     * Each member votes for the output with the highest value.
+     * @param input array of input values for the networks
+     * @return number of votes per output
+     */
+    public int[] guessVotes(double[] input)
+    {
+        double[] outputs = forward(input);
+        int[] votes = new int[outputNodes];
+        for (int m = 0; m < members; m++)
+        {
+            int offset = m * outputNodes;
+            int best = 0;
+            for (int o = 1; o < outputNodes; o++)
+            {
+                if (outputs[offset + o] > outputs[offset + best])
+                {
+                    best = o;
+                }
+            }
+            votes[best]++;
+        }
+        return votes;
+    }
+
+    /**
+     * @param input array of input values for the networks
+     * @return output with most votes (the lower index wins a tie)
+     */
+    public int guessVote(double[] input)
+    {
+        int[] votes = guessVotes(input);
+        int result = 0;
+        for (int o = 1; o < outputNodes; o++)
+        {
+            if (votes[o] > votes[result])
+            {
+                result = o;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param input input of all networks
+     * @return outputs of all members (member by member)
+     */
+    private double[] forward(double[] input)
+    {
+        if (input.length != inputNodes)
+        {
+            throw new WrongDimensionException(input.length, inputNodes, "Input");
+        }
+        // first layer: one product of the stacked weights with the shared input
+        int rows = members * layerNodes[1];
+        double[] current = new double[rows];
+        double[] stacked = weights[0];
+        for (int r = 0, index = 0; r < rows; r++)
+        {
+            double total = 0;
+            for (int c = 0; c < inputNodes; c++)
+            {
+                total += stacked[index++] * input[c];
+            }
+            current[r] = function.activate(total + biases[0][r]);
+        }
+        // deeper layers: each member multiplies its own block with its own activations
+        for (int layer = 1; layer < weights.length; layer++)
+        {
+            int inputs = layerNodes[layer];
+            int outputs = layerNodes[layer + 1];
+            double[] next = new double[members * outputs];
+            double[] layerWeights = weights[layer];
+            double[] layerBiases = biases[layer];
+            for (int m = 0, index = 0; m < members; m++)
+            {
+                int inputOffset = m * inputs;
+                for (int r = m * outputs; r < (m + 1) * outputs; r++)
+                {
+                    double total = 0;
+                    for (int c = 0; c < inputs; c++)
+                    {
+                        total += layerWeights[index++] * current[inputOffset + c];
+                    }
+                    next[r] = function.activate(total + layerBiases[r]);
+                }
+            }
+            current = next;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,231 @@
+package de.hatoka.basicneuralnetwork.inference;
+
+import java.util.Arrays;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+/**
+ * GuessCache memorizes the results of {@link NeuralNetwork#guess(double[])} for repeated inputs.
+ * <ul>
+ * <li>exact: inputs are compared by their bits</li>
+ * <li>quantized: inputs are rounded to a multiple of the quantum, the network guesses the rounded input. So all inputs
+ * of the same quantization cell share one result.</li>
+ * </ul>
+ * Keys and results are stored in primitive arrays of an open addressing table. A lookup probes a small window of slots,
+ * if the window is full the least recently used slot of the window is replaced. All entries become invalid as soon as
+ * the network is trained, mutated or gets new weights or biases (see {@link NeuralNetwork#getModificationCount()}).
+ * The cache is not thread safe.
+ */
+public class GuessCache
+{
+    private static final int PROBE_WINDOW = 8;
+    private static final long EMPTY = -1L;
+
+    /**
+     * @param nn network
+     * @param capacity maximal number of cached results (rounded up to a power of two)
+     * @return cache comparing inputs exactly
+     */
+    public static GuessCache exact(NeuralNetwork nn, int capacity)
+    {
+        return new GuessCache(nn, capacity, 0);
+    }
+
+    /**
+     * @param nn network
+     * @param capacity maximal number of cached results (rounded up to a power of two)
+     * @param quantum size of quantization cell per input value
+     * @return cache comparing quantized inputs
+     */
+    public static GuessCache quantized(NeuralNetwork nn, int capacity, double quantum)
+    {
+        if (!(quantum > 0))
+        {
+            throw new IllegalArgumentException("Quantum must be positive, but is " + quantum);
+        }
+        return new GuessCache(nn, capacity, quantum);
+    }
+
+    private final NeuralNetwork nn;
+    private final int inputNodes;
+    private final int outputNodes;
+    private final double quantum;
+    private final int mask;
+    private final long[] keys;
+    private final double[] results;
+    /**
+     * modification count of network at time the slot was filled, {@link #EMPTY} for empty slots
+     */
+    private final long[] versions;
+    private final long[] lastUsed;
+    private final long[] key;
+    private final double[] quantizedInput;
+    private long tick = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private GuessCache(NeuralNetwork nn, int capacity, double quantum)
+    {
+        this.nn = nn;
+        this.inputNodes = nn.getInputNodes();
+        this.outputNodes = nn.getOutputNodes();
+        this.quantum = quantum;
+        int slots = Integer.highestOneBit(Math.max(PROBE_WINDOW, capacity) - 1) << 1;
+        this.mask = slots - 1;
+        this.keys = new long[slots * inputNodes];
+        this.results = new double[slots * outputNodes];
+        this.versions = new long[slots];
+        this.lastUsed = new long[slots];
+        Arrays.fill(versions, EMPTY);
+        this.key = new long[inputNodes];
+        this.quantizedInput = new double[inputNodes];
+    }
+
+    /**
+     * @param input array of input values for the network
+     * @return array of output values (cached or calculated by network)
+     */
+    public double[] guess(double[] input)
+    {
+        return guess(input, new double[outputNodes]);
+    }
+
+    /**
+     * @param input array of input values for the network
+     * @param output array receiving the output values (cached or calculated by network)
+     * @return output
+     */
+    public double[] guess(double[] input, double[] output)
+    {
+        if (input.length != inputNodes)
+        {
+            throw new WrongDimensionException(input.length, inputNodes, "Input");
+        }
+        if (output.length != outputNodes)
+        {
+            throw new WrongDimensionException(output.length, outputNodes, "Output");
+        }
+        long version = nn.getModificationCount();
+        long hash = createKey(input);
+        int home = (int)hash & mask;
+        int victim = home;
+        for (int probe = 0; probe < PROBE_WINDOW; probe++)
+        {
+            int slot = (home + probe) & mask;
+            if (versions[slot] != version)
+            {
+                // empty or outdated slot terminates the probe sequence
+                victim = slot;
+                break;
+            }
+            if (matches(slot))
+            {
+                hits++;
+                lastUsed[slot] = ++tick;
+                System.arraycopy(results, slot * outputNodes, output, 0, outputNodes);
+                return output;
+            }
+            if (lastUsed[slot] < lastUsed[victim])
+            {
+                victim = slot;
+            }
+        }
+        misses++;
+        if (versions[victim] == version)
+        {
+            evictions++;
+        }
+        double[] result = nn.guess(quantum > 0 ? quantizedInput : input);
+        System.arraycopy(key, 0, keys, victim * inputNodes, inputNodes);
+        System.arraycopy(result, 0, results, victim * outputNodes, outputNodes);
+        versions[victim] = version;
+        lastUsed[victim] = ++tick;
+        System.arraycopy(result, 0, output, 0, outputNodes);
+        return output;
+    }
+
+    /**
+     * Fills {@link #key} (and {@link #quantizedInput}) for the given input
+     * @param input input of network
+     * @return hash of key
+     */
+    private long createKey(double[] input)
+    {
+        long hash = 0;
+        for (int i = 0; i < inputNodes; i++)
+        {
+            if (quantum > 0)
+            {
+                key[i] = Math.round(input[i] / quantum);
+                quantizedInput[i] = key[i] * quantum;
+            }
+            else
+            {
+                key[i] = Double.doubleToLongBits(input[i]);
+            }
+            hash = (hash + key[i]) * 0x9E3779B97F4A7C15L;
+        }
+        // finalizer of MurmurHash3 spreads the bits to the lower part used as index
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private boolean matches(int slot)
+    {
+        int offset = slot * inputNodes;
+        for (int i = 0; i < inputNodes; i++)
+        {
+            if (keys[offset + i] != key[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of slots (maximal number of cached results)
+     */
+    public int getCapacity()
+    {
+        return versions.length;
+    }
+
+    public long getHits()
+    {
+        return hits;
+    }
+
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * @return hits / (hits + misses)
+     */
+    public double getHitRate()
+    {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double)hits / requests;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters
+     */
+    public void resetStatistics()
+    {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+}
@@ -0,0 +1,49 @@
+package de.hatoka.basicneuralnetwork.optimizers;
+
+/**
+ * Adam keeps moving averages of gradients (first moment) and squared gradients (second moment) with bias correction:
+ * <code>step = learningRate * m / (1 - beta1^t) / (sqrt(v / (1 - beta2^t)) + epsilon)</code>
+ */
+public class AdamOptimizer implements Optimizer
+{
+    private final double beta1;
+    private final double beta2;
+    private final double epsilon;
+
+    /**
+     * @param beta1 part of first moment kept per step (e.g. 0.9)
+     * @param beta2 part of second moment kept per step (e.g. 0.999)
+     * @param epsilon avoids division by zero (e.g. 1e-8)
+     */
+    public AdamOptimizer(double beta1, double beta2, double epsilon)
+    {
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public int getStateSize()
+    {
+        return 2;
+    }
+
+    @Override
+    public void update(double[] values, int count, double learningRate, OptimizerState state, int offset)
+    {
+        double[] first = state.getValues(0);
+        double[] second = state.getValues(1);
+        long steps = Math.max(1, state.getSteps());
+        double correction1 = 1 - Math.pow(beta1, steps);
+        double correction2 = 1 - Math.pow(beta2, steps);
+        for (int i = 0; i < count; i++)
+        {
+            double gradient = values[i];
+            double m = beta1 * first[offset + i] + (1 - beta1) * gradient;
+            double v = beta2 * second[offset + i] + (1 - beta2) * gradient * gradient;
+            first[offset + i] = m;
+            second[offset + i] = v;
+            values[i] = learningRate * (m / correction1) / (Math.sqrt(v / correction2) + epsilon);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package de.hatoka.basicneuralnetwork.optimizers;
+
+/**
+ * Gradient descent with momentum: velocity = momentum * velocity + learningRate * gradient. The step is the velocity
+ * or with Nesterov momentum <code>momentum * velocity + learningRate * gradient</code> (look ahead).
+ */
+public class MomentumOptimizer implements Optimizer
+{
+    private final double momentum;
+    private final boolean nesterov;
+
+    /**
+     * @param momentum part of velocity kept per step (e.g. 0.9)
+     * @param nesterov true for Nesterov momentum
+     */
+    public MomentumOptimizer(double momentum, boolean nesterov)
+    {
+        this.momentum = momentum;
+        this.nesterov = nesterov;
+    }
+
+    @Override
+    public int getStateSize()
+    {
+        return 1;
+    }
+
+    @Override
+    public void update(double[] values, int count, double learningRate, OptimizerState state, int offset)
+    {
+        double[] velocity = state.getValues(0);
+        for (int i = 0; i < count; i++)
+        {
+            double step = learningRate * values[i];
+            double v = momentum * velocity[offset + i] + step;
+            velocity[offset + i] = v;
+            values[i] = nesterov ? momentum * v + step : v;
+        }
+    }
+}
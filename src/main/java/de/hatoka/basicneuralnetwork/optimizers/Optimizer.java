@@ -0,0 +1,24 @@
+package de.hatoka.basicneuralnetwork.optimizers;
+
+/**
+ * Optimizer turns the gradient of the parameters into the steps added to the parameters. State kept per parameter
+ * (e.g. velocity or moments) is stored in an {@link OptimizerState}, which is allocated once per network and updated
+ * in place.
+ */
+public interface Optimizer
+{
+    /**
+     * @return number of state values per parameter
+     */
+    int getStateSize();
+
+    /**
+     * Replaces the gradients by the steps added to the parameters.
+     * @param values gradients (direction reducing the error, without learning rate), replaced by the steps
+     * @param count number of values
+     * @param learningRate learning rate of network
+     * @param state state of all parameters
+     * @param offset position of first value in the parameter layout of the network
+     */
+    void update(double[] values, int count, double learningRate, OptimizerState state, int offset);
+}
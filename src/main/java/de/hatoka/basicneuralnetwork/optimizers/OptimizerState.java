@@ -0,0 +1,111 @@
+package de.hatoka.basicneuralnetwork.optimizers;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * State of an {@link Optimizer}: a number of values per parameter (positions of the parameter layout of the network)
+ * and the number of steps. It's serialized with the network, so training can be resumed.
+ */
+public class OptimizerState
+{
+    @Expose(serialize = true, deserialize = true)
+    private long steps;
+    @Expose(serialize = true, deserialize = true)
+    private final double[][] values;
+
+    /**
+     * @param stateSize number of values per parameter
+     * @param parameterCount number of parameters
+     */
+    public OptimizerState(int stateSize, int parameterCount)
+    {
+        this(stateSize, parameterCount, 0);
+    }
+
+    /**
+     * @param stateSize number of values per parameter
+     * @param parameterCount number of parameters
+     * @param steps number of training steps done (e.g. of a loaded state)
+     */
+    public OptimizerState(int stateSize, int parameterCount, long steps)
+    {
+        this.steps = steps;
+        this.values = new double[stateSize][parameterCount];
+    }
+
+    private OptimizerState(OptimizerState state)
+    {
+        this.steps = state.steps;
+        this.values = new double[state.values.length][];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = state.values[i].clone();
+        }
+    }
+
+    /**
+     * @return independent copy of the state
+     */
+    public OptimizerState copy()
+    {
+        return new OptimizerState(this);
+    }
+
+    /**
+     * Replaces steps and values by the ones of the given state, e.g. to keep a snapshot without allocation.
+     * @param source state with same dimensions
+     */
+    public void copyFrom(OptimizerState source)
+    {
+        if (source.getStateSize() != getStateSize() || source.getParameterCount() != getParameterCount())
+        {
+            throw new IllegalArgumentException("Optimizer state dimensions don't match.");
+        }
+        steps = source.steps;
+        for (int i = 0; i < values.length; i++)
+        {
+            System.arraycopy(source.values[i], 0, values[i], 0, values[i].length);
+        }
+    }
+
+    /**
+     * Counts a step, called once per training step before the updates of the parameters.
+     */
+    public void nextStep()
+    {
+        steps++;
+    }
+
+    /**
+     * @return number of training steps
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * @param index index of state value (e.g. 0 first moment, 1 second moment)
+     * @return values of all parameters
+     */
+    public double[] getValues(int index)
+    {
+        return values[index];
+    }
+
+    /**
+     * @return number of values per parameter
+     */
+    public int getStateSize()
+    {
+        return values.length;
+    }
+
+    /**
+     * @return number of parameters
+     */
+    public int getParameterCount()
+    {
+        return values.length == 0 ? 0 : values[0].length;
+    }
+}
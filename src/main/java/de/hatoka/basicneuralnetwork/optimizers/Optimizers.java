@@ -0,0 +1,40 @@
+package de.hatoka.basicneuralnetwork.optimizers;
+
+/**
+ * Optimizers available for the configuration of a network
+ */
+public enum Optimizers
+{
+    /**
+     * plain gradient descent (default)
+     */
+    SGD(new SgdOptimizer()),
+    /**
+     * momentum 0.9
+     */
+    MOMENTUM(new MomentumOptimizer(0.9, false)),
+    /**
+     * Nesterov momentum 0.9
+     */
+    NESTEROV(new MomentumOptimizer(0.9, true)),
+    /**
+     * decay 0.9, epsilon 1e-8
+     */
+    RMSPROP(new RmsPropOptimizer(0.9, 1e-8)),
+    /**
+     * beta1 0.9, beta2 0.999, epsilon 1e-8
+     */
+    ADAM(new AdamOptimizer(0.9, 0.999, 1e-8));
+
+    private final Optimizer optimizer;
+
+    private Optimizers(Optimizer optimizer)
+    {
+        this.optimizer = optimizer;
+    }
+
+    public Optimizer getOptimizer()
+    {
+        return optimizer;
+    }
+}
@@ -0,0 +1,40 @@
+package de.hatoka.basicneuralnetwork.optimizers;
+
+/**
+ * RMSProp scales the gradient by the root of the moving average of squared gradients:
+ * <code>step = learningRate * gradient / (sqrt(average) + epsilon)</code>
+ */
+public class RmsPropOptimizer implements Optimizer
+{
+    private final double decay;
+    private final double epsilon;
+
+    /**
+     * @param decay part of average kept per step (e.g. 0.9)
+     * @param epsilon avoids division by zero (e.g. 1e-8)
+     */
+    public RmsPropOptimizer(double decay, double epsilon)
+    {
+        this.decay = decay;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public int getStateSize()
+    {
+        return 1;
+    }
+
+    @Override
+    public void update(double[] values, int count, double learningRate, OptimizerState state, int offset)
+    {
+        double[] average = state.getValues(0);
+        for (int i = 0; i < count; i++)
+        {
+            double gradient = values[i];
+            double a = decay * average[offset + i] + (1 - decay) * gradient * gradient;
+            average[offset + i] = a;
+            values[i] = learningRate * gradient / (Math.sqrt(a) + epsilon);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package de.hatoka.basicneuralnetwork.optimizers;
+
+/**
+ * Plain stochastic gradient descent: step = learningRate * gradient
+ */
+public class SgdOptimizer implements Optimizer
+{
+    @Override
+    public int getStateSize()
+    {
+        return 0;
+    }
+
+    @Override
+    public void update(double[] values, int count, double learningRate, OptimizerState state, int offset)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            values[i] *= learningRate;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package de.hatoka.basicneuralnetwork.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.utilities.FileReaderAndWriter;
+
+/**
+ * InferenceServer provides registered neural networks via HTTP. It is based on the JDK {@link HttpServer} and handles
+ * every request on a virtual thread.
+ * <ul>
+ * <li><code>GET /models</code> lists the registered networks with their dimensions</li>
+ * <li><code>POST /models/{name}</code> with <code>application/json</code> body <code>[1, 0]</code> (single input) or
+ * <code>[[1, 0], [0, 1]]</code> (batch) returns the guess(es) as JSON</li>
+ * <li><code>POST /models/{name}</code> with <code>application/octet-stream</code> body of big endian doubles returns the
+ * guesses of all inputs (batch size = number of doubles / input nodes) as big endian doubles</li>
+ * </ul>
+ * The number of requests in progress is bounded. Requests exceeding the bound wait a short time for a free slot and are
+ * rejected with <code>503</code> afterwards, so clients can back off instead of filling the heap. The body of a request
+ * is bounded by the maximal batch size, larger bodies are rejected with <code>413</code> without reading them
+ * completely.
+ */
+public class InferenceServer implements AutoCloseable
+{
+    public static final String CONTEXT = "/models";
+    public static final String CONTENT_TYPE_JSON = "application/json";
+    public static final String CONTENT_TYPE_BINARY = "application/octet-stream";
+
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_BAD_REQUEST = 400;
+    private static final int STATUS_NOT_FOUND = 404;
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+    private static final int STATUS_PAYLOAD_TOO_LARGE = 413;
+    private static final int STATUS_UNAVAILABLE = 503;
+    /**
+     * maximal length of one value in JSON (e.g. -1.2345678901234567E-123 with separator)
+     */
+    private static final int JSON_BYTES_PER_VALUE = 32;
+    /**
+     * additional bytes of a body, e.g. brackets and white space of JSON
+     */
+    private static final int BODY_HEADROOM = 1024;
+
+    private final Map<String, NeuralNetwork> models = new ConcurrentHashMap<>();
+    private final Gson gson = new Gson();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore pending;
+    private final long admissionTimeoutMillis;
+    private int maxBatchSize = 1024;
+
+    /**
+     * @param address address to bind to, port 0 selects a free port
+     * @param maxPendingRequests maximal number of requests in progress
+     * @param admissionTimeoutMillis time a request waits for a free slot before it is rejected
+     * @throws IOException in case the server can't be bound to the address
+     */
+    public InferenceServer(InetSocketAddress address, int maxPendingRequests, long admissionTimeoutMillis)
+                    throws IOException
+    {
+        this.pending = new Semaphore(maxPendingRequests);
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, maxPendingRequests);
+        server.setExecutor(executor);
+        server.createContext(CONTEXT, this::handle);
+    }
+
+    /**
+     * Registers a network under the given name, an existing network with the same name is replaced.
+     * @param name name of model used in url
+     * @param nn network (must not be trained while registered)
+     * @return this server
+     */
+    public InferenceServer register(String name, NeuralNetwork nn)
+    {
+        models.put(name, nn);
+        return this;
+    }
+
+    /**
+     * Registers all networks (*.json) of the directory, the file name without extension is used as model name.
+     * @param directory model directory
+     * @return this server
+     * @throws IOException in case reading one of the networks fails
+     */
+    public InferenceServer registerDirectory(Path directory) throws IOException
+    {
+        FileReaderAndWriter reader = new FileReaderAndWriter();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json"))
+        {
+            for (Path file : files)
+            {
+                String fileName = file.getFileName().toString();
+                register(fileName.substring(0, fileName.length() - ".json".length()), reader.read(file));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @param maxBatchSize maximal number of inputs of one request (default 1024), limits the size of request bodies
+     * @return this server
+     */
+    public InferenceServer setMaxBatchSize(int maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public InferenceServer start()
+    {
+        server.start();
+        return this;
+    }
+
+    /**
+     * @return address the server is bound to (contains selected port)
+     */
+    public InetSocketAddress getAddress()
+    {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try (exchange)
+        {
+            if (!acquire())
+            {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                sendText(exchange, STATUS_UNAVAILABLE, "Too many pending requests.");
+                return;
+            }
+            try
+            {
+                dispatch(exchange);
+            }
+            finally
+            {
+                pending.release();
+            }
+        }
+    }
+
+    private boolean acquire()
+    {
+        try
+        {
+            return pending.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException
+    {
+        String path = exchange.getRequestURI().getPath();
+        String name = path.length() > CONTEXT.length() + 1 ? path.substring(CONTEXT.length() + 1) : "";
+        if (name.isEmpty())
+        {
+            if (!"GET".equals(exchange.getRequestMethod()))
+            {
+                sendText(exchange, STATUS_METHOD_NOT_ALLOWED, "Use GET to list models.");
+                return;
+            }
+            sendJson(exchange, listModels());
+            return;
+        }
+        NeuralNetwork nn = models.get(name);
+        if (nn == null)
+        {
+            sendText(exchange, STATUS_NOT_FOUND, "Unknown model '" + name + "'.");
+            return;
+        }
+        if (!"POST".equals(exchange.getRequestMethod()))
+        {
+            sendText(exchange, STATUS_METHOD_NOT_ALLOWED, "Use POST to guess.");
+            return;
+        }
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        boolean binary = contentType != null && contentType.startsWith(CONTENT_TYPE_BINARY);
+        int limit = getBodyLimit(nn, binary);
+        byte[] body = readBody(exchange, limit);
+        if (body == null)
+        {
+            sendText(exchange, STATUS_PAYLOAD_TOO_LARGE, "Request body exceeds " + limit + " bytes.");
+            return;
+        }
+        try
+        {
+            if (binary)
+            {
+                sendBinary(exchange, guessBinary(nn, body));
+            }
+            else
+            {
+                sendJson(exchange, guessJson(nn, new String(body, StandardCharsets.UTF_8)));
+            }
+        }
+        catch(WrongDimensionException | JsonParseException | IllegalStateException e)
+        {
+            sendText(exchange, STATUS_BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * @return maximal number of bytes of a request body for the network
+     */
+    private int getBodyLimit(NeuralNetwork nn, boolean binary)
+    {
+        long values = (long)maxBatchSize * nn.getInputNodes();
+        long result = values * (binary ? Double.BYTES : JSON_BYTES_PER_VALUE) + BODY_HEADROOM;
+        return (int)Math.min(result, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * @return body of request, null if it exceeds the limit
+     */
+    private static byte[] readBody(HttpExchange exchange, int limit) throws IOException
+    {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        try (InputStream body = exchange.getRequestBody())
+        {
+            if (contentLength != null && Long.parseLong(contentLength.trim()) > limit)
+            {
+                return null;
+            }
+            // reads at most one byte more than allowed, the buffer grows with the data
+            byte[] result = body.readNBytes(limit + 1);
+            return result.length > limit ? null : result;
+        }
+        catch(NumberFormatException e)
+        {
+            return null;
+        }
+    }
+
+    private JsonElement listModels()
+    {
+        JsonArray result = new JsonArray();
+        models.forEach((name, nn) -> {
+            JsonObject model = new JsonObject();
+            model.addProperty("name", name);
+            model.addProperty("inputNodes", nn.getInputNodes());
+            model.addProperty("outputNodes", nn.getOutputNodes());
+            result.add(model);
+        });
+        return result;
+    }
+
+    private JsonElement guessJson(NeuralNetwork nn, String body)
+    {
+        JsonArray request = JsonParser.parseString(body).getAsJsonArray();
+        if (!request.isEmpty() && request.get(0).isJsonArray())
+        {
+            double[][] result = new double[request.size()][];
+            for (int i = 0; i < result.length; i++)
+            {
+                result[i] = nn.guess(gson.fromJson(request.get(i), double[].class));
+            }
+            return gson.toJsonTree(result);
+        }
+        return gson.toJsonTree(nn.guess(gson.fromJson(request, double[].class)));
+    }
+
+    private byte[] guessBinary(NeuralNetwork nn, byte[] body)
+    {
+        int inputNodes = nn.getInputNodes();
+        int outputNodes = nn.getOutputNodes();
+        if (body.length % (Double.BYTES * inputNodes) != 0)
+        {
+            throw new WrongDimensionException(body.length / Double.BYTES, inputNodes, "Input");
+        }
+        DoubleBuffer inputs = ByteBuffer.wrap(body).asDoubleBuffer();
+        int batchSize = inputs.remaining() / inputNodes;
+        ByteBuffer result = ByteBuffer.allocate(batchSize * outputNodes * Double.BYTES);
+        DoubleBuffer outputs = result.asDoubleBuffer();
+        double[] input = new double[inputNodes];
+        for (int i = 0; i < batchSize; i++)
+        {
+            inputs.get(input);
+            outputs.put(nn.guess(input));
+        }
+        return result.array();
+    }
+
+    private void sendJson(HttpExchange exchange, JsonElement body) throws IOException
+    {
+        send(exchange, STATUS_OK, CONTENT_TYPE_JSON, gson.toJson(body).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void sendBinary(HttpExchange exchange, byte[] body) throws IOException
+    {
+        send(exchange, STATUS_OK, CONTENT_TYPE_BINARY, body);
+    }
+
+    private void sendText(HttpExchange exchange, int status, String text) throws IOException
+    {
+        send(exchange, status, "text/plain", text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream output = exchange.getResponseBody())
+        {
+            output.write(body);
+        }
+    }
+}
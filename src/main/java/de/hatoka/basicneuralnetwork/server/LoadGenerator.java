@@ -0,0 +1,179 @@
+package de.hatoka.basicneuralnetwork.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * LoadGenerator sends guess requests to an {@link InferenceServer} from concurrent virtual threads and reports latency
+ * percentiles and throughput. Intended for measurements against localhost. Close the generator to release the
+ * threads of the HTTP client.
+ */
+public class LoadGenerator implements AutoCloseable
+{
+    /**
+     * Result of a load run
+     * @param requests number of sent requests
+     * @param rejected number of requests rejected by backpressure (503)
+     * @param failed number of requests failed otherwise
+     * @param p50Nanos median latency
+     * @param p99Nanos 99th percentile latency
+     * @param durationNanos wall time of complete run
+     */
+    public record LoadReport(int requests, int rejected, int failed, long p50Nanos, long p99Nanos, long durationNanos)
+    {
+        /**
+         * @return successful requests per second
+         */
+        public double getThroughput()
+        {
+            return (requests - rejected - failed) * 1e9 / durationNanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("requests=%d rejected=%d failed=%d p50=%.3fms p99=%.3fms throughput=%.1f/s", requests,
+                            rejected, failed, p50Nanos / 1e6, p99Nanos / 1e6, getThroughput());
+        }
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient client = HttpClient.newBuilder()
+                                                .version(HttpClient.Version.HTTP_1_1)
+                                                .executor(executor)
+                                                .build();
+    private final URI uri;
+    private final String contentType;
+    private final byte[] payload;
+
+    /**
+     * @param uri model uri, e.g. http://localhost:8080/models/xor
+     * @param contentType {@link InferenceServer#CONTENT_TYPE_JSON} or {@link InferenceServer#CONTENT_TYPE_BINARY}
+     * @param payload request body
+     */
+    public LoadGenerator(URI uri, String contentType, byte[] payload)
+    {
+        this.uri = uri;
+        this.contentType = contentType;
+        this.payload = payload;
+    }
+
+    /**
+     * @param uri model uri, e.g. http://localhost:8080/models/xor
+     * @param inputs batch of inputs send in binary format with each request
+     * @return generator for binary requests
+     */
+    public static LoadGenerator binary(URI uri, double[]... inputs)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(Arrays.stream(inputs).mapToInt(i -> i.length).sum() * Double.BYTES);
+        DoubleBuffer values = buffer.asDoubleBuffer();
+        for (double[] input : inputs)
+        {
+            values.put(input);
+        }
+        return new LoadGenerator(uri, InferenceServer.CONTENT_TYPE_BINARY, buffer.array());
+    }
+
+    /**
+     * Sends the given number of requests with the given number of concurrent clients.
+     * @param requests number of requests
+     * @param concurrency number of concurrent clients
+     * @return report of the run
+     */
+    public LoadReport run(int requests, int concurrency)
+    {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                                         .header("Content-Type", contentType)
+                                         .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                                         .build();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int c = 0; c < concurrency; c++)
+            {
+                clients.execute(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement())
+                    {
+                        long sent = System.nanoTime();
+                        int status = send(request);
+                        latencies[i] = System.nanoTime() - sent;
+                        if (status == 503)
+                        {
+                            rejected.incrementAndGet();
+                        }
+                        else if (status != 200)
+                        {
+                            failed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        long duration = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new LoadReport(requests, rejected.get(), failed.get(), percentile(latencies, 0.5),
+                        percentile(latencies, 0.99), duration);
+    }
+
+    private int send(HttpRequest request)
+    {
+        try
+        {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+        catch(IOException e)
+        {
+            return -1;
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        client.close();
+        executor.close();
+    }
+
+    private static long percentile(long[] sorted, double percentile)
+    {
+        if (sorted.length == 0)
+        {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int)Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    /**
+     * Runs a load against a running server and logs the report.
+     * @param args model uri, number of requests, concurrency, input values
+     */
+    public static void main(String[] args)
+    {
+        double[] input = Arrays.stream(args).skip(3).mapToDouble(Double::parseDouble).toArray();
+        try (LoadGenerator generator = binary(URI.create(args[0]), input))
+        {
+            LoadReport report = generator.run(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            LoggerFactory.getLogger(LoadGenerator.class).info("{}", report);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package de.hatoka.basicneuralnetwork.training;
+
+/**
+ * Statistics of one training epoch
+ * @param epoch number of epoch (starts with 0)
+ * @param samples number of trained samples
+ * @param adaption sum of adaptions returned by train
+ * @param wallTimeNanos wall time of epoch
+ * @param waitNanos time the training waited for the next batch (not hidden loading and preprocessing)
+ */
+public record EpochStatistics(int epoch, long samples, double adaption, long wallTimeNanos, long waitNanos)
+{
+    /**
+     * @return mean adaption per sample
+     */
+    public double getMeanAdaption()
+    {
+        return samples == 0 ? 0 : adaption / samples;
+    }
+
+    /**
+     * @return trained samples per second
+     */
+    public double getSamplesPerSecond()
+    {
+        return wallTimeNanos == 0 ? 0 : samples * 1e9 / wallTimeNanos;
+    }
+}
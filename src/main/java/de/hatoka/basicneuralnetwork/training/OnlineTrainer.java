@@ -0,0 +1,293 @@
+package de.hatoka.basicneuralnetwork.training;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.dataset.Sample;
+
+/**
+ * OnlineTrainer trains a network with the samples of a {@link Flow.Publisher} (e.g. an event stream). Received
+ * samples are kept in a bounded buffer and trained on a background thread. The {@link OverloadPolicy} decides what
+ * happens when samples arrive faster than they are trained.
+ * <p>
+ * With a batch size of 1 each sample is trained via {@link NeuralNetwork#train(double[], double[])}. Otherwise up to
+ * batch size buffered samples are trained together as mini-batch (mean of {@link NeuralNetwork#addGradient(double[],
+ * double[], double[], int)} applied via the optimizer of the network), so batches grow with the load.
+ * <p>
+ * The network is modified by the background thread, access it after {@link #getCompletion()} is done.
+ */
+public class OnlineTrainer implements Flow.Subscriber<Sample>
+{
+    /**
+     * Handling of samples arriving while the buffer is full
+     */
+    public enum OverloadPolicy
+    {
+        /**
+         * request only as many samples as the buffer can take (backpressure), the publisher has to wait
+         */
+        BLOCK,
+        /**
+         * request all samples, drop new samples while the buffer is full
+         */
+        DROP,
+        /**
+         * request all samples, keep a uniform random sample of the samples arrived while the buffer is full
+         * (reservoir sampling)
+         */
+        SAMPLE
+    }
+
+    /**
+     * Metrics of an online training
+     * @param received number of received samples
+     * @param trained number of trained samples
+     * @param dropped number of dropped samples
+     * @param buffered number of samples waiting for training
+     * @param adaption sum of adaptions of training
+     * @param maxLagNanos longest time between arrival and training of a sample
+     * @param samplesPerSecond trained samples per second since subscription
+     */
+    public record Statistics(long received, long trained, long dropped, int buffered, double adaption,
+                    long maxLagNanos, double samplesPerSecond)
+    {
+    }
+
+    private final NeuralNetwork nn;
+    private final OverloadPolicy policy;
+    private final CompletableFuture<Statistics> completion = new CompletableFuture<>();
+    private final SplittableRandom random;
+    private int batchSize = 1;
+    // all fields below are guarded by this
+    private final Sample[] buffer;
+    private final long[] arrivals;
+    private int head = 0;
+    private int count = 0;
+    private long overflow = 0;
+    private long received = 0;
+    private long trained = 0;
+    private long dropped = 0;
+    private double adaption = 0;
+    private long maxLagNanos = 0;
+    private long start;
+    private boolean completed = false;
+    private Throwable error;
+    private Flow.Subscription subscription;
+
+    /**
+     * @param nn network to train
+     * @param capacity maximal number of buffered samples
+     * @param policy handling of samples arriving while the buffer is full
+     */
+    public OnlineTrainer(NeuralNetwork nn, int capacity, OverloadPolicy policy)
+    {
+        this.nn = nn;
+        this.policy = policy;
+        this.buffer = new Sample[capacity];
+        this.arrivals = new long[capacity];
+        this.random = new SplittableRandom(nn.getConfiguration().getSeed());
+    }
+
+    /**
+     * @param batchSize maximal number of samples trained together (default 1, at least 1)
+     * @return this trainer
+     * @throws IllegalStateException if the trainer is subscribed already
+     */
+    public synchronized OnlineTrainer setBatchSize(int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("Batch size must be positive, but is " + batchSize + ".");
+        }
+        if (subscription != null)
+        {
+            throw new IllegalStateException("Batch size can't be changed after subscription.");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @return completed with the final statistics after the publisher completed and all buffered samples are
+     *         trained, completed exceptionally if the publisher or the training failed
+     */
+    public CompletableFuture<Statistics> getCompletion()
+    {
+        return completion;
+    }
+
+    /**
+     * @return current metrics
+     */
+    public synchronized Statistics getStatistics()
+    {
+        long duration = start == 0 ? 0 : System.nanoTime() - start;
+        return new Statistics(received, trained, dropped, count, adaption, maxLagNanos,
+                        duration == 0 ? 0 : trained * 1e9 / duration);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription newSubscription)
+    {
+        synchronized (this)
+        {
+            if (subscription != null)
+            {
+                newSubscription.cancel();
+                return;
+            }
+            subscription = newSubscription;
+            start = System.nanoTime();
+        }
+        Thread.ofPlatform().daemon().name("online-trainer").start(this::run);
+        newSubscription.request(policy == OverloadPolicy.BLOCK ? buffer.length : Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(Sample sample)
+    {
+        long now = System.nanoTime();
+        synchronized (this)
+        {
+            received++;
+            if (count < buffer.length)
+            {
+                int index = (head + count++) % buffer.length;
+                buffer[index] = sample;
+                arrivals[index] = now;
+                notifyAll();
+                return;
+            }
+            dropped++;
+            if (policy == OverloadPolicy.SAMPLE)
+            {
+                // the new sample replaces a buffered sample with probability capacity / arrived samples
+                long position = random.nextLong(buffer.length + ++overflow);
+                if (position < buffer.length)
+                {
+                    int index = (int)((head + position) % buffer.length);
+                    buffer[index] = sample;
+                    arrivals[index] = now;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable throwable)
+    {
+        error = throwable;
+        completed = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void onComplete()
+    {
+        completed = true;
+        notifyAll();
+    }
+
+    /**
+     * Stops the training, buffered samples are not trained.
+     */
+    public void cancel()
+    {
+        Flow.Subscription current;
+        synchronized (this)
+        {
+            current = subscription;
+            count = 0;
+            completed = true;
+            notifyAll();
+        }
+        if (current != null)
+        {
+            current.cancel();
+        }
+    }
+
+    private void run()
+    {
+        try
+        {
+            Sample[] batch = new Sample[batchSize];
+            double[] gradient = batchSize > 1 ? new double[nn.getParameterLayout().getParameterCount()] : null;
+            while (true)
+            {
+                int taken;
+                synchronized (this)
+                {
+                    while (count == 0 && !completed)
+                    {
+                        wait();
+                    }
+                    if (count == 0)
+                    {
+                        break;
+                    }
+                    taken = Math.min(count, batchSize);
+                    long now = System.nanoTime();
+                    for (int i = 0; i < taken; i++)
+                    {
+                        batch[i] = buffer[head];
+                        maxLagNanos = Math.max(maxLagNanos, now - arrivals[head]);
+                        buffer[head] = null;
+                        head = (head + 1) % buffer.length;
+                    }
+                    count -= taken;
+                    overflow = 0;
+                }
+                double batchAdaption = taken == 1 ? nn.train(batch[0].input(), batch[0].target())
+                                : trainBatch(batch, taken, gradient);
+                synchronized (this)
+                {
+                    trained += taken;
+                    adaption += batchAdaption;
+                }
+                if (policy == OverloadPolicy.BLOCK)
+                {
+                    subscription.request(taken);
+                }
+            }
+        }
+        catch(Throwable e)
+        {
+            // errors too, otherwise the completion would never be completed
+            synchronized (this)
+            {
+                error = e;
+            }
+            subscription.cancel();
+        }
+        synchronized (this)
+        {
+            if (error != null)
+            {
+                completion.completeExceptionally(error);
+            }
+            else
+            {
+                completion.complete(getStatistics());
+            }
+        }
+    }
+
+    /**
+     * Trains the samples as one mini-batch
+     * @return sum of absolute adaptions of parameters
+     */
+    private double trainBatch(Sample[] batch, int size, double[] gradient)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            nn.addGradient(batch[i].input(), batch[i].target(), gradient, 0);
+        }
+        double result = nn.applyGradient(gradient, size);
+        Arrays.fill(gradient, 0);
+        return result;
+    }
+}
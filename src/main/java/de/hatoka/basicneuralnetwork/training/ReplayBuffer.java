@@ -0,0 +1,382 @@
+package de.hatoka.basicneuralnetwork.training;
+
+import java.util.random.RandomGenerator;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+/**
+ * ReplayBuffer stores transitions of a reinforcement learning agent (state, action, reward, next state, terminal) in
+ * preallocated primitive arrays. The network maps a state (input nodes) to one value per action (output nodes). When
+ * the buffer is full, new transitions replace the oldest ones.
+ * <ul>
+ * <li>uniform sampling (default): each stored transition has the same probability, insertion is O(1)</li>
+ * <li>prioritized sampling ({@link #setPriorityExponent(double)} &gt; 0): transitions are sampled proportional to
+ * <code>priority^alpha</code> via a sum tree, insertion and sampling are O(log n). New transitions get the highest
+ * priority seen so far, {@link #train(NeuralNetwork, NeuralNetwork, double, Batch)} updates the priorities by the
+ * temporal difference errors.</li>
+ * </ul>
+ * Several actor threads may add transitions while one learner samples and trains.
+ */
+public class ReplayBuffer
+{
+    private static final double MIN_PRIORITY = 1e-6;
+
+    /**
+     * Preallocated arrays of a mini-batch, filled by {@link ReplayBuffer#sample(Batch, RandomGenerator)}.
+     */
+    public static final class Batch
+    {
+        private final double[][] states;
+        private final int[] actions;
+        private final double[] rewards;
+        private final double[][] nextStates;
+        private final boolean[] terminal;
+        private final int[] indices;
+        private final double[] weights;
+        private int size;
+
+        private Batch(int batchSize, int stateSize)
+        {
+            states = new double[batchSize][stateSize];
+            actions = new int[batchSize];
+            rewards = new double[batchSize];
+            nextStates = new double[batchSize][stateSize];
+            terminal = new boolean[batchSize];
+            indices = new int[batchSize];
+            weights = new double[batchSize];
+        }
+
+        /**
+         * @return number of sampled transitions
+         */
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         * @return states of sampled transitions (usable as input of train)
+         */
+        public double[][] getStates()
+        {
+            return states;
+        }
+
+        /**
+         * @return actions of sampled transitions
+         */
+        public int[] getActions()
+        {
+            return actions;
+        }
+
+        /**
+         * @return rewards of sampled transitions
+         */
+        public double[] getRewards()
+        {
+            return rewards;
+        }
+
+        /**
+         * @return states after the actions of sampled transitions
+         */
+        public double[][] getNextStates()
+        {
+            return nextStates;
+        }
+
+        /**
+         * @return true for transitions ending an episode
+         */
+        public boolean[] getTerminal()
+        {
+            return terminal;
+        }
+
+        /**
+         * @return positions of sampled transitions in the buffer
+         */
+        public int[] getIndices()
+        {
+            return indices;
+        }
+
+        /**
+         * @return importance sampling weights (1 for uniform sampling)
+         */
+        public double[] getWeights()
+        {
+            return weights;
+        }
+    }
+
+    private final int stateSize;
+    private final int actions;
+    private final int capacity;
+    private final double[] states;
+    private final double[] nextStates;
+    private final int[] actionValues;
+    private final double[] rewards;
+    private final boolean[] terminal;
+    // priorities without exponent, so the tree can be rebuilt for another exponent
+    private final double[] priorities;
+    // sum tree of priorities with exponent, leaves start at leafOffset
+    private final int leafOffset;
+    private final double[] tree;
+    private double alpha = 0;
+    private double beta = 0.4;
+    private double maxPriority = 1;
+    private long added = 0;
+
+    /**
+     * @param stateSize number of values of a state
+     * @param actions number of actions
+     * @param capacity maximal number of transitions
+     */
+    public ReplayBuffer(int stateSize, int actions, int capacity)
+    {
+        this.stateSize = stateSize;
+        this.actions = actions;
+        this.capacity = capacity;
+        this.states = new double[capacity * stateSize];
+        this.nextStates = new double[capacity * stateSize];
+        this.actionValues = new int[capacity];
+        this.rewards = new double[capacity];
+        this.terminal = new boolean[capacity];
+        this.priorities = new double[capacity];
+        this.leafOffset = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.tree = new double[2 * leafOffset];
+    }
+
+    /**
+     * @param nn network of the agent (input nodes define the state, output nodes the actions)
+     * @param capacity maximal number of transitions
+     * @return buffer for transitions of the network
+     */
+    public static ReplayBuffer create(NeuralNetwork nn, int capacity)
+    {
+        return new ReplayBuffer(nn.getInputNodes(), nn.getOutputNodes(), capacity);
+    }
+
+    /**
+     * The exponent can be changed while transitions are stored, the sum tree is rebuilt for the new exponent then.
+     * @param alpha exponent of priorities, 0 samples uniform (default), 1 proportional to the priorities
+     * @return this buffer
+     */
+    public synchronized ReplayBuffer setPriorityExponent(double alpha)
+    {
+        if (this.alpha != alpha)
+        {
+            this.alpha = alpha;
+            rebuildTree();
+        }
+        return this;
+    }
+
+    /**
+     * @return exponent of priorities
+     */
+    public synchronized double getPriorityExponent()
+    {
+        return alpha;
+    }
+
+    /**
+     * @param beta exponent of importance sampling weights of prioritized sampling, 1 compensates the bias completely
+     *            (default 0.4)
+     * @return this buffer
+     */
+    public synchronized ReplayBuffer setImportanceExponent(double beta)
+    {
+        this.beta = beta;
+        return this;
+    }
+
+    /**
+     * @return number of stored transitions
+     */
+    public synchronized int size()
+    {
+        return (int)Math.min(added, capacity);
+    }
+
+    /**
+     * @param batchSize maximal number of transitions per mini-batch
+     * @return preallocated batch for {@link #sample(Batch, RandomGenerator)}
+     */
+    public Batch newBatch(int batchSize)
+    {
+        return new Batch(batchSize, stateSize);
+    }
+
+    /**
+     * Stores a transition, the values are copied.
+     * @param state state before the action
+     * @param action index of executed action
+     * @param reward reward of action
+     * @param nextState state after the action
+     * @param done true if the action ended the episode
+     */
+    public void add(double[] state, int action, double reward, double[] nextState, boolean done)
+    {
+        if (state.length != stateSize)
+        {
+            throw new WrongDimensionException(state.length, stateSize, "Input");
+        }
+        if (nextState.length != stateSize)
+        {
+            throw new WrongDimensionException(nextState.length, stateSize, "Input");
+        }
+        if (action < 0 || action >= actions)
+        {
+            throw new IllegalArgumentException("Action " + action + " not in [0, " + actions + ").");
+        }
+        synchronized (this)
+        {
+            int index = (int)(added++ % capacity);
+            System.arraycopy(state, 0, states, index * stateSize, stateSize);
+            System.arraycopy(nextState, 0, nextStates, index * stateSize, stateSize);
+            actionValues[index] = action;
+            rewards[index] = reward;
+            terminal[index] = done;
+            setPriority(index, maxPriority);
+        }
+    }
+
+    private void setPriority(int index, double priority)
+    {
+        priorities[index] = priority;
+        if (alpha == 0)
+        {
+            // uniform sampling doesn't use the tree, it's rebuilt when the exponent changes
+            return;
+        }
+        int node = leafOffset + index;
+        double delta = Math.pow(priority, alpha) - tree[node];
+        for (; node > 0; node >>= 1)
+        {
+            tree[node] += delta;
+        }
+    }
+
+    private void rebuildTree()
+    {
+        int stored = size();
+        for (int index = 0; index < stored; index++)
+        {
+            tree[leafOffset + index] = Math.pow(priorities[index], alpha);
+        }
+        for (int node = leafOffset - 1; node > 0; node--)
+        {
+            tree[node] = tree[2 * node] + tree[2 * node + 1];
+        }
+    }
+
+    /**
+     * @param value random value in [0, sum of priorities)
+     * @return index of transition covering the value
+     */
+    private int find(double value)
+    {
+        int node = 1;
+        while (node < leafOffset)
+        {
+            node <<= 1;
+            if (value >= tree[node] && tree[node + 1] > 0)
+            {
+                value -= tree[node];
+                node++;
+            }
+        }
+        return node - leafOffset;
+    }
+
+    /**
+     * Fills the batch with randomly selected transitions (with replacement).
+     * @param batch preallocated batch, see {@link #newBatch(int)}
+     * @param random provides random numbers
+     * @return number of sampled transitions (0 for an empty buffer)
+     */
+    public synchronized int sample(Batch batch, RandomGenerator random)
+    {
+        int stored = size();
+        batch.size = stored == 0 ? 0 : batch.indices.length;
+        double total = tree[1];
+        double maxWeight = 0;
+        for (int i = 0; i < batch.size; i++)
+        {
+            int index = alpha == 0 ? random.nextInt(stored) : Math.min(find(random.nextDouble() * total), stored - 1);
+            batch.indices[i] = index;
+            System.arraycopy(states, index * stateSize, batch.states[i], 0, stateSize);
+            System.arraycopy(nextStates, index * stateSize, batch.nextStates[i], 0, stateSize);
+            batch.actions[i] = actionValues[index];
+            batch.rewards[i] = rewards[index];
+            batch.terminal[i] = terminal[index];
+            // importance sampling weight (stored * P(i))^-beta
+            batch.weights[i] = alpha == 0 ? 1 : Math.pow(stored * tree[leafOffset + index] / total, -beta);
+            maxWeight = Math.max(maxWeight, batch.weights[i]);
+        }
+        for (int i = 0; alpha != 0 && i < batch.size; i++)
+        {
+            batch.weights[i] /= maxWeight;
+        }
+        return batch.size;
+    }
+
+    /**
+     * Updates the priorities of sampled transitions.
+     * @param batch sampled batch
+     * @param errors temporal difference error per transition of batch
+     */
+    public synchronized void updatePriorities(Batch batch, double[] errors)
+    {
+        for (int i = 0; i < batch.size; i++)
+        {
+            double priority = Math.max(Math.abs(errors[i]), MIN_PRIORITY);
+            maxPriority = Math.max(maxPriority, priority);
+            setPriority(batch.indices[i], priority);
+        }
+    }
+
+    /**
+     * Trains the network with the transitions of the batch (Q-learning). The target of the executed action is
+     * <code>reward + discount * max(targetNetwork.guess(nextState))</code> (only the reward for terminal transitions),
+     * the other actions keep the current values of the network. The error of the action is scaled by the importance
+     * sampling weight. For prioritized sampling the priorities are updated by the errors.
+     * @param nn network to train
+     * @param targetNetwork network estimating the values of next states (e.g. a periodically updated copy of nn)
+     * @param discount discount of future rewards
+     * @param batch sampled batch
+     * @return sum of adaptions of train
+     */
+    public double train(NeuralNetwork nn, NeuralNetwork targetNetwork, double discount, Batch batch)
+    {
+        double[] errors = new double[batch.size];
+        double result = 0;
+        for (int i = 0; i < batch.size; i++)
+        {
+            double expected = batch.rewards[i];
+            if (!batch.terminal[i])
+            {
+                double max = Double.NEGATIVE_INFINITY;
+                for (double value : targetNetwork.guess(batch.nextStates[i]))
+                {
+                    max = Math.max(max, value);
+                }
+                expected += discount * max;
+            }
+            double[] target = nn.guess(batch.states[i]);
+            int action = batch.actions[i];
+            errors[i] = expected - target[action];
+            target[action] += batch.weights[i] * errors[i];
+            result += nn.train(batch.states[i], target);
+        }
+        if (getPriorityExponent() != 0)
+        {
+            updatePriorities(batch, errors);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,358 @@
+package de.hatoka.basicneuralnetwork.training;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+import de.hatoka.basicneuralnetwork.InputNormalization;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.dataset.Dataset;
+import de.hatoka.basicneuralnetwork.dataset.Sample;
+
+/**
+ * Trainer trains a network for several epochs with {@link NeuralNetwork#train(double[], double[])}. Loading and
+ * shuffling of samples run on a background thread, which fills the next batch while the current batch is trained
+ * (two batches of preallocated arrays are used alternately).
+ * <ul>
+ * <li>Streams of samples ({@link Iterator}) are shuffled by a bounded shuffle buffer: each sample replaces a random
+ * sample of the buffer, which is trained next. Samples are copied into the buffer, so the stream may reuse the arrays
+ * of its samples.</li>
+ * <li>A {@link Dataset} is shuffled completely by a random permutation per epoch.</li>
+ * </ul>
+ * The order of samples is reproducible for a fixed seed (default is the seed of the network).
+ */
+public class Trainer
+{
+    /**
+     * Provides samples of one epoch by copying the next sample into the given arrays.
+     */
+    interface SampleSource
+    {
+        /**
+         * @param input receives input values of next sample
+         * @param target receives target values of next sample
+         * @return false if there is no further sample
+         */
+        boolean next(double[] input, double[] target);
+    }
+
+    /**
+     * preallocated arrays of one batch, filled by the loader and trained by the caller
+     */
+    private static final class Batch
+    {
+        private final double[][] inputs;
+        private final double[][] targets;
+        private int count;
+        private boolean last;
+        private RuntimeException error;
+
+        private Batch(int batchSize, int inputSize, int targetSize)
+        {
+            inputs = new double[batchSize][inputSize];
+            targets = new double[batchSize][targetSize];
+        }
+    }
+
+    private final NeuralNetwork nn;
+    private int batchSize = 32;
+    private int shuffleBufferSize = 1024;
+    private SplittableRandom random;
+    private Consumer<EpochStatistics> listener = statistics -> {};
+    private InputNormalization normalization;
+
+    /**
+     * @param nn network to train
+     */
+    public Trainer(NeuralNetwork nn)
+    {
+        this.nn = nn;
+        this.random = new SplittableRandom(nn.getConfiguration().getSeed());
+    }
+
+    /**
+     * @return trained network
+     */
+    NeuralNetwork getNetwork()
+    {
+        return nn;
+    }
+
+    /**
+     * @param batchSize number of samples loaded as one unit (default 32, at least 1)
+     * @return this trainer
+     */
+    public Trainer setBatchSize(int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("Batch size must be positive, but is " + batchSize + ".");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param shuffleBufferSize number of samples of shuffle buffer for streams (default 1024), 1 keeps the order
+     * @return this trainer
+     */
+    public Trainer setShuffleBufferSize(int shuffleBufferSize)
+    {
+        if (shuffleBufferSize < 1)
+        {
+            throw new IllegalArgumentException("Shuffle buffer size must be positive, but is " + shuffleBufferSize
+                            + ".");
+        }
+        this.shuffleBufferSize = shuffleBufferSize;
+        return this;
+    }
+
+    /**
+     * @param seed seed for the order of samples (default seed of network)
+     * @return this trainer
+     */
+    public Trainer setSeed(long seed)
+    {
+        this.random = new SplittableRandom(seed);
+        return this;
+    }
+
+    /**
+     * @param listener receives the statistics after each epoch
+     * @return this trainer
+     */
+    public Trainer setListener(Consumer<EpochStatistics> listener)
+    {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * @param normalization normalizes the inputs while loading the batches (default none), fold it into the network
+     *            after the training via {@link InputNormalization#fold(NeuralNetwork)}
+     * @return this trainer
+     */
+    public Trainer setNormalization(InputNormalization normalization)
+    {
+        if (normalization != null && normalization.size() != nn.getInputNodes())
+        {
+            throw new WrongDimensionException(normalization.size(), nn.getInputNodes(), "Input");
+        }
+        this.normalization = normalization;
+        return this;
+    }
+
+    /**
+     * @return normalization of the inputs (null for raw inputs)
+     */
+    InputNormalization getNormalization()
+    {
+        return normalization;
+    }
+
+    /**
+     * @param samples samples, iterated once per epoch (e.g. a collection or <code>() -&gt; reader.iterator()</code>
+     *            streaming a file)
+     * @param epochs number of epochs
+     * @return statistics per epoch
+     */
+    public List<EpochStatistics> train(Iterable<Sample> samples, int epochs)
+    {
+        List<EpochStatistics> result = new ArrayList<>();
+        for (int epoch = 0; epoch < epochs; epoch++)
+        {
+            result.add(trainEpoch(epoch, shuffle(samples.iterator(), random.split())));
+        }
+        return result;
+    }
+
+    /**
+     * @param dataset samples, trained in random order
+     * @param epochs number of epochs
+     * @return statistics per epoch
+     */
+    public List<EpochStatistics> train(Dataset dataset, int epochs)
+    {
+        dataset.checkDimensions(nn);
+        List<EpochStatistics> result = new ArrayList<>();
+        for (int epoch = 0; epoch < epochs; epoch++)
+        {
+            result.add(trainEpoch(epoch, permute(dataset, random.split())));
+        }
+        return result;
+    }
+
+    private SampleSource permute(Dataset dataset, SplittableRandom epochRandom)
+    {
+        int[] order = new int[dataset.size()];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--)
+        {
+            int j = epochRandom.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        int[] position = { 0 };
+        return (input, target) -> {
+            if (position[0] == order.length)
+            {
+                return false;
+            }
+            dataset.copyInput(order[position[0]], input, 0);
+            dataset.copyTarget(order[position[0]], target, 0);
+            position[0]++;
+            return true;
+        };
+    }
+
+    SampleSource shuffle(Iterator<Sample> samples, SplittableRandom epochRandom)
+    {
+        int inputSize = nn.getInputNodes();
+        int targetSize = nn.getOutputNodes();
+        double[][] bufferInputs = new double[shuffleBufferSize][];
+        double[][] bufferTargets = new double[shuffleBufferSize][];
+        int[] filled = { 0 };
+        return (input, target) -> {
+            while (samples.hasNext())
+            {
+                Sample sample = samples.next();
+                if (sample.input().length != inputSize)
+                {
+                    throw new WrongDimensionException(sample.input().length, inputSize, "Input");
+                }
+                if (sample.target().length != targetSize)
+                {
+                    throw new WrongDimensionException(sample.target().length, targetSize, "Output");
+                }
+                if (filled[0] < shuffleBufferSize)
+                {
+                    bufferInputs[filled[0]] = sample.input().clone();
+                    bufferTargets[filled[0]] = sample.target().clone();
+                    filled[0]++;
+                    continue;
+                }
+                // emit a random sample of the buffer, the new sample takes its place
+                int j = epochRandom.nextInt(shuffleBufferSize);
+                System.arraycopy(bufferInputs[j], 0, input, 0, inputSize);
+                System.arraycopy(bufferTargets[j], 0, target, 0, targetSize);
+                System.arraycopy(sample.input(), 0, bufferInputs[j], 0, inputSize);
+                System.arraycopy(sample.target(), 0, bufferTargets[j], 0, targetSize);
+                return true;
+            }
+            if (filled[0] == 0)
+            {
+                return false;
+            }
+            // drain buffer in random order
+            int j = epochRandom.nextInt(filled[0]);
+            int lastIndex = --filled[0];
+            System.arraycopy(bufferInputs[j], 0, input, 0, inputSize);
+            System.arraycopy(bufferTargets[j], 0, target, 0, targetSize);
+            double[] swapInput = bufferInputs[j];
+            double[] swapTarget = bufferTargets[j];
+            bufferInputs[j] = bufferInputs[lastIndex];
+            bufferTargets[j] = bufferTargets[lastIndex];
+            bufferInputs[lastIndex] = swapInput;
+            bufferTargets[lastIndex] = swapTarget;
+            return true;
+        };
+    }
+
+    private EpochStatistics trainEpoch(int epoch, SampleSource source)
+    {
+        long start = System.nanoTime();
+        BlockingQueue<Batch> free = new ArrayBlockingQueue<>(2);
+        BlockingQueue<Batch> full = new ArrayBlockingQueue<>(2);
+        free.add(new Batch(batchSize, nn.getInputNodes(), nn.getOutputNodes()));
+        free.add(new Batch(batchSize, nn.getInputNodes(), nn.getOutputNodes()));
+        Thread loader = Thread.ofPlatform().daemon().name("trainer-loader-" + epoch)
+                              .start(() -> load(source, free, full));
+        long samples = 0;
+        double adaption = 0;
+        long waitNanos = 0;
+        try
+        {
+            while (true)
+            {
+                long waitStart = System.nanoTime();
+                Batch batch = full.take();
+                waitNanos += System.nanoTime() - waitStart;
+                if (batch.error != null)
+                {
+                    throw batch.error;
+                }
+                for (int i = 0; i < batch.count; i++)
+                {
+                    adaption += nn.train(batch.inputs[i], batch.targets[i]);
+                }
+                samples += batch.count;
+                if (batch.last)
+                {
+                    break;
+                }
+                free.add(batch);
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Training interrupted.", e);
+        }
+        finally
+        {
+            loader.interrupt();
+        }
+        EpochStatistics result = new EpochStatistics(epoch, samples, adaption, System.nanoTime() - start, waitNanos);
+        listener.accept(result);
+        return result;
+    }
+
+    private void load(SampleSource source, BlockingQueue<Batch> free, BlockingQueue<Batch> full)
+    {
+        try
+        {
+            Batch batch = free.take();
+            try
+            {
+                while (true)
+                {
+                    batch.count = 0;
+                    while (batch.count < batchSize
+                                    && source.next(batch.inputs[batch.count], batch.targets[batch.count]))
+                    {
+                        if (normalization != null)
+                        {
+                            normalization.normalize(batch.inputs[batch.count]);
+                        }
+                        batch.count++;
+                    }
+                    batch.last = batch.count < batchSize;
+                    full.put(batch);
+                    if (batch.last)
+                    {
+                        return;
+                    }
+                    batch = free.take();
+                }
+            }
+            catch(RuntimeException e)
+            {
+                batch.error = e;
+                full.put(batch);
+            }
+        }
+        catch(InterruptedException e)
+        {
+            // training finished or failed
+        }
+    }
+}
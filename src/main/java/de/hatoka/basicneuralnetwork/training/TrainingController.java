@@ -0,0 +1,256 @@
+package de.hatoka.basicneuralnetwork.training;
+
+import java.util.function.Consumer;
+
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.dataset.Dataset;
+import de.hatoka.basicneuralnetwork.dataset.NormalizedDataset;
+import de.hatoka.basicneuralnetwork.evaluation.Evaluator;
+import de.hatoka.basicneuralnetwork.optimizers.OptimizerState;
+
+/**
+ * TrainingController trains epoch by epoch with a {@link Trainer} until the training converges. After each epoch it
+ * rates the network by the mean squared error of a validation set or (without validation set) by the exponentially
+ * smoothed mean squared error of the training set. The training set is evaluated by an extra forward pass, so the
+ * loss doesn't depend on the learning rate or the optimizer. A normalization of the trainer is applied to the rated
+ * inputs too, so the network is rated with the inputs it is trained with. The training stops
+ * <ul>
+ * <li>when the loss reaches the target loss,</li>
+ * <li>after patience epochs without improvement or</li>
+ * <li>after the maximal number of epochs.</li>
+ * </ul>
+ * The parameters and the optimizer state of the best epoch are kept in preallocated arrays (copied only when the loss
+ * improves) and restored at the end, so a training resumed afterwards continues with matching optimizer state.
+ * Optionally the learning rate is reduced when the loss doesn't improve for some epochs.
+ */
+public class TrainingController
+{
+    /**
+     * Reason to stop the training
+     */
+    public enum StopReason
+    {
+        /**
+         * loss reached the target loss
+         */
+        TARGET_REACHED,
+        /**
+         * loss didn't improve for patience epochs
+         */
+        PATIENCE,
+        /**
+         * maximal number of epochs trained
+         */
+        MAX_EPOCHS
+    }
+
+    /**
+     * Result of a controlled training
+     * @param epochs number of trained epochs
+     * @param bestEpoch epoch with lowest loss (its parameters are restored)
+     * @param bestLoss lowest loss
+     * @param reason reason to stop
+     * @param learningRate learning rate at the end
+     * @param wallTimeNanos wall time of training and rating
+     */
+    public record Result(int epochs, int bestEpoch, double bestLoss, StopReason reason, double learningRate,
+                    long wallTimeNanos)
+    {
+    }
+
+    private final Trainer trainer;
+    private final NeuralNetwork nn;
+    private Dataset validation;
+    private int maxEpochs = 100;
+    private int patience = 5;
+    private double minImprovement = 1e-3;
+    private double smoothing = 0.5;
+    private double targetLoss = 0;
+    private double reductionFactor = 1;
+    private int reductionPatience = 2;
+    private Consumer<Double> listener = loss -> {};
+
+    /**
+     * @param trainer trains the epochs (batch size, seed etc. are configured at the trainer)
+     */
+    public TrainingController(Trainer trainer)
+    {
+        this.trainer = trainer;
+        this.nn = trainer.getNetwork();
+    }
+
+    /**
+     * @param validation samples rating the network (default none, the training set is used)
+     * @return this controller
+     */
+    public TrainingController setValidation(Dataset validation)
+    {
+        validation.checkDimensions(nn);
+        this.validation = validation;
+        return this;
+    }
+
+    /**
+     * @param maxEpochs maximal number of epochs (default 100)
+     * @return this controller
+     */
+    public TrainingController setMaxEpochs(int maxEpochs)
+    {
+        this.maxEpochs = maxEpochs;
+        return this;
+    }
+
+    /**
+     * @param patience number of epochs without improvement before the training stops (default 5)
+     * @return this controller
+     */
+    public TrainingController setPatience(int patience)
+    {
+        this.patience = patience;
+        return this;
+    }
+
+    /**
+     * @param minImprovement relative decrease of the loss counted as improvement (default 0.001)
+     * @return this controller
+     */
+    public TrainingController setMinImprovement(double minImprovement)
+    {
+        this.minImprovement = minImprovement;
+        return this;
+    }
+
+    /**
+     * @param smoothing weight of previous epochs for the smoothed training loss (default 0.5, 0 uses only the last
+     *            epoch)
+     * @return this controller
+     */
+    public TrainingController setSmoothing(double smoothing)
+    {
+        this.smoothing = smoothing;
+        return this;
+    }
+
+    /**
+     * @param targetLoss the training stops when the loss is lower or equal (default 0)
+     * @return this controller
+     */
+    public TrainingController setTargetLoss(double targetLoss)
+    {
+        this.targetLoss = targetLoss;
+        return this;
+    }
+
+    /**
+     * @param factor learning rate is multiplied by the factor (default 1, no reduction)
+     * @param epochs number of epochs without improvement before the learning rate is reduced (default 2)
+     * @return this controller
+     */
+    public TrainingController setPlateauReduction(double factor, int epochs)
+    {
+        this.reductionFactor = factor;
+        this.reductionPatience = epochs;
+        return this;
+    }
+
+    /**
+     * @param listener receives the loss after each epoch
+     * @return this controller
+     */
+    public TrainingController setListener(Consumer<Double> listener)
+    {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * @param training training samples
+     * @return result of training, the network contains the parameters of the best epoch
+     */
+    public Result train(Dataset training)
+    {
+        long start = System.nanoTime();
+        Evaluator evaluator = new Evaluator();
+        Dataset rating = validation == null ? training : validation;
+        if (trainer.getNormalization() != null)
+        {
+            // rate with the inputs the network is trained with
+            rating = new NormalizedDataset(rating, trainer.getNormalization());
+        }
+        double[] bestParameters = new double[nn.getParameterLayout().getParameterCount()];
+        OptimizerState bestState = null;
+        double bestLoss = Double.POSITIVE_INFINITY;
+        double smoothed = Double.NaN;
+        int bestEpoch = -1;
+        int withoutImprovement = 0;
+        int sinceReduction = 0;
+        int epoch = 0;
+        StopReason reason = StopReason.MAX_EPOCHS;
+        while (epoch < maxEpochs)
+        {
+            trainer.train(training, 1);
+            double loss = evaluator.evaluate(nn, rating).getMeanSquaredError();
+            if (validation == null)
+            {
+                smoothed = Double.isNaN(smoothed) ? loss : smoothing * smoothed + (1 - smoothing) * loss;
+                loss = smoothed;
+            }
+            listener.accept(loss);
+            if (loss < bestLoss * (1 - minImprovement) || bestEpoch < 0)
+            {
+                bestLoss = loss;
+                bestEpoch = epoch;
+                nn.copyParameters(bestParameters, 0);
+                bestState = snapshot(nn.getOptimizerState(), bestState);
+                withoutImprovement = 0;
+                sinceReduction = 0;
+            }
+            else
+            {
+                withoutImprovement++;
+                sinceReduction++;
+            }
+            epoch++;
+            if (loss <= targetLoss)
+            {
+                reason = StopReason.TARGET_REACHED;
+                break;
+            }
+            if (withoutImprovement >= patience)
+            {
+                reason = StopReason.PATIENCE;
+                break;
+            }
+            if (reductionFactor < 1 && sinceReduction >= reductionPatience)
+            {
+                nn.setLearningRate(nn.getLearningRate() * reductionFactor);
+                sinceReduction = 0;
+            }
+        }
+        if (bestEpoch >= 0 && bestEpoch < epoch - 1)
+        {
+            nn.setParameters(bestParameters, 0);
+            nn.setOptimizerState(bestState);
+        }
+        return new Result(epoch, bestEpoch, bestLoss, reason, nn.getLearningRate(), System.nanoTime() - start);
+    }
+
+    /**
+     * @param state current state of optimizer (null for SGD)
+     * @param target snapshot to reuse (null for the first snapshot)
+     * @return snapshot of state
+     */
+    private static OptimizerState snapshot(OptimizerState state, OptimizerState target)
+    {
+        if (state == null)
+        {
+            return null;
+        }
+        if (target == null)
+        {
+            return state.copy();
+        }
+        target.copyFrom(state);
+        return target;
+    }
+}
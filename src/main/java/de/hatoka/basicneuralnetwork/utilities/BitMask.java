@@ -0,0 +1,50 @@
+package de.hatoka.basicneuralnetwork.utilities;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * BitMask generates 64 random bits at once, each bit is set with the given probability. The probability is rounded to
+ * a multiple of 2^-16 and built from its binary digits: starting with the least significant digit a fresh random long
+ * is combined with OR (digit 1) or AND (digit 0). A probability of 0.5 needs one random long per mask, 0.25 needs two.
+ */
+public class BitMask
+{
+    private static final int PRECISION = 16;
+    private static final int ONE = 1 << PRECISION;
+
+    /**
+     * probability in units of 2^-16
+     */
+    private final int digits;
+
+    /**
+     * @param probability probability that a bit is set
+     */
+    public BitMask(double probability)
+    {
+        this.digits = (int)Math.max(0, Math.min(ONE, Math.round(probability * ONE)));
+    }
+
+    /**
+     * @param random source of random values
+     * @return 64 bits, each set with the probability of this mask
+     */
+    public long next(RandomGenerator random)
+    {
+        if (digits == 0)
+        {
+            return 0L;
+        }
+        if (digits == ONE)
+        {
+            return -1L;
+        }
+        long mask = 0L;
+        for (int digit = Integer.numberOfTrailingZeros(digits); digit < PRECISION; digit++)
+        {
+            long bits = random.nextLong();
+            mask = ((digits >>> digit) & 1) == 0 ? mask & bits : mask | bits;
+        }
+        return mask;
+    }
+}
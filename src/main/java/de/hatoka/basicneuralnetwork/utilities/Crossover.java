@@ -0,0 +1,170 @@
+package de.hatoka.basicneuralnetwork.utilities;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+
+/**
+ * Crossover creates the parameters of a child from the parameters of two parents. All operators work on flat parameter
+ * arrays (see {@link ParameterLayout}) and write into a preallocated child range.
+ * <ul>
+ * <li>{@link #uniform(double)}: each value from A or B, 64 decisions per random mask</li>
+ * <li>{@link #layerwise(double)}: weights and biases of a complete layer from A or B</li>
+ * <li>{@link #neuronwise(double)}: weights (row) and bias of a neuron from A or B</li>
+ * <li>{@link #singlePoint()} and {@link #multiPoint(int)}: ranges between cut points alternately from A and B</li>
+ * <li>{@link #blend(double)}: weighted mean of A and B</li>
+ * </ul>
+ */
+@FunctionalInterface
+public interface Crossover
+{
+    /**
+     * Writes the crossover of both parents into the child range. The child range may be one of the parent ranges.
+     * @param parentA array containing first parent
+     * @param offsetA position of first parent
+     * @param parentB array containing second parent
+     * @param offsetB position of second parent
+     * @param child array receiving the child
+     * @param offset position of child
+     * @param layout layout of parameters
+     * @param random source of random values
+     */
+    void apply(double[] parentA, int offsetA, double[] parentB, int offsetB, double[] child, int offset,
+                    ParameterLayout layout, RandomGenerator random);
+
+    /**
+     * @param probability probability that a value is taken from parent B
+     * @return crossover selecting each value independently
+     */
+    static Crossover uniform(double probability)
+    {
+        BitMask bitMask = new BitMask(probability);
+        return (parentA, offsetA, parentB, offsetB, child, offset, layout, random) -> {
+            int length = layout.getParameterCount();
+            // start with one parent and overwrite the values selected from the other one
+            boolean childIsB = child == parentB && offset == offsetB;
+            if (!childIsB && (child != parentA || offset != offsetA))
+            {
+                System.arraycopy(parentA, offsetA, child, offset, length);
+            }
+            double[] source = childIsB ? parentA : parentB;
+            int sourceOffset = childIsB ? offsetA : offsetB;
+            for (int base = 0; base < length; base += Long.SIZE)
+            {
+                long mask = childIsB ? ~bitMask.next(random) : bitMask.next(random);
+                int remaining = length - base;
+                if (remaining < Long.SIZE)
+                {
+                    mask &= (1L << remaining) - 1;
+                }
+                while (mask != 0)
+                {
+                    int i = base + Long.numberOfTrailingZeros(mask);
+                    child[offset + i] = source[sourceOffset + i];
+                    mask &= mask - 1;
+                }
+            }
+        };
+    }
+
+    /**
+     * @param probability probability that a layer is taken from parent B
+     * @return crossover selecting complete layers
+     */
+    static Crossover layerwise(double probability)
+    {
+        return (parentA, offsetA, parentB, offsetB, child, offset, layout, random) -> {
+            for (int layer = 0; layer < layout.getLayers(); layer++)
+            {
+                int from = layout.getWeightsOffset(layer);
+                boolean useB = random.nextDouble() < probability;
+                System.arraycopy(useB ? parentB : parentA, (useB ? offsetB : offsetA) + from, child, offset + from,
+                                layout.getLayerEnd(layer) - from);
+            }
+        };
+    }
+
+    /**
+     * @param probability probability that a neuron is taken from parent B
+     * @return crossover selecting neurons (incoming weights and bias)
+     */
+    static Crossover neuronwise(double probability)
+    {
+        BitMask bitMask = new BitMask(probability);
+        return (parentA, offsetA, parentB, offsetB, child, offset, layout, random) -> {
+            long mask = 0;
+            int available = 0;
+            for (int layer = 0; layer < layout.getLayers(); layer++)
+            {
+                int cols = layout.getColumns(layer);
+                int weights = layout.getWeightsOffset(layer);
+                int biases = layout.getBiasesOffset(layer);
+                for (int row = 0; row < layout.getRows(layer); row++)
+                {
+                    if (available == 0)
+                    {
+                        mask = bitMask.next(random);
+                        available = Long.SIZE;
+                    }
+                    boolean useB = (mask & 1) != 0;
+                    mask >>>= 1;
+                    available--;
+                    double[] source = useB ? parentB : parentA;
+                    int sourceOffset = useB ? offsetB : offsetA;
+                    int rowStart = weights + row * cols;
+                    System.arraycopy(source, sourceOffset + rowStart, child, offset + rowStart, cols);
+                    child[offset + biases + row] = source[sourceOffset + biases + row];
+                }
+            }
+        };
+    }
+
+    /**
+     * @return crossover taking the values before a random cut point from parent A, the rest from parent B
+     */
+    static Crossover singlePoint()
+    {
+        return multiPoint(1);
+    }
+
+    /**
+     * @param points number of random cut points
+     * @return crossover taking the ranges between the cut points alternately from parent A and parent B
+     */
+    static Crossover multiPoint(int points)
+    {
+        return (parentA, offsetA, parentB, offsetB, child, offset, layout, random) -> {
+            int length = layout.getParameterCount();
+            int[] cuts = new int[points + 1];
+            for (int i = 0; i < points; i++)
+            {
+                cuts[i] = random.nextInt(length + 1);
+            }
+            cuts[points] = length;
+            Arrays.sort(cuts, 0, points);
+            int from = 0;
+            for (int i = 0; i < cuts.length; i++)
+            {
+                boolean useB = i % 2 == 1;
+                System.arraycopy(useB ? parentB : parentA, (useB ? offsetB : offsetA) + from, child, offset + from,
+                                cuts[i] - from);
+                from = cuts[i];
+            }
+        };
+    }
+
+    /**
+     * @param alpha weight of parent A
+     * @return crossover creating <code>alpha * A + (1 - alpha) * B</code>
+     */
+    static Crossover blend(double alpha)
+    {
+        return (parentA, offsetA, parentB, offsetB, child, offset, layout, random) -> {
+            for (int i = 0; i < layout.getParameterCount(); i++)
+            {
+                child[offset + i] = alpha * parentA[offsetA + i] + (1 - alpha) * parentB[offsetB + i];
+            }
+        };
+    }
+}
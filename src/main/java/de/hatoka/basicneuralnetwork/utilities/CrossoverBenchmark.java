@@ -0,0 +1,67 @@
+package de.hatoka.basicneuralnetwork.utilities;
+
+import java.util.SplittableRandom;
+
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+
+/**
+ * CrossoverBenchmark compares the uniform crossover of the flat parameter arrays with merging matrix by matrix via
+ * mergeMatrices of {@link MatrixUtilities} and logs the mean time per crossover. It's not part of the unit tests, the
+ * timings depend on the machine.
+ */
+public class CrossoverBenchmark
+{
+    /**
+     * @param hiddenNodes nodes of both hidden layers of the networks
+     * @param rounds number of measured crossovers per variant
+     * @return mean nanoseconds per crossover of mergeMatrices and of the bulk crossover
+     */
+    public static long[] measure(int hiddenNodes, int rounds)
+    {
+        NeuralNetwork nnA = NetworkBuilder.create(100, 10).setHiddenLayers(2, hiddenNodes).setSeed(1).build();
+        NeuralNetwork nnB = NetworkBuilder.create(100, 10).setHiddenLayers(2, hiddenNodes).setSeed(2).build();
+        ParameterLayout layout = nnA.getParameterLayout();
+        int length = layout.getParameterCount();
+        double[] parents = new double[2 * length];
+        nnA.copyParameters(parents, 0);
+        nnB.copyParameters(parents, length);
+        double[] child = new double[length];
+        SplittableRandom random = new SplittableRandom(1);
+        Crossover uniform = Crossover.uniform(0.5);
+        long matrixNanos = 0;
+        long arrayNanos = 0;
+        for (int round = 0; round < rounds; round++)
+        {
+            long start = System.nanoTime();
+            for (int layer = 0; layer < layout.getLayers(); layer++)
+            {
+                MatrixUtilities.mergeMatrices(nnA.getWeights()[layer], nnB.getWeights()[layer], 0.5, random);
+                MatrixUtilities.mergeMatrices(nnA.getBiases()[layer], nnB.getBiases()[layer], 0.5, random);
+            }
+            matrixNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            uniform.apply(parents, 0, parents, length, child, 0, layout, random);
+            arrayNanos += System.nanoTime() - start;
+        }
+        return new long[] { matrixNanos / rounds, arrayNanos / rounds };
+    }
+
+    /**
+     * Runs the benchmark after a warm up and logs the timings.
+     * @param args optional nodes per hidden layer (default 200) and number of rounds (default 50)
+     */
+    public static void main(String[] args)
+    {
+        int hiddenNodes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        measure(hiddenNodes, rounds);
+        long[] nanos = measure(hiddenNodes, rounds);
+        LoggerFactory.getLogger(CrossoverBenchmark.class)
+                     .info("uniform crossover with {} hidden nodes: mergeMatrices {} µs, bulk {} µs", hiddenNodes,
+                                     nanos[0] / 1000, nanos[1] / 1000);
+    }
+}
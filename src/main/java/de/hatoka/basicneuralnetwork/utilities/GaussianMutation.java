@@ -0,0 +1,177 @@
+package de.hatoka.basicneuralnetwork.utilities;
+
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * GaussianMutation adds normal distributed offsets to randomly selected values of a parameter array.
+ * <ul>
+ * <li>The values to mutate are found via geometric skip sampling: the distance to the next mutated value is drawn
+ * directly, so only one random number per mutated value is necessary instead of one per value.</li>
+ * <li>For the probability 0.5 one random long decides about 64 values.</li>
+ * <li>The offsets are drawn via {@link RandomGenerator#nextGaussian()}, which uses a ziggurat algorithm for all
+ * generators except the legacy {@link java.util.Random} (synchronized Box-Muller).</li>
+ * </ul>
+ */
+public class GaussianMutation
+{
+    /**
+     * default standard deviation of offsets
+     */
+    public static final double DEFAULT_STRENGTH = 0.5;
+
+    private static final double HALF = 0.5;
+
+    private final double probability;
+    private final double strength;
+    /**
+     * log(1 - probability) used for geometric skip sampling
+     */
+    private final double logInverseProbability;
+
+    /**
+     * @param probability probability that a value is mutated
+     * @param strength standard deviation of offsets
+     */
+    public GaussianMutation(double probability, double strength)
+    {
+        this.probability = probability;
+        this.strength = strength;
+        this.logInverseProbability = Math.log1p(-probability);
+    }
+
+    /**
+     * @param probability probability that a value is mutated
+     * @return mutation with {@link #DEFAULT_STRENGTH}
+     */
+    public static GaussianMutation of(double probability)
+    {
+        return new GaussianMutation(probability, DEFAULT_STRENGTH);
+    }
+
+    public double getProbability()
+    {
+        return probability;
+    }
+
+    public double getStrength()
+    {
+        return strength;
+    }
+
+    /**
+     * Mutates the values of the given range.
+     * @param values parameters
+     * @param from first position of range (inclusive)
+     * @param to last position of range (exclusive)
+     * @param random source of random values
+     * @return number of mutated values
+     */
+    public int mutate(double[] values, int from, int to, RandomGenerator random)
+    {
+        return mutate(() -> values, from, to, random);
+    }
+
+    /**
+     * Mutates the values of the given range. The array is requested once before the first mutated value is written,
+     * so shared values can be copied on demand (copy on write). The array isn't requested if no value is mutated.
+     * @param values provides the parameters
+     * @param from first position of range (inclusive)
+     * @param to last position of range (exclusive)
+     * @param random source of random values
+     * @return number of mutated values
+     */
+    public int mutate(Supplier<double[]> values, int from, int to, RandomGenerator random)
+    {
+        double[][] target = new double[1][];
+        return sample(from, to, random, (index, offset) -> {
+            if (target[0] == null)
+            {
+                target[0] = values.get();
+            }
+            target[0][index] += offset;
+        });
+    }
+
+    /**
+     * Selects the values to mutate and draws the offsets without applying them, e.g. to store them as sparse delta.
+     * The positions are reported in ascending order. For the same random stream the positions and offsets are the
+     * same as applied by {@link #mutate(double[], int, int, RandomGenerator)}.
+     * @param from first position of range (inclusive)
+     * @param to last position of range (exclusive)
+     * @param random source of random values
+     * @param consumer receives position and offset of each mutated value
+     * @return number of mutated values
+     */
+    public int sample(int from, int to, RandomGenerator random, OffsetConsumer consumer)
+    {
+        if (probability <= 0 || from >= to)
+        {
+            return 0;
+        }
+        if (probability >= 1)
+        {
+            for (int i = from; i < to; i++)
+            {
+                consumer.accept(i, strength * random.nextGaussian());
+            }
+            return to - from;
+        }
+        if (probability == HALF)
+        {
+            return sampleByBits(from, to, random, consumer);
+        }
+        int count = 0;
+        for (long i = from + skip(random, to - from); i < to; i += 1 + skip(random, to - i))
+        {
+            consumer.accept((int)i, strength * random.nextGaussian());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param random source of random values
+     * @param limit number of remaining values, larger skips are clamped
+     * @return number of values not mutated before the next mutated value (geometric distribution)
+     */
+    private long skip(RandomGenerator random, long limit)
+    {
+        // 1 - nextDouble() is in (0, 1], so the logarithm is finite, the quotient saturates for tiny probabilities
+        return Math.min((long)(Math.log(1 - random.nextDouble()) / logInverseProbability), limit);
+    }
+
+    private int sampleByBits(int from, int to, RandomGenerator random, OffsetConsumer consumer)
+    {
+        int count = 0;
+        for (int base = from; base < to; base += Long.SIZE)
+        {
+            long bits = random.nextLong();
+            int length = to - base;
+            if (length < Long.SIZE)
+            {
+                bits &= (1L << length) - 1;
+            }
+            while (bits != 0)
+            {
+                consumer.accept(base + Long.numberOfTrailingZeros(bits), strength * random.nextGaussian());
+                bits &= bits - 1;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Receives the mutations selected by {@link GaussianMutation#sample(int, int, RandomGenerator, OffsetConsumer)}
+     */
+    @FunctionalInterface
+    public interface OffsetConsumer
+    {
+        /**
+         * @param index position of mutated value
+         * @param offset offset added to the value
+         */
+        void accept(int index, double offset);
+    }
+}
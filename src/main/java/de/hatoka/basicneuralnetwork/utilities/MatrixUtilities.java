@@ -5,6 +5,8 @@ import org.ejml.simple.SimpleMatrix;
 import de.hatoka.basicneuralnetwork.WrongDimensionException;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Created by KimFeichtinger on 07.03.18.
@@ -67,18 +69,31 @@ public class MatrixUtilities
     }
 
     /**
+     * Uses the random generator of the current thread, provide a seeded generator for reproducible results.
      * @param matrixA matrix one
      * @param matrixB matrix two
      * @param probability that value from matrixB is used (executed for each element of the new matrix)
      * @return a new matrix merged from two given ones
      */
     public static SimpleMatrix mergeMatrices(SimpleMatrix matrixA, SimpleMatrix matrixB, double probability)
+    {
+        return mergeMatrices(matrixA, matrixB, probability, ThreadLocalRandom.current());
+    }
+
+    /**
+     * @param matrixA matrix one
+     * @param matrixB matrix two
+     * @param probability that value from matrixB is used (executed for each element of the new matrix)
+     * @param random source of random values
+     * @return a new matrix merged from two given ones
+     */
+    public static SimpleMatrix mergeMatrices(SimpleMatrix matrixA, SimpleMatrix matrixB, double probability,
+                    RandomGenerator random)
     {
         if (matrixA.getNumCols() != matrixB.getNumCols() || matrixA.getNumRows() != matrixB.getNumRows())
         {
             throw new WrongDimensionException();
         }
-        Random random = new Random();
         SimpleMatrix result = new SimpleMatrix(matrixA.getNumRows(), matrixA.getNumCols());
 
         for (int i = 0; i < matrixA.getNumElements(); i++)
@@ -0,0 +1,253 @@
+package de.hatoka.basicneuralnetwork.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import de.hatoka.basicneuralnetwork.InputNormalization;
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NetworkConfiguration;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunctions;
+import de.hatoka.basicneuralnetwork.optimizers.OptimizerState;
+import de.hatoka.basicneuralnetwork.optimizers.Optimizers;
+
+/**
+ * NetworkCodec writes networks in a compact binary format (big endian), e.g. to transfer them between processes. In
+ * contrast to the JSON of {@link FileReaderAndWriter} the parameters are written as raw doubles.
+ *
+ * <pre>
+ * int    magic 'BNN3'
+ * int    input nodes
+ * int    output nodes
+ * int    number of hidden layers, followed by the nodes per hidden layer (int)
+ * double learning rate
+ * byte   activation function (ordinal)
+ * long   seed
+ * byte   optimizer (ordinal)
+ * double parameters in order of {@link ParameterLayout}
+ * int    number of optimizer state values per parameter (0 without state), followed by
+ * long   steps of optimizer
+ * double state values, parameter by parameter for each state value
+ * int    number of features of the input normalization (0 without normalization), followed by
+ * double mean per feature
+ * double standard deviation per feature
+ * </pre>
+ *
+ * The formats 'BNN1' (without optimizer and state) and 'BNN2' (without input normalization) are still read. Counts
+ * and sizes are validated before arrays are allocated, so corrupted or hostile input is reported as
+ * {@link IOException}.
+ */
+public class NetworkCodec
+{
+    private static final int MAGIC = 0x424E4E33;
+    private static final int MAGIC_V2 = 0x424E4E32;
+    private static final int MAGIC_V1 = 0x424E4E31;
+    /**
+     * maximal number of nodes of one layer
+     */
+    private static final int MAX_NODES = 1 << 20;
+    /**
+     * maximal number of hidden layers
+     */
+    private static final int MAX_HIDDEN_LAYERS = 1 << 10;
+    /**
+     * maximal number of parameters (512 MB of doubles)
+     */
+    private static final long MAX_PARAMETERS = 1L << 26;
+
+    /**
+     * @param nn network to write
+     * @param output receives the network
+     * @throws IOException in case writing fails
+     */
+    public void write(NeuralNetwork nn, DataOutput output) throws IOException
+    {
+        NetworkConfiguration config = nn.getConfiguration();
+        output.writeInt(MAGIC);
+        output.writeInt(config.getInputNodes());
+        output.writeInt(config.getOutputNodes());
+        output.writeInt(config.getHiddenLayers().length);
+        for (int nodes : config.getHiddenLayers())
+        {
+            output.writeInt(nodes);
+        }
+        output.writeDouble(config.getLearningRate());
+        output.writeByte(config.getActivationFunction().ordinal());
+        output.writeLong(config.getSeed());
+        output.writeByte(config.getOptimizer().ordinal());
+        ParameterLayout layout = nn.getParameterLayout();
+        double[] parameters = new double[layout.getParameterCount()];
+        nn.copyParameters(parameters, 0);
+        for (double parameter : parameters)
+        {
+            output.writeDouble(parameter);
+        }
+        OptimizerState state = nn.getOptimizerState();
+        output.writeInt(state == null ? 0 : state.getStateSize());
+        if (state != null)
+        {
+            output.writeLong(state.getSteps());
+            for (int i = 0; i < state.getStateSize(); i++)
+            {
+                for (double value : state.getValues(i))
+                {
+                    output.writeDouble(value);
+                }
+            }
+        }
+        InputNormalization normalization = nn.getInputNormalization();
+        output.writeInt(normalization == null ? 0 : normalization.size());
+        if (normalization != null)
+        {
+            writeDoubles(normalization.getMean(), output);
+            writeDoubles(normalization.getStandardDeviation(), output);
+        }
+    }
+
+    private static void writeDoubles(double[] values, DataOutput output) throws IOException
+    {
+        for (double value : values)
+        {
+            output.writeDouble(value);
+        }
+    }
+
+    private static double[] readDoubles(int count, DataInput input) throws IOException
+    {
+        double[] result = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            result[i] = input.readDouble();
+        }
+        return result;
+    }
+
+    /**
+     * @param input provides the network
+     * @return network read from input
+     * @throws IOException in case reading fails or the input doesn't contain a network
+     */
+    public NeuralNetwork read(DataInput input) throws IOException
+    {
+        int magic = input.readInt();
+        if (magic != MAGIC && magic != MAGIC_V2 && magic != MAGIC_V1)
+        {
+            throw new IOException("Input doesn't contain a network (magic " + Integer.toHexString(magic) + ").");
+        }
+        int inputNodes = readCount(input, 1, MAX_NODES, "input nodes");
+        int outputNodes = readCount(input, 1, MAX_NODES, "output nodes");
+        int[] hiddenLayers = new int[readCount(input, 0, MAX_HIDDEN_LAYERS, "hidden layers")];
+        long parameterCount = 0;
+        int previous = inputNodes;
+        for (int i = 0; i < hiddenLayers.length; i++)
+        {
+            hiddenLayers[i] = readCount(input, 1, MAX_NODES, "hidden nodes");
+            parameterCount += (previous + 1L) * hiddenLayers[i];
+            previous = hiddenLayers[i];
+        }
+        parameterCount += (previous + 1L) * outputNodes;
+        if (parameterCount > MAX_PARAMETERS)
+        {
+            throw new IOException("Network with " + parameterCount + " parameters exceeds " + MAX_PARAMETERS + ".");
+        }
+        double learningRate = input.readDouble();
+        int activationFunction = input.readByte();
+        if (activationFunction < 0 || activationFunction >= ActivationFunctions.values().length)
+        {
+            throw new IOException("Unknown activation function " + activationFunction + ".");
+        }
+        long seed = input.readLong();
+        int optimizer = magic == MAGIC_V1 ? Optimizers.SGD.ordinal() : input.readByte();
+        if (optimizer < 0 || optimizer >= Optimizers.values().length)
+        {
+            throw new IOException("Unknown optimizer " + optimizer + ".");
+        }
+        NeuralNetwork result = NetworkBuilder.create(inputNodes, outputNodes).setHiddenLayerNodes(hiddenLayers)
+                                             .setLearningRate(learningRate)
+                                             .setActivationFunction(ActivationFunctions.values()[activationFunction])
+                                             .setOptimizer(Optimizers.values()[optimizer]).setSeed(seed).build();
+        double[] parameters = new double[result.getParameterLayout().getParameterCount()];
+        for (int i = 0; i < parameters.length; i++)
+        {
+            parameters[i] = input.readDouble();
+        }
+        result.setParameters(parameters, 0);
+        int stateSize = magic == MAGIC_V1 ? 0 : input.readInt();
+        int expectedStateSize = result.getConfiguration().getOptimizer().getOptimizer().getStateSize();
+        if (stateSize != 0 && stateSize != expectedStateSize)
+        {
+            throw new IOException("Optimizer state size " + stateSize + " doesn't fit to optimizer "
+                            + result.getConfiguration().getOptimizer() + ".");
+        }
+        if (stateSize > 0)
+        {
+            OptimizerState state = new OptimizerState(stateSize, parameters.length, input.readLong());
+            for (int i = 0; i < stateSize; i++)
+            {
+                double[] values = state.getValues(i);
+                for (int j = 0; j < values.length; j++)
+                {
+                    values[j] = input.readDouble();
+                }
+            }
+            result.setOptimizerState(state);
+        }
+        int features = magic == MAGIC ? readCount(input, 0, inputNodes, "normalized features") : 0;
+        if (features != 0 && features != inputNodes)
+        {
+            throw new IOException("Input normalization with " + features + " features doesn't fit to " + inputNodes
+                            + " input nodes.");
+        }
+        if (features > 0)
+        {
+            double[] mean = readDoubles(features, input);
+            result.setInputNormalization(new InputNormalization(mean, readDoubles(features, input)));
+        }
+        return result;
+    }
+
+    private static int readCount(DataInput input, int min, int max, String name) throws IOException
+    {
+        int result = input.readInt();
+        if (result < min || result > max)
+        {
+            throw new IOException("Invalid number of " + name + " " + result + ".");
+        }
+        return result;
+    }
+
+    /**
+     * @param nn network to write
+     * @return binary representation of network
+     */
+    public byte[] toBytes(NeuralNetwork nn)
+    {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try
+        {
+            write(nn, new DataOutputStream(result));
+        }
+        catch(IOException e)
+        {
+            // ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * @param bytes binary representation of network
+     * @return network
+     * @throws IOException in case the bytes don't contain a network
+     */
+    public NeuralNetwork fromBytes(byte[] bytes) throws IOException
+    {
+        return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
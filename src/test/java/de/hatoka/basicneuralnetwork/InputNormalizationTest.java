@@ -0,0 +1,125 @@
+package de.hatoka.basicneuralnetwork;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.dataset.ArrayDataset;
+import de.hatoka.basicneuralnetwork.dataset.Sample;
+import de.hatoka.basicneuralnetwork.training.Trainer;
+import de.hatoka.basicneuralnetwork.utilities.FileReaderAndWriter;
+
+class InputNormalizationTest
+{
+    private final List<Path> createdFiles = new ArrayList<>();
+    private final double[][] inputs = new double[500][3];
+    private final double[][] targets = new double[500][1];
+
+    InputNormalizationTest()
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < inputs.length; i++)
+        {
+            // features with different scales, the last one is constant
+            inputs[i][0] = 1000 + random.nextDouble() * 200;
+            inputs[i][1] = random.nextGaussian() * 0.01;
+            inputs[i][2] = 5;
+            targets[i][0] = inputs[i][0] > 1100 ? 1 : 0;
+        }
+    }
+
+    @AfterEach
+    public void removeCreateFiles()
+    {
+        createdFiles.forEach(p -> p.toFile().delete());
+        createdFiles.clear();
+    }
+
+    @Test
+    void statisticsTest()
+    {
+        InputNormalization normalization = InputNormalization.of(new ArrayDataset(inputs, targets));
+        double[] mean = new double[3];
+        double[] deviation = new double[3];
+        for (double[] input : inputs)
+        {
+            for (int c = 0; c < 3; c++)
+            {
+                mean[c] += input[c] / inputs.length;
+            }
+        }
+        for (double[] input : inputs)
+        {
+            for (int c = 0; c < 3; c++)
+            {
+                deviation[c] += (input[c] - mean[c]) * (input[c] - mean[c]) / inputs.length;
+            }
+        }
+        for (int c = 0; c < 2; c++)
+        {
+            assertEquals(mean[c], normalization.getMean()[c], Math.abs(mean[c]) * 1e-12);
+            assertEquals(Math.sqrt(deviation[c]), normalization.getStandardDeviation()[c], deviation[c] * 1e-9);
+        }
+        // constant feature is only shifted
+        assertEquals(5, normalization.getMean()[2]);
+        assertEquals(1, normalization.getStandardDeviation()[2]);
+
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 0; i < inputs.length; i++)
+        {
+            samples.add(new Sample(inputs[i], targets[i]));
+        }
+        InputNormalization streamed = InputNormalization.of(samples, 3);
+        assertArrayEquals(normalization.getMean(), streamed.getMean());
+        assertArrayEquals(normalization.getStandardDeviation(), streamed.getStandardDeviation());
+    }
+
+    @Test
+    void foldTest()
+    {
+        InputNormalization normalization = InputNormalization.of(new ArrayDataset(inputs, targets));
+        NeuralNetwork nn = NetworkBuilder.create(3, 1).setHiddenLayers(1, 4).setSeed(1).build();
+        new Trainer(nn).setNormalization(normalization).train(new ArrayDataset(inputs, targets), 5);
+        NeuralNetwork folded = nn.copy();
+        normalization.fold(folded);
+        assertNull(nn.getInputNormalization());
+        assertEquals(normalization, folded.getInputNormalization());
+        for (int i = 0; i < 20; i++)
+        {
+            double[] normalized = inputs[i].clone();
+            normalization.normalize(normalized);
+            assertEquals(nn.guess(normalized)[0], folded.guess(inputs[i])[0], 1e-12);
+        }
+        assertThrows(IllegalStateException.class, () -> normalization.fold(folded));
+        NeuralNetwork other = NetworkBuilder.create(2, 1).build();
+        assertThrows(WrongDimensionException.class, () -> normalization.fold(other));
+    }
+
+    @Test
+    void persistenceTest() throws IOException
+    {
+        InputNormalization normalization = InputNormalization.of(new ArrayDataset(inputs, targets));
+        NeuralNetwork nn = NetworkBuilder.create(3, 1).setSeed(1).build();
+        normalization.fold(nn);
+        Path file = Files.createTempFile("normalized_", ".json");
+        createdFiles.add(file);
+        FileReaderAndWriter readerAndWriter = new FileReaderAndWriter();
+        readerAndWriter.write(nn, file);
+        NeuralNetwork loaded = readerAndWriter.read(file);
+        assertArrayEquals(normalization.getMean(), loaded.getInputNormalization().getMean());
+        assertArrayEquals(normalization.getStandardDeviation(),
+                        loaded.getInputNormalization().getStandardDeviation());
+        assertArrayEquals(nn.guess(inputs[0]), loaded.guess(inputs[0]));
+    }
+}
@@ -1,11 +1,23 @@
 package de.hatoka.basicneuralnetwork;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.ejml.simple.SimpleMatrix;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -117,6 +129,31 @@ class NeuralNetworkTest
         assertAll(() -> nn.train(new double[] { 0 }, new double[] { 0, 1, 2, 3 }));
     }
 
+    @Test
+    public void gradientTest()
+    {
+        ParameterLayout layout = nn.getParameterLayout();
+        double[] before = new double[layout.getParameterCount()];
+        nn.copyParameters(before, 0);
+        double[] gradient = new double[layout.getParameterCount()];
+        double error = nn.addGradient(new double[] { 0.5 }, new double[] { 0, 1, 0, 1 }, gradient, 0);
+        assertTrue(error > 0);
+        // network isn't modified
+        double[] unchanged = new double[layout.getParameterCount()];
+        nn.copyParameters(unchanged, 0);
+        assertArrayEquals(before, unchanged);
+
+        // train adapts the output layer first, so the adaption of this layer is the same
+        nn.train(new double[] { 0.5 }, new double[] { 0, 1, 0, 1 });
+        double[] after = new double[layout.getParameterCount()];
+        nn.copyParameters(after, 0);
+        int outputLayer = layout.getLayers() - 1;
+        for (int i = layout.getWeightsOffset(outputLayer); i < layout.getLayerEnd(outputLayer); i++)
+        {
+            assertEquals(after[i] - before[i], nn.getLearningRate() * gradient[i], 1e-12);
+        }
+    }
+
     @Test
     public void equalsTest()
     {
@@ -125,6 +162,34 @@ class NeuralNetworkTest
         assertEquals(nnB, nn);
     }
 
+    @Test
+    public void fingerprintTest()
+    {
+        long fingerprint = nn.getFingerprint();
+        NeuralNetwork nnB = nn.copy();
+        assertEquals(fingerprint, nnB.getFingerprint());
+        // incremental update by mutate equals full calculation
+        nnB.mutate(0.3);
+        assertNotEquals(fingerprint, nnB.getFingerprint());
+        double[] parameters = new double[nnB.getParameterLayout().getParameterCount()];
+        nnB.copyParameters(parameters, 0);
+        NeuralNetwork nnC = nn.copy();
+        nnC.setParameters(parameters, 0);
+        assertEquals(nnB.getFingerprint(), nnC.getFingerprint());
+        assertEquals(nnB, nnC);
+        // changes via matrices are visible after getWeights
+        nnC.getWeights()[0].set(0, 0, 42);
+        assertNotEquals(nnB.getFingerprint(), nnC.getFingerprint());
+        assertNotEquals(nnB, nnC);
+        // -0.0 and 0.0 are equal
+        nnB.getBiases()[0].set(0, 0, 0.0);
+        nnC = nnB.copy();
+        nnC.getBiases()[0].set(0, 0, -0.0);
+        assertEquals(nnB.getFingerprint(), nnC.getFingerprint());
+        assertEquals(nnB, nnC);
+        assertEquals(nnB.hashCode(), nnC.hashCode());
+    }
+
     @Test
     public void copyTest()
     {
@@ -140,6 +205,49 @@ class NeuralNetworkTest
         assertEquals(nn, nnB);
     }
 
+    @Test
+    public void copyOnWriteTest()
+    {
+        NeuralNetwork original = nn.copy();
+        NeuralNetwork nnB = nn.copy();
+        // changes of the copy are not visible in the source and vice versa
+        nnB.mutate(1.0);
+        assertEquals(original, nn);
+        nn.mutate(1.0);
+        assertNotEquals(original, nn);
+        assertNotEquals(nnB, nn);
+        NeuralNetwork nnC = nnB.copy();
+        nnC.getWeights()[0].set(0, 0, 42);
+        nnC.getBiases()[0].set(0, 0, 42);
+        assertNotEquals(42, nnB.getWeights()[0].get(0, 0));
+        assertNotEquals(42, nnB.getBiases()[0].get(0, 0));
+        NeuralNetwork nnD = nnB.copy();
+        nnD.train(new double[] { 1 }, new double[] { 1, 0, 1, 0 });
+        assertNotEquals(nnB, nnD);
+        assertEquals(nnB, nnB.copy());
+    }
+
+    @Test
+    public void readOnlyAccessTest()
+    {
+        NeuralNetwork nnB = nn.copy();
+        long stamp = nnB.getLayerStamp(0);
+        double[] parameters = new double[nn.getParameterLayout().getParameterCount()];
+        nnB.copyParameters(parameters, 0);
+        assertEquals(parameters[0], nnB.getWeight(0, 0, 0));
+        assertEquals(parameters[nn.getParameterLayout().getBiasesOffset(0)], nnB.getBias(0, 0));
+        // reading keeps the stamps, writable access renews them
+        assertEquals(stamp, nnB.getLayerStamp(0));
+        nnB.getWeights();
+        assertNotEquals(stamp, nnB.getLayerStamp(0));
+        // the last network referencing a matrix keeps it, the other one copies it before writing
+        nnB = nn.copy();
+        nnB.mutate(1.0);
+        nn.mutate(1.0);
+        assertNotEquals(nnB, nn);
+        assertNotEquals(parameters[0], nn.getWeight(0, 0, 0));
+    }
+
     @Test
     public void mergeTestWrongDimension()
     {
@@ -149,6 +257,18 @@ class NeuralNetworkTest
                         exception.getMessage());
     }
 
+    @Test
+    public void mergeTestWrongDeeperLayers()
+    {
+        NeuralNetwork smaller = NetworkBuilder.create(2, 1).setHiddenLayerNodes(3, 4).build();
+        NeuralNetwork larger = NetworkBuilder.create(2, 1).setHiddenLayerNodes(3, 5).build();
+        assertFalse(smaller.hasSameLayers(larger));
+        Throwable exception = assertThrows(WrongDimensionException.class, () -> smaller.merge(larger));
+        assertEquals("The dimensions of these two neural networks don't match: [2, 3, 4, 1], [2, 3, 5, 1]",
+                        exception.getMessage());
+        assertThrows(WrongDimensionException.class, () -> larger.merge(smaller));
+    }
+
     @Test
     public void mergeTest()
     {
@@ -192,6 +312,83 @@ class NeuralNetworkTest
         assertAll(() -> nn.mutate(0.5));
     }
 
+    @Test
+    public void mutateReproducibleTest()
+    {
+        NeuralNetwork nnA = DEFAULT_BUILDER.setSeed(4711L).build();
+        NeuralNetwork nnB = DEFAULT_BUILDER.setSeed(4711L).build();
+        nnA.mutate(0.5);
+        nnB.mutate(0.5);
+        assertEquals(nnA, nnB);
+        // copies get independent streams, split in the same order they are reproducible
+        NeuralNetwork copyA = nnA.copy();
+        NeuralNetwork copyB = nnB.copy();
+        copyA.mutate(0.5);
+        copyB.mutate(0.5);
+        assertEquals(copyA, copyB);
+        nnA.mutate(0.5);
+        assertNotEquals(copyA, nnA);
+    }
+
+    @Test
+    public void concurrentCopyTest() throws Exception
+    {
+        NeuralNetwork parent = DEFAULT_BUILDER.setSeed(4711L).build();
+        List<Callable<NeuralNetwork>> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+        {
+            tasks.add(() -> {
+                NeuralNetwork child = parent.copy();
+                child.mutate(1.0);
+                return child;
+            });
+        }
+        Set<Long> fingerprints = new HashSet<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8))
+        {
+            for (Future<NeuralNetwork> child : executor.invokeAll(tasks))
+            {
+                fingerprints.add(child.get().getFingerprint());
+            }
+        }
+        // each copy got an own stream
+        assertEquals(200, fingerprints.size());
+        // copies don't change the stream of the source
+        NeuralNetwork untouched = DEFAULT_BUILDER.setSeed(4711L).build();
+        parent.mutate(0.5);
+        untouched.mutate(0.5);
+        assertEquals(untouched, parent);
+    }
+
+    @Test
+    public void mergeReproducibleTest()
+    {
+        NeuralNetwork nnA = DEFAULT_BUILDER.setSeed(4711L).build();
+        NeuralNetwork nnB = DEFAULT_BUILDER.setSeed(4711L).build();
+        NeuralNetwork other = DEFAULT_BUILDER.setSeed(42L).build();
+        assertEquals(nnA.merge(other), nnB.merge(other));
+        assertEquals(nnA.merge(other, 0.3, new SplittableRandom(1)), nnB.merge(other, 0.3, new SplittableRandom(1)));
+    }
+
+    @Test
+    public void parametersTest()
+    {
+        ParameterLayout layout = nn.getParameterLayout();
+        assertEquals(hiddenLayers + 1, layout.getLayers());
+        assertEquals((inputNodes + 1) * hiddenNodes + (hiddenNodes + 1) * hiddenNodes + (hiddenNodes + 1) * outputNodes,
+                        layout.getParameterCount());
+        double[] parameters = new double[layout.getParameterCount() + 1];
+        nn.copyParameters(parameters, 1);
+        assertEquals(nn.getWeights()[1].get(0), parameters[1 + layout.getWeightsOffset(1)]);
+        assertEquals(nn.getBiases()[2].get(outputNodes - 1), parameters[layout.getParameterCount()]);
+
+        NeuralNetwork other = DEFAULT_BUILDER.build();
+        assertNotEquals(nn, other);
+        other.setParameters(parameters, 1);
+        assertTrue(nn.getWeights()[2].isIdentical(other.getWeights()[2], 0));
+        assertTrue(nn.getBiases()[0].isIdentical(other.getBiases()[0], 0));
+    }
+
     @Test
     public void testConfigurationChanges()
     {
@@ -0,0 +1,191 @@
+package de.hatoka.basicneuralnetwork.dataset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+class MappedDatasetTest
+{
+    private final List<Path> createdFiles = new ArrayList<>();
+    private final NeuralNetwork nn = NetworkBuilder.create(3, 2).setHiddenLayers(1, 4).setSeed(1).build();
+    private final ArrayDataset dataset = createDataset(1000);
+
+    @AfterEach
+    public void removeCreateFiles()
+    {
+        createdFiles.forEach(p -> p.toFile().delete());
+        createdFiles.clear();
+    }
+
+    private static ArrayDataset createDataset(int size)
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        double[][] inputs = new double[size][3];
+        double[][] targets = new double[size][2];
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < 3; j++)
+            {
+                inputs[i][j] = random.nextDouble();
+            }
+            targets[i][0] = inputs[i][0] * inputs[i][1];
+            targets[i][1] = 1 - inputs[i][2];
+        }
+        return new ArrayDataset(inputs, targets);
+    }
+
+    private Path writeDataset() throws IOException
+    {
+        Path file = Files.createTempFile("dataset_", ".bnd");
+        createdFiles.add(file);
+        try (DatasetWriter writer = DatasetWriter.create(file, nn))
+        {
+            writer.write(dataset);
+            assertEquals(dataset.size(), writer.getRows());
+        }
+        return file;
+    }
+
+    private static void assertSamples(Dataset expected, Dataset actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getInputSize(), actual.getInputSize());
+        assertEquals(expected.getTargetSize(), actual.getTargetSize());
+        double[] expectedValues = new double[expected.getInputSize()];
+        double[] actualValues = new double[expected.getInputSize()];
+        for (int i = 0; i < expected.size(); i++)
+        {
+            expected.copyInput(i, expectedValues, 0);
+            actual.copyInput(i, actualValues, 0);
+            assertArrayEquals(expectedValues, actualValues);
+        }
+    }
+
+    @Test
+    void writeAndReadTest() throws IOException
+    {
+        Path file = writeDataset();
+        assertEquals(MappedDataset.HEADER_SIZE + 1000 * 5 * 8, Files.size(file));
+        try (MappedDataset mapped = MappedDataset.open(file))
+        {
+            assertSamples(dataset, mapped);
+            assertEquals(1, mapped.getChunks());
+            mapped.checkDimensions(nn);
+            double[] target = new double[2];
+            dataset.copyTarget(42, target, 0);
+            DoubleBuffer view = mapped.getTargetView(42);
+            assertEquals(2, view.remaining());
+            assertEquals(target[0], view.get(0));
+            assertEquals(target[1], view.get(1));
+            assertTrue(mapped.getInputView(0).isReadOnly());
+            assertEquals(3, mapped.getInputView(0).remaining());
+        }
+    }
+
+    @Test
+    void chunksTest() throws IOException
+    {
+        Path file = writeDataset();
+        // 7 rows of 40 bytes per chunk
+        try (MappedDataset mapped = MappedDataset.open(file, 7 * 40 + 39))
+        {
+            assertEquals((1000 + 6) / 7, mapped.getChunks());
+            assertSamples(dataset, mapped);
+            int[] indices = { 6, 7, 13, 14, 999 };
+            double[] expectedInputs = new double[indices.length * 3];
+            double[] expectedTargets = new double[indices.length * 2];
+            double[] inputs = new double[indices.length * 3];
+            double[] targets = new double[indices.length * 2];
+            dataset.copyBatch(indices, 0, indices.length, expectedInputs, expectedTargets);
+            mapped.copyBatch(indices, 0, indices.length, inputs, targets);
+            assertArrayEquals(expectedInputs, inputs);
+            assertArrayEquals(expectedTargets, targets);
+        }
+    }
+
+    @Test
+    void shuffledEpochTest() throws IOException
+    {
+        Path file = writeDataset();
+        NeuralNetwork fromArrays = nn.copy();
+        NeuralNetwork fromFile = nn.copy();
+        int[] order = new int[dataset.size()];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(2);
+        for (int i = order.length - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        try (MappedDataset mapped = MappedDataset.open(file))
+        {
+            // arrays are reused for each sample
+            double[] input = new double[3];
+            double[] target = new double[2];
+            for (int index : order)
+            {
+                dataset.copyInput(index, input, 0);
+                dataset.copyTarget(index, target, 0);
+                fromArrays.train(input, target);
+                mapped.copyInput(index, input, 0);
+                mapped.copyTarget(index, target, 0);
+                fromFile.train(input, target);
+            }
+        }
+        assertEquals(fromArrays, fromFile);
+    }
+
+    @Test
+    void wrongFileTest() throws IOException
+    {
+        Path file = writeDataset();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            channel.truncate(Files.size(file) - 8);
+        }
+        IOException exception = assertThrows(IOException.class, () -> MappedDataset.open(file));
+        assertTrue(exception.getMessage().contains("incomplete"));
+        Files.writeString(file, "no dataset");
+        assertThrows(IOException.class, () -> MappedDataset.open(file));
+    }
+
+    @Test
+    void wrongDimensionTest() throws IOException
+    {
+        Path file = Files.createTempFile("dataset_", ".bnd");
+        createdFiles.add(file);
+        try (DatasetWriter writer = new DatasetWriter(file, 3, 2))
+        {
+            assertThrows(WrongDimensionException.class, () -> writer.write(new double[2], new double[2]));
+        }
+        try (MappedDataset mapped = MappedDataset.open(file))
+        {
+            assertEquals(0, mapped.size());
+            assertThrows(WrongDimensionException.class,
+                            () -> mapped.checkDimensions(NetworkBuilder.create(2, 2).build()));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package de.hatoka.basicneuralnetwork.distributed;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class GradientCodecTest
+{
+    private static double[] createGradient(int length)
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++)
+        {
+            result[i] = random.nextGaussian() * 0.01;
+        }
+        return result;
+    }
+
+    /**
+     * @return received gradient, the given gradient contains the remainder
+     */
+    private static double[] transfer(GradientCodec codec, double[] gradient) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(gradient, new DataOutputStream(bytes));
+        assertEquals(codec.getSize(gradient.length), bytes.size());
+        double[] result = new double[gradient.length];
+        GradientCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), result);
+        return result;
+    }
+
+    @Test
+    void denseTest() throws IOException
+    {
+        double[] gradient = createGradient(100);
+        double[] expected = gradient.clone();
+        assertArrayEquals(expected, transfer(GradientCodec.dense(), gradient));
+        assertArrayEquals(new double[100], gradient);
+    }
+
+    @Test
+    void float16Test() throws IOException
+    {
+        double[] gradient = createGradient(100);
+        double[] expected = gradient.clone();
+        double[] received = transfer(GradientCodec.float16(), gradient);
+        assertEquals(1 + 4 + 8 + 100 * 2, GradientCodec.float16().getSize(100));
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(expected[i], received[i], Math.abs(expected[i]) * 1e-3 + 1e-9);
+            // remainder is the quantization error
+            assertEquals(expected[i], received[i] + gradient[i], 1e-15);
+        }
+    }
+
+    @Test
+    void topKTest() throws IOException
+    {
+        double[] gradient = createGradient(1000);
+        double[] expected = gradient.clone();
+        double[] received = transfer(GradientCodec.topK(0.05, false), gradient);
+        int count = 0;
+        double smallestSent = Double.MAX_VALUE;
+        double largestKept = 0;
+        for (int i = 0; i < expected.length; i++)
+        {
+            if (received[i] != 0)
+            {
+                count++;
+                assertEquals(expected[i], received[i]);
+                smallestSent = Math.min(smallestSent, Math.abs(received[i]));
+            }
+            else
+            {
+                assertEquals(expected[i], gradient[i]);
+                largestKept = Math.max(largestKept, Math.abs(gradient[i]));
+            }
+        }
+        assertEquals(50, count);
+        assertTrue(smallestSent >= largestKept);
+        // sparse float16 needs scale, index and half value per entry
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GradientCodec.topK(0.05, true).write(createGradient(1000), new DataOutputStream(bytes));
+        assertEquals(1 + 4 + 8 + 50 * (4 + 2), bytes.size());
+    }
+
+    @Test
+    void wrongInputTest()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertThrows(IOException.class, () -> {
+            GradientCodec.dense().write(createGradient(10), new DataOutputStream(bytes));
+            GradientCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), new double[5]);
+        });
+        assertThrows(IllegalArgumentException.class, () -> GradientCodec.of("zip"));
+        assertEquals(GradientCodec.topK(0.1, true).getSize(100), GradientCodec.of("topk16=0.1").getSize(100));
+    }
+
+    @Test
+    void corruptInputTest() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GradientCodec.topK(0.1, false).write(createGradient(100), new DataOutputStream(bytes));
+        // number of sparse values
+        for (int count : new int[] { -1, 101, Integer.MAX_VALUE })
+        {
+            byte[] corrupt = bytes.toByteArray();
+            ByteBuffer.wrap(corrupt).putInt(1, count);
+            assertThrows(IOException.class, () -> GradientCodec
+                            .read(new DataInputStream(new ByteArrayInputStream(corrupt)), new double[100]));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package de.hatoka.basicneuralnetwork.distributed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.genetic.EvolutionRunner;
+import de.hatoka.basicneuralnetwork.genetic.FitnessEvaluator;
+
+class IslandTest
+{
+    private static final double[][] INPUTS = { { 0, 0 }, { 0, 1 }, { 1, 0 }, { 1, 1 } };
+    private static final double[] TARGETS = { 0, 1, 1, 0 };
+
+    /**
+     * fitness of XOR function (0 is best), used by island processes
+     */
+    public static class XorFitness implements FitnessEvaluator
+    {
+        @Override
+        public double evaluate(NeuralNetwork nn)
+        {
+            double error = 0;
+            for (int i = 0; i < INPUTS.length; i++)
+            {
+                error += Math.abs(nn.guess(INPUTS[i])[0] - TARGETS[i]);
+            }
+            return -error;
+        }
+    }
+
+    private static List<NeuralNetwork> createPopulation(int size, long seed)
+    {
+        return createPopulation(size, seed, 4);
+    }
+
+    private static List<NeuralNetwork> createPopulation(int size, long seed, int hiddenNodes)
+    {
+        NetworkBuilder builder = NetworkBuilder.create(2, 1).setHiddenLayers(1, hiddenNodes);
+        List<NeuralNetwork> result = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            result.add(builder.setSeed(seed * size + i).build());
+        }
+        return result;
+    }
+
+    @Test
+    void migrationTest() throws Exception
+    {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        EvolutionRunner runner = new EvolutionRunner(new XorFitness());
+        try (Island islandA = new Island(runner, loopback); Island islandB = new Island(runner, loopback))
+        {
+            islandA.setNeighbor(islandB.getAddress()).setMigrationInterval(2).setMigrants(3);
+            islandB.setNeighbor(islandA.getAddress()).setMigrationInterval(2).setMigrants(3);
+            CompletableFuture<Island.Report> reportA = CompletableFuture.supplyAsync(
+                            () -> islandA.run(createPopulation(20, 1), 60, 1L));
+            CompletableFuture<Island.Report> reportB = CompletableFuture.supplyAsync(
+                            () -> islandB.run(createPopulation(20, 2), 60, 2L));
+            Island.Report a = reportA.get(60, TimeUnit.SECONDS);
+            Island.Report b = reportB.get(60, TimeUnit.SECONDS);
+            assertEquals(60, a.result().statistics().size());
+            assertEquals(20, a.result().population().size());
+            assertTrue(a.sent() > 0 && b.sent() > 0);
+            assertTrue(a.received() + b.received() > 0);
+        }
+    }
+
+    @Test
+    void differentLayersTest() throws Exception
+    {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        EvolutionRunner runner = new EvolutionRunner(new XorFitness());
+        try (Island islandA = new Island(runner, loopback); Island islandB = new Island(runner, loopback))
+        {
+            islandA.setNeighbor(islandB.getAddress()).setMigrationInterval(2).setMigrants(3);
+            islandB.setNeighbor(islandA.getAddress()).setMigrationInterval(2).setMigrants(3);
+            CompletableFuture<Island.Report> reportA = CompletableFuture.supplyAsync(
+                            () -> islandA.run(createPopulation(20, 1, 4), 30, 1L));
+            CompletableFuture<Island.Report> reportB = CompletableFuture.supplyAsync(
+                            () -> islandB.run(createPopulation(20, 2, 5), 30, 2L));
+            Island.Report a = reportA.get(60, TimeUnit.SECONDS);
+            Island.Report b = reportB.get(60, TimeUnit.SECONDS);
+            assertTrue(a.sent() > 0 && b.sent() > 0);
+            // migrants of the other island are dropped
+            assertEquals(0, a.received() + b.received());
+            NeuralNetwork expected = createPopulation(1, 1, 4).get(0);
+            assertTrue(a.result().population().stream().allMatch(expected::hasSameLayers));
+        }
+    }
+
+    @Test
+    void invalidGenerationsTest() throws Exception
+    {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (Island island = new Island(new EvolutionRunner(new XorFitness()), loopback))
+        {
+            assertThrows(IllegalArgumentException.class, () -> island.run(createPopulation(4, 1), 0, 1L));
+        }
+    }
+
+    /**
+     * Starts the islands as processes connected as ring
+     * @param islands number of islands
+     * @return generations per second of each island
+     */
+    private static double[] runProcesses(int islands) throws IOException, InterruptedException
+    {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        List<BufferedReader> outputs = new ArrayList<>();
+        int[] ports = new int[islands];
+        try
+        {
+            for (int i = 0; i < islands; i++)
+            {
+                Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                Island.class.getName(), XorFitness.class.getName(), "2", "4", "1", "40", "100",
+                                String.valueOf(i + 1), "5", "2").redirectError(ProcessBuilder.Redirect.DISCARD)
+                                                                  .start();
+                processes.add(process);
+                BufferedReader output = new BufferedReader(
+                                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                outputs.add(output);
+                ports[i] = Integer.parseInt(readLine(output, "LISTEN ").trim());
+            }
+            for (int i = 0; i < islands; i++)
+            {
+                Writer input = new OutputStreamWriter(processes.get(i).getOutputStream(), StandardCharsets.UTF_8);
+                input.write((islands == 1 ? 0 : ports[(i + 1) % islands]) + "\n");
+                input.flush();
+            }
+            double[] result = new double[islands];
+            for (int i = 0; i < islands; i++)
+            {
+                String line = readLine(outputs.get(i), "RESULT ");
+                result[i] = Double.parseDouble(line.replaceAll(".*generationsPerSecond=(\\S+).*", "$1"));
+                LoggerFactory.getLogger(IslandTest.class).info("island {}/{}: {}", i + 1, islands, line);
+            }
+            for (Process process : processes)
+            {
+                assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+            }
+            return result;
+        }
+        finally
+        {
+            processes.forEach(Process::destroyForcibly);
+        }
+    }
+
+    private static String readLine(BufferedReader reader, String prefix) throws IOException
+    {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            if (line.startsWith(prefix))
+            {
+                return line.substring(prefix.length());
+            }
+        }
+        assertNotNull(line, "process ended without " + prefix);
+        return line;
+    }
+
+    @Test
+    void scalingTest() throws Exception
+    {
+        for (int islands = 1; islands <= 3; islands++)
+        {
+            double[] generationsPerSecond = runProcesses(islands);
+            double total = 0;
+            for (double value : generationsPerSecond)
+            {
+                total += value;
+            }
+            LoggerFactory.getLogger(getClass()).info("{} island(s): {} generations per second in total", islands,
+                            total);
+            assertEquals(islands, generationsPerSecond.length);
+            assertTrue(total > 0);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package de.hatoka.basicneuralnetwork.distributed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.utilities.NetworkCodec;
+
+class ParameterServerTest
+{
+    private static final int SAMPLES = 400;
+    private static final int STEPS = 150;
+    private static final double[][] INPUTS = new double[SAMPLES][];
+    private static final double[][] TARGETS = new double[SAMPLES][];
+
+    static
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            INPUTS[i] = new double[] { x, y };
+            TARGETS[i] = new double[] { (x + y) / 2, x * y };
+        }
+    }
+
+    /**
+     * provides every n-th sample for worker processes
+     */
+    public static class Shards implements GradientWorker.ShardProvider
+    {
+        @Override
+        public GradientWorker createWorker(int shard, int shards)
+        {
+            List<double[]> inputs = new ArrayList<>();
+            List<double[]> targets = new ArrayList<>();
+            for (int i = shard; i < SAMPLES; i += shards)
+            {
+                inputs.add(INPUTS[i]);
+                targets.add(TARGETS[i]);
+            }
+            return new GradientWorker(inputs.toArray(double[][]::new), targets.toArray(double[][]::new));
+        }
+    }
+
+    private final NeuralNetwork nn = NetworkBuilder.create(2, 2).setHiddenLayers(1, 6).setLearningRate(2)
+                                                   .setSeed(1).build();
+
+    private static double loss(NeuralNetwork network)
+    {
+        double result = 0;
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            double[] output = network.guess(INPUTS[i]);
+            for (int j = 0; j < output.length; j++)
+            {
+                result += (output[j] - TARGETS[i][j]) * (output[j] - TARGETS[i][j]);
+            }
+        }
+        return result / SAMPLES / 2;
+    }
+
+    private static ParameterServer createServer(NeuralNetwork nn) throws IOException
+    {
+        return new ParameterServer(nn, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    private static List<GradientWorker.Report> runWorkers(ParameterServer server, int workers, GradientCodec codec)
+                    throws Exception
+    {
+        List<CompletableFuture<GradientWorker.Report>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++)
+        {
+            GradientWorker worker = new Shards().createWorker(i, workers).setBatchSize(16).setCodec(codec);
+            long seed = i;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try
+                {
+                    return worker.run(server.getAddress(), STEPS, seed);
+                }
+                catch(IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        List<GradientWorker.Report> result = new ArrayList<>();
+        for (CompletableFuture<GradientWorker.Report> future : futures)
+        {
+            result.add(future.get(60, TimeUnit.SECONDS));
+        }
+        assertTrue(server.awaitWorkers(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    @Test
+    void synchronousTest() throws Exception
+    {
+        try (ParameterServer server = createServer(nn).setWorkers(2))
+        {
+            List<GradientWorker.Report> reports = runWorkers(server, 2, GradientCodec.dense());
+            assertEquals(STEPS, server.getVersion());
+            assertEquals(2 * STEPS, server.getAppliedGradients());
+            assertEquals(0, server.getDroppedGradients());
+            assertTrue(loss(server.getNetwork()) < loss(nn) / 2, loss(server.getNetwork()) + " " + loss(nn));
+            assertEquals(STEPS, reports.get(0).steps());
+        }
+    }
+
+    @Test
+    void asynchronousTest() throws Exception
+    {
+        try (ParameterServer server = createServer(nn).setWorkers(3).setSynchronous(false).setMaxStaleness(1))
+        {
+            runWorkers(server, 3, GradientCodec.dense());
+            assertEquals(3 * STEPS, server.getAppliedGradients() + server.getDroppedGradients());
+            assertEquals(server.getVersion(), server.getAppliedGradients());
+            assertTrue(loss(server.getNetwork()) < loss(nn) / 2, loss(server.getNetwork()) + " " + loss(nn));
+        }
+    }
+
+    @Test
+    void compressedTest() throws Exception
+    {
+        long denseBytes;
+        try (ParameterServer server = createServer(nn).setWorkers(2))
+        {
+            denseBytes = runWorkers(server, 2, GradientCodec.dense()).get(0).sentBytes();
+        }
+        try (ParameterServer server = createServer(nn).setWorkers(2))
+        {
+            long sparseBytes = runWorkers(server, 2, GradientCodec.topK(0.25, true)).get(0).sentBytes();
+            LoggerFactory.getLogger(getClass()).info("sent bytes dense {}, top-k float16 {}", denseBytes,
+                            sparseBytes);
+            assertTrue(sparseBytes * 3 < denseBytes);
+            assertTrue(loss(server.getNetwork()) < loss(nn) / 2, loss(server.getNetwork()) + " " + loss(nn));
+        }
+    }
+
+    @Test
+    void invalidBatchTest() throws Exception
+    {
+        try (ParameterServer server = createServer(nn);
+                        Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+                        DataInputStream input = new DataInputStream(socket.getInputStream());
+                        DataOutputStream output = new DataOutputStream(socket.getOutputStream()))
+        {
+            NeuralNetwork received = new NetworkCodec().read(input);
+            output.writeLong(input.readLong());
+            output.writeInt(0);
+            GradientCodec.dense().write(new double[received.getParameterLayout().getParameterCount()], output);
+            output.flush();
+            // the server closes the connection without applying the gradient
+            assertEquals(-1, input.read());
+            assertTrue(server.awaitWorkers(10, TimeUnit.SECONDS));
+            assertEquals(0, server.getVersion());
+            assertEquals(nn, server.getNetwork());
+        }
+    }
+
+    @Test
+    void processTest() throws Exception
+    {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        try (ParameterServer server = createServer(nn).setWorkers(2))
+        {
+            for (int i = 0; i < 2; i++)
+            {
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                GradientWorker.class.getName(), Shards.class.getName(),
+                                String.valueOf(server.getAddress().getPort()), String.valueOf(i), "2",
+                                String.valueOf(STEPS), "16", "float16", String.valueOf(i));
+                processes.add(builder.redirectError(ProcessBuilder.Redirect.DISCARD).start());
+            }
+            for (Process process : processes)
+            {
+                String result = readResult(process);
+                LoggerFactory.getLogger(getClass()).info("worker {}", result);
+                assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+            }
+            assertTrue(server.awaitWorkers(10, TimeUnit.SECONDS));
+            assertEquals(STEPS, server.getVersion());
+            assertTrue(loss(server.getNetwork()) < loss(nn) / 2, loss(server.getNetwork()) + " " + loss(nn));
+        }
+        finally
+        {
+            processes.forEach(Process::destroyForcibly);
+        }
+    }
+
+    private static String readResult(Process process) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            if (line.startsWith("RESULT "))
+            {
+                return line;
+            }
+        }
+        assertNotNull(line, "worker ended without result");
+        return line;
+    }
+}
@@ -0,0 +1,95 @@
+package de.hatoka.basicneuralnetwork.evaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.dataset.ArrayDataset;
+import de.hatoka.basicneuralnetwork.dataset.SubsetDataset;
+
+class CrossValidatorTest
+{
+    private static final int SAMPLES = 503;
+
+    private final NetworkBuilder builder = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setLearningRate(0.5);
+    private final ArrayDataset dataset = createDataset();
+
+    private static ArrayDataset createDataset()
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        double[][] inputs = new double[SAMPLES][2];
+        double[][] targets = new double[SAMPLES][1];
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            inputs[i][0] = random.nextDouble();
+            inputs[i][1] = random.nextDouble();
+            targets[i][0] = inputs[i][0] > inputs[i][1] ? 1 : 0;
+        }
+        return new ArrayDataset(inputs, targets);
+    }
+
+    @Test
+    void foldsTest()
+    {
+        CrossValidator.Result result = new CrossValidator(builder).setFolds(5).setEpochs(20).run(dataset);
+        assertEquals(5, result.networks().size());
+        assertEquals(5, result.folds().size());
+        // each sample is held out exactly once
+        long heldOut = result.folds().stream().mapToLong(Evaluation::getSamples).sum();
+        assertEquals(SAMPLES, heldOut);
+        Evaluation aggregate = result.getAggregate();
+        assertEquals(SAMPLES, aggregate.getSamples());
+        assertTrue(aggregate.getAccuracy() > 0.9, aggregate.toString());
+        assertTrue(result.getMeanSquaredErrorDeviation() < result.getMeanSquaredError());
+        assertNotEquals(result.networks().get(0), result.networks().get(1));
+        LoggerFactory.getLogger(getClass()).info("{} +/- {}", aggregate, result.getMeanSquaredErrorDeviation());
+    }
+
+    @Test
+    void reproducibleTest()
+    {
+        CrossValidator.Result first = new CrossValidator(builder).setFolds(4).setEpochs(3).setSeed(7).run(dataset);
+        CrossValidator.Result second;
+        try (ExecutorService executor = Executors.newFixedThreadPool(2))
+        {
+            second = new CrossValidator(builder, executor).setFolds(4).setEpochs(3).setSeed(7).run(dataset);
+        }
+        assertEquals(first.networks(), second.networks());
+        for (int f = 0; f < 4; f++)
+        {
+            assertEquals(first.folds().get(f).getSquaredError(), second.folds().get(f).getSquaredError(), 0);
+        }
+        CrossValidator.Result other = new CrossValidator(builder).setFolds(4).setEpochs(3).setSeed(8).run(dataset);
+        assertNotEquals(first.networks(), other.networks());
+    }
+
+    @Test
+    void subsetTest()
+    {
+        SubsetDataset subset = new SubsetDataset(dataset, new int[] { 7, 3 });
+        double[] expected = new double[2];
+        double[] actual = new double[2];
+        dataset.copyInput(3, expected, 0);
+        subset.copyInput(1, actual, 0);
+        assertEquals(2, subset.size());
+        assertEquals(expected[0], actual[0]);
+        assertEquals(expected[1], actual[1]);
+        assertThrows(IndexOutOfBoundsException.class, () -> new SubsetDataset(dataset, new int[] { SAMPLES }));
+    }
+
+    @Test
+    void wrongFoldsTest()
+    {
+        CrossValidator validator = new CrossValidator(builder).setFolds(1);
+        assertThrows(IllegalArgumentException.class, () -> validator.run(dataset));
+    }
+}
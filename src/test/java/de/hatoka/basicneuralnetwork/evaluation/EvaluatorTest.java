@@ -0,0 +1,149 @@
+package de.hatoka.basicneuralnetwork.evaluation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.dataset.ArrayDataset;
+import de.hatoka.basicneuralnetwork.dataset.DatasetWriter;
+
+class EvaluatorTest
+{
+    private static final int SAMPLES = 1000;
+
+    private final List<Path> createdFiles = new ArrayList<>();
+    private final NeuralNetwork nn = NetworkBuilder.create(3, 3).setHiddenLayers(5, 4).setSeed(1).build();
+    private final double[][] inputs = new double[SAMPLES][3];
+    private final double[][] targets = new double[SAMPLES][3];
+
+    EvaluatorTest()
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            for (int j = 0; j < 3; j++)
+            {
+                inputs[i][j] = random.nextDouble();
+            }
+            targets[i][random.nextInt(3)] = 1;
+        }
+    }
+
+    @AfterEach
+    public void removeCreateFiles()
+    {
+        createdFiles.forEach(p -> p.toFile().delete());
+        createdFiles.clear();
+    }
+
+    private static int argmax(double[] values)
+    {
+        int best = 0;
+        for (int i = 1; i < values.length; i++)
+        {
+            if (values[i] > values[best])
+            {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void guessTest()
+    {
+        double squaredError = 0;
+        long[][] confusion = new long[3][3];
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            double[] output = nn.guess(inputs[i]);
+            for (int o = 0; o < 3; o++)
+            {
+                squaredError += (targets[i][o] - output[o]) * (targets[i][o] - output[o]);
+            }
+            confusion[argmax(targets[i])][argmax(output)]++;
+        }
+        Evaluation evaluation = new Evaluator().setBatchSize(32).evaluate(nn, inputs, targets);
+        assertEquals(SAMPLES, evaluation.getSamples());
+        assertEquals(squaredError, evaluation.getSquaredError(), 1e-9);
+        assertEquals(squaredError / (SAMPLES * 3), evaluation.getMeanSquaredError(), 1e-12);
+        for (int row = 0; row < 3; row++)
+        {
+            assertArrayEquals(confusion[row], evaluation.getConfusionMatrix()[row]);
+        }
+        long correct = confusion[0][0] + confusion[1][1] + confusion[2][2];
+        assertEquals(correct, evaluation.getCorrect());
+        assertEquals((double)correct / SAMPLES, evaluation.getAccuracy(), 1e-12);
+    }
+
+    @Test
+    void deterministicTest()
+    {
+        Evaluation single = new Evaluator().setTasks(1).evaluate(nn, inputs, targets);
+        Evaluation parallel = new Evaluator().setTasks(7).evaluate(nn, inputs, targets);
+        // same batches are summed in the same order
+        assertEquals(single.getSquaredError(), parallel.getSquaredError(), 0);
+        assertEquals(single.getCorrect(), parallel.getCorrect());
+        Evaluation merged = single.merge(parallel);
+        assertEquals(2 * SAMPLES, merged.getSamples());
+        assertEquals(2 * single.getConfusion(1, 2), merged.getConfusion(1, 2));
+        assertEquals(single.getMeanSquaredError(), merged.getMeanSquaredError(), 1e-12);
+    }
+
+    @Test
+    void fileTest() throws IOException
+    {
+        Path file = Files.createTempFile("evaluation_", ".bnd");
+        createdFiles.add(file);
+        try (DatasetWriter writer = DatasetWriter.create(file, nn))
+        {
+            writer.write(new ArrayDataset(inputs, targets));
+        }
+        Evaluator evaluator = new Evaluator();
+        Evaluation fromFile = evaluator.evaluate(nn, file);
+        Evaluation inMemory = evaluator.evaluate(nn, inputs, targets);
+        assertEquals(inMemory.getSquaredError(), fromFile.getSquaredError(), 0);
+        assertEquals(inMemory.getCorrect(), fromFile.getCorrect());
+    }
+
+    @Test
+    void singleOutputTest()
+    {
+        NeuralNetwork single = NetworkBuilder.create(1, 1).setSeed(1).build();
+        double[][] singleInputs = { { -10 }, { -10 }, { 10 } };
+        double[][] singleTargets = { { 0 }, { 1 }, { 1 } };
+        // one output is classified with threshold 0.5
+        long[][] confusion = new long[2][2];
+        for (int i = 0; i < 3; i++)
+        {
+            confusion[(int)singleTargets[i][0]][single.guess(singleInputs[i])[0] > 0.5 ? 1 : 0]++;
+        }
+        Evaluation evaluation = new Evaluator().evaluate(single, singleInputs, singleTargets);
+        assertEquals(2, evaluation.getClasses());
+        assertArrayEquals(confusion[0], evaluation.getConfusionMatrix()[0]);
+        assertArrayEquals(confusion[1], evaluation.getConfusionMatrix()[1]);
+    }
+
+    @Test
+    void wrongDimensionTest()
+    {
+        Evaluator evaluator = new Evaluator();
+        double[][] wrongTargets = new double[SAMPLES][2];
+        WrongDimensionException exception = assertThrows(WrongDimensionException.class,
+                        () -> evaluator.evaluate(nn, inputs, wrongTargets));
+        assertEquals("Expected 3 value(s) for Output-layer but got 2.", exception.getMessage());
+    }
+}
@@ -0,0 +1,128 @@
+package de.hatoka.basicneuralnetwork.evaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunctions;
+import de.hatoka.basicneuralnetwork.dataset.ArrayDataset;
+
+class HyperparameterSearchTest
+{
+    private final List<Path> createdFiles = new ArrayList<>();
+    private final ArrayDataset training = createDataset(300, 1);
+    private final ArrayDataset validation = createDataset(100, 2);
+    private final List<NetworkBuilder> candidates = HyperparameterSearch.grid(NetworkBuilder.create(2, 1),
+                    new int[][] { { 4 }, { 8 } }, new double[] { 0.0001, 0.5 }, ActivationFunctions.SIGMOID,
+                    ActivationFunctions.TANH);
+
+    @AfterEach
+    public void removeCreateFiles()
+    {
+        createdFiles.forEach(p -> p.toFile().delete());
+        createdFiles.clear();
+    }
+
+    private static ArrayDataset createDataset(int size, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[][] inputs = new double[size][2];
+        double[][] targets = new double[size][1];
+        for (int i = 0; i < size; i++)
+        {
+            inputs[i][0] = random.nextDouble();
+            inputs[i][1] = random.nextDouble();
+            targets[i][0] = inputs[i][0] * inputs[i][1];
+        }
+        return new ArrayDataset(inputs, targets);
+    }
+
+    @Test
+    void successiveHalvingTest() throws IOException
+    {
+        List<HyperparameterSearch.Result> rungs = new ArrayList<>();
+        HyperparameterSearch.Result result;
+        try (ExecutorService executor = Executors.newFixedThreadPool(3))
+        {
+            result = new HyperparameterSearch(candidates, executor).setMinEpochs(1).setListener(rungs::add)
+                                                                   .run(training, validation);
+        }
+        // 8 candidates with 1 epoch, 4 with 2, 2 with 4, 1 with 8
+        assertEquals(4, result.rungs());
+        assertEquals(4, rungs.size());
+        assertTrue(result.finished());
+        assertEquals(1, result.trials().stream().filter(HyperparameterSearch.Trial::alive).count());
+        assertEquals(8, result.getBest().epochs());
+        int epochs = result.trials().stream().mapToInt(HyperparameterSearch.Trial::epochs).sum();
+        assertEquals(8 * 1 + 4 * 1 + 2 * 2 + 1 * 4, epochs);
+        // the tiny learning rate doesn't learn anything in 8 epochs
+        assertEquals(0.5, result.getBest().getConfiguration().getLearningRate());
+        LoggerFactory.getLogger(getClass()).info("best {} with loss {}", result.getBest().getConfiguration(),
+                        result.getBest().loss());
+    }
+
+    @Test
+    void resumeTest() throws IOException
+    {
+        Path checkpoint = Files.createTempFile("search_", ".bhs");
+        createdFiles.add(checkpoint);
+        Files.delete(checkpoint);
+        HyperparameterSearch.Result expected = new HyperparameterSearch(candidates).setSeed(3).run(training,
+                        validation);
+        // stopped after the second rung
+        Consumer<HyperparameterSearch.Result> crash = r -> {
+            if (r.rungs() == 2)
+            {
+                throw new IllegalStateException("stopped");
+            }
+        };
+        HyperparameterSearch interrupted = new HyperparameterSearch(candidates).setSeed(3).setCheckpoint(checkpoint)
+                                                                                .setListener(crash);
+        assertThrows(IllegalStateException.class, () -> interrupted.run(training, validation));
+        List<HyperparameterSearch.Result> resumedRungs = new ArrayList<>();
+        HyperparameterSearch.Result resumed = new HyperparameterSearch(candidates).setSeed(3)
+                                                                                  .setCheckpoint(checkpoint)
+                                                                                  .setListener(resumedRungs::add)
+                                                                                  .run(training, validation);
+        assertEquals(2, resumedRungs.size());
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            assertEquals(expected.trials().get(i), resumed.trials().get(i));
+        }
+        // a finished search isn't continued
+        HyperparameterSearch.Result again = new HyperparameterSearch(candidates).setSeed(3).setCheckpoint(checkpoint)
+                                                                                .run(training, validation);
+        assertEquals(resumed.trials(), again.trials());
+        // other candidates don't fit to the checkpoint
+        HyperparameterSearch other = new HyperparameterSearch(candidates.subList(0, 4)).setCheckpoint(checkpoint);
+        assertThrows(IOException.class, () -> other.run(training, validation));
+    }
+
+    @Test
+    void invalidSettingsTest()
+    {
+        HyperparameterSearch search = new HyperparameterSearch(candidates);
+        // budgets wouldn't grow or candidates wouldn't be pruned, so the search would never finish
+        assertThrows(IllegalArgumentException.class, () -> search.setReductionFactor(1));
+        assertThrows(IllegalArgumentException.class, () -> search.setReductionFactor(0));
+        assertThrows(IllegalArgumentException.class, () -> search.setMinEpochs(0));
+        assertThrows(IllegalArgumentException.class, () -> search.setMaxEpochs(0));
+        search.setMinEpochs(20).setMaxEpochs(10);
+        assertThrows(IllegalArgumentException.class, () -> search.run(training, validation));
+    }
+}
@@ -0,0 +1,97 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.utilities.GaussianMutation;
+
+class DeltaGenomeTest
+{
+    private final NeuralNetwork network = NetworkBuilder.create(10, 4).setHiddenLayers(2, 20).setSeed(1).build();
+
+    @Test
+    void sameAsDenseMutationTest()
+    {
+        DeltaGenome root = DeltaGenome.of(network);
+        DeltaGenome child = root.mutate(0.01, new SplittableRandom(7));
+        assertFalse(child.isDense());
+        assertEquals(1, child.getDepth());
+        assertTrue(child.getStoredParameters() < child.getParameterCount() / 10);
+
+        double[] expected = root.toArray();
+        GaussianMutation.of(0.01).mutate(expected, 0, expected.length, new SplittableRandom(7));
+        assertArrayEquals(expected, child.toArray());
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(expected[i], child.get(i));
+        }
+    }
+
+    @Test
+    void chainTest()
+    {
+        DeltaGenome root = DeltaGenome.of(network, 3);
+        double[] expected = root.toArray();
+        DeltaGenome genome = root;
+        for (int generation = 1; generation <= 4; generation++)
+        {
+            GaussianMutation.of(0.02).mutate(expected, 0, expected.length, new SplittableRandom(generation));
+            genome = genome.mutate(0.02, new SplittableRandom(generation));
+            assertArrayEquals(expected, genome.toArray(), "generation " + generation);
+        }
+        // fourth generation exceeds maximal depth 3
+        assertTrue(genome.isDense());
+        assertEquals(0, genome.getDepth());
+    }
+
+    @Test
+    void multiGenerationTest()
+    {
+        // overlapping mutations of several generations, the sums must be built in the order of dense mutation
+        DeltaGenome genome = DeltaGenome.of(network);
+        double[] expected = genome.toArray();
+        for (int generation = 1; generation <= 6; generation++)
+        {
+            GaussianMutation.of(0.2).mutate(expected, 0, expected.length, new SplittableRandom(generation));
+            genome = genome.mutate(0.2, new SplittableRandom(generation));
+        }
+        assertEquals(6, genome.getDepth());
+        double[] materialized = new double[expected.length];
+        genome.toNetwork().copyParameters(materialized, 0);
+        assertArrayEquals(expected, materialized);
+        assertArrayEquals(expected, genome.toArray());
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(expected[i], genome.get(i), "position " + i);
+        }
+    }
+
+    @Test
+    void denseForHighProbabilityTest()
+    {
+        DeltaGenome child = DeltaGenome.of(network).mutate(0.5, new SplittableRandom(1));
+        assertTrue(child.isDense());
+        assertEquals(child.getParameterCount(), child.getStoredParameters());
+    }
+
+    @Test
+    void guessTest()
+    {
+        DeltaGenome child = DeltaGenome.of(network).mutate(0.01, new SplittableRandom(3));
+        double[] expected = child.toArray();
+        NeuralNetwork nn = child.toNetwork();
+        double[] input = { 1, 0, 1, 0, 1, 0, 1, 0, 1, 0 };
+        assertArrayEquals(nn.guess(input), child.guess(input), 1e-12);
+        // guess flattens the genome
+        assertTrue(child.isDense());
+        assertArrayEquals(expected, child.toArray());
+    }
+}
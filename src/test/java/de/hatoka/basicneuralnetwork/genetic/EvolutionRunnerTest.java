@@ -0,0 +1,98 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+
+class EvolutionRunnerTest
+{
+    private static final double[][] INPUTS = { { 0, 0 }, { 0, 1 }, { 1, 0 }, { 1, 1 } };
+    private static final double[] TARGETS = { 0, 1, 1, 1 };
+
+    /**
+     * fitness of OR function (0 is best)
+     */
+    private static final FitnessEvaluator OR_FITNESS = nn -> {
+        double error = 0;
+        for (int i = 0; i < INPUTS.length; i++)
+        {
+            error += Math.abs(nn.guess(INPUTS[i])[0] - TARGETS[i]);
+        }
+        return -error;
+    };
+
+    private static List<NeuralNetwork> createPopulation(int size)
+    {
+        NetworkBuilder builder = NetworkBuilder.create(2, 1).setHiddenLayers(1, 3);
+        List<NeuralNetwork> result = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            result.add(builder.setSeed(i).build());
+        }
+        return result;
+    }
+
+    @Test
+    void evolveTest()
+    {
+        List<GenerationStatistics> reported = new ArrayList<>();
+        EvolutionRunner.Result result = new EvolutionRunner(OR_FITNESS).setEliteCount(2)
+                                                                       .setListener(reported::add)
+                                                                       .run(createPopulation(30), 25, 42L);
+        assertEquals(25, reported.size());
+        assertEquals(reported, result.statistics());
+        assertEquals(30, result.population().size());
+        GenerationStatistics first = reported.get(0);
+        GenerationStatistics last = reported.get(reported.size() - 1);
+        LoggerFactory.getLogger(getClass()).info("first {}, last {}", first, last);
+        assertTrue(last.bestFitness() >= first.bestFitness());
+        assertTrue(first.wallTimeNanos() > 0);
+        assertTrue(first.getMeanEvaluationNanos() <= first.maxEvaluationNanos());
+        assertEquals(OR_FITNESS.evaluate(result.getBest()), last.bestFitness());
+    }
+
+    @Test
+    void reproducibleTest()
+    {
+        EvolutionRunner.Result forkJoin = new EvolutionRunner(OR_FITNESS, ForkJoinPool.commonPool())
+                        .run(createPopulation(20), 10, 4711L);
+        EvolutionRunner.Result virtual;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            virtual = new EvolutionRunner(OR_FITNESS, executor).run(createPopulation(20), 10, 4711L);
+        }
+        assertEquals(forkJoin.population(), virtual.population());
+        assertArrayEquals(forkJoin.fitness(), virtual.fitness());
+    }
+
+    @Test
+    void failingEvaluatorTest()
+    {
+        EvolutionRunner underTest = new EvolutionRunner(nn -> {
+            throw new IllegalStateException("evaluation failed");
+        });
+        assertThrows(IllegalStateException.class, () -> underTest.run(createPopulation(3), 2, 1L));
+    }
+
+    @Test
+    void invalidGenerationsTest()
+    {
+        EvolutionRunner underTest = new EvolutionRunner(OR_FITNESS);
+        assertThrows(IllegalArgumentException.class, () -> underTest.run(createPopulation(3), 0, 1L));
+        assertThrows(IllegalArgumentException.class, () -> underTest.run(createPopulation(3), -1, 1L));
+        assertEquals(1, underTest.run(createPopulation(3), 1, 1L).statistics().size());
+    }
+}
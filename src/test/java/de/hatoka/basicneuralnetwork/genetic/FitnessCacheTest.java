@@ -0,0 +1,160 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+
+class FitnessCacheTest
+{
+    private final AtomicInteger evaluations = new AtomicInteger();
+    private final FitnessEvaluator countingEvaluator = nn -> {
+        evaluations.incrementAndGet();
+        return nn.guess(new double[] { 1, 0 })[0];
+    };
+    private final NetworkBuilder builder = NetworkBuilder.create(2, 1).setHiddenLayers(1, 3);
+
+    @Test
+    void hitTest()
+    {
+        FitnessCache cache = new FitnessCache(countingEvaluator, 10);
+        NeuralNetwork nn = builder.setSeed(1).build();
+        double fitness = cache.evaluate(nn);
+        assertEquals(fitness, cache.evaluate(nn.copy()));
+        assertEquals(fitness, cache.evaluate(nn));
+        assertEquals(1, evaluations.get());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2d / 3, cache.getHitRate(), 1e-9);
+
+        NeuralNetwork mutated = nn.copy();
+        mutated.mutate(1.0);
+        cache.evaluate(mutated);
+        assertEquals(2, evaluations.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void evictionTest()
+    {
+        FitnessCache cache = new FitnessCache(countingEvaluator, 3);
+        for (int seed = 1; seed <= 5; seed++)
+        {
+            cache.evaluate(builder.setSeed(seed).build());
+        }
+        assertEquals(3, cache.size());
+        // oldest entries are evicted
+        cache.evaluate(builder.setSeed(5).build());
+        cache.evaluate(builder.setSeed(1).build());
+        assertEquals(6, evaluations.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void collapseTest() throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FitnessCache cache = new FitnessCache(nn -> {
+            evaluations.incrementAndGet();
+            started.countDown();
+            try
+            {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return 1.0;
+        }, 10);
+        NeuralNetwork nn = builder.setSeed(1).build();
+        List<CompletableFuture<Double>> requests = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            requests.add(CompletableFuture.supplyAsync(() -> cache.evaluate(nn.copy()), executor));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 8; i++)
+            {
+                requests.add(CompletableFuture.supplyAsync(() -> cache.evaluate(nn.copy()), executor));
+            }
+            release.countDown();
+            for (CompletableFuture<Double> request : requests)
+            {
+                assertEquals(1.0, request.get().doubleValue());
+            }
+        }
+        assertEquals(1, evaluations.get());
+        assertEquals(8, cache.getHits());
+    }
+
+    @Test
+    void failureTest()
+    {
+        FitnessCache cache = new FitnessCache(nn -> {
+            if (evaluations.incrementAndGet() == 1)
+            {
+                throw new IllegalStateException("first evaluation fails");
+            }
+            return 2.0;
+        }, 10);
+        NeuralNetwork nn = builder.setSeed(1).build();
+        assertThrows(IllegalStateException.class, () -> cache.evaluate(nn));
+        assertEquals(2.0, cache.evaluate(nn));
+        assertEquals(2, evaluations.get());
+    }
+
+    @Test
+    void reinsertTest()
+    {
+        FitnessCache cache = new FitnessCache(nn -> {
+            if (evaluations.incrementAndGet() == 1)
+            {
+                throw new IllegalStateException("first evaluation fails");
+            }
+            return 2.0;
+        }, 2);
+        NeuralNetwork nnA = builder.setSeed(1).build();
+        assertThrows(IllegalStateException.class, () -> cache.evaluate(nnA));
+        cache.evaluate(builder.setSeed(2).build());
+        cache.evaluate(nnA);
+        // the outdated insertion of the failed evaluation doesn't evict the new entry of nnA
+        cache.evaluate(builder.setSeed(3).build());
+        assertEquals(2, cache.size());
+        cache.evaluate(nnA);
+        assertEquals(1, cache.getHits());
+        assertEquals(4, evaluations.get());
+    }
+
+    @Test
+    void evolutionTest()
+    {
+        FitnessCache cache = new FitnessCache(countingEvaluator, 1000);
+        List<NeuralNetwork> population = new ArrayList<>();
+        for (int seed = 1; seed <= 20; seed++)
+        {
+            population.add(builder.setSeed(seed).build());
+        }
+        // without mutation most offspring are equal to a parent
+        new EvolutionRunner(cache).setEliteCount(4).setMutationProbability(0).setMergeProbability(0).run(population, 5,
+                        1L);
+        LoggerFactory.getLogger(getClass()).info("hits {}, misses {}, saved {} ns", cache.getHits(), cache.getMisses(),
+                        cache.getSavedNanos());
+        assertEquals(cache.getMisses(), evaluations.get());
+        assertTrue(cache.getHits() > 0);
+    }
+}
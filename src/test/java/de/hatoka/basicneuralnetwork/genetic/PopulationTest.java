@@ -0,0 +1,128 @@
+package de.hatoka.basicneuralnetwork.genetic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+class PopulationTest
+{
+    private static final double DELTA = 1E-12;
+    private static final NetworkBuilder BUILDER = NetworkBuilder.create(2, 1).setHiddenLayers(1, 3);
+    private static final double[] INPUT = { 0.3, 0.9 };
+
+    private List<NeuralNetwork> createNetworks(int count)
+    {
+        List<NeuralNetwork> result = new ArrayList<>();
+        for (int i = 1; i <= count; i++)
+        {
+            result.add(BUILDER.setSeed(i).build());
+        }
+        return result;
+    }
+
+    @Test
+    void individualTest()
+    {
+        List<NeuralNetwork> networks = createNetworks(5);
+        Population underTest = Population.of(networks);
+        assertEquals(5, underTest.size());
+        assertEquals(2 * 3 + 3 + 3 * 1 + 1, underTest.getGenomeSize());
+        for (int i = 0; i < networks.size(); i++)
+        {
+            assertArrayEquals(networks.get(i).guess(INPUT), underTest.get(i).guess(INPUT), DELTA);
+            assertArrayEquals(networks.get(i).guess(INPUT), underTest.get(i).toNetwork().guess(INPUT));
+        }
+    }
+
+    @Test
+    void mutateTest()
+    {
+        Population underTest = Population.create(BUILDER.build(), 10, new SplittableRandom(1));
+        double[] before = underTest.getGenomes().clone();
+        underTest.mutate(0, new SplittableRandom(2));
+        assertArrayEquals(before, underTest.getGenomes());
+        underTest.mutate(3, 1.0, new SplittableRandom(2));
+        double[] after = underTest.getGenomes();
+        for (int i = 0; i < before.length; i++)
+        {
+            int individual = i / underTest.getGenomeSize();
+            if (individual == 3)
+            {
+                assertNotEquals(before[i], after[i]);
+            }
+            else
+            {
+                assertEquals(before[i], after[i]);
+            }
+        }
+    }
+
+    @Test
+    void crossoverTest()
+    {
+        Population underTest = Population.create(BUILDER.build(), 3, new SplittableRandom(1));
+        double[] genomes = underTest.getGenomes();
+        double[] before = genomes.clone();
+        underTest.crossover(0, 1, 2, 0.5, new SplittableRandom(2));
+        int size = underTest.getGenomeSize();
+        for (int i = 0; i < size; i++)
+        {
+            double value = genomes[underTest.getOffset(2) + i];
+            assertTrue(value == before[i] || value == before[size + i]);
+        }
+    }
+
+    @Test
+    void evolveTest()
+    {
+        SplittableRandom random = new SplittableRandom(42);
+        Population underTest = Population.create(BUILDER.build(), 30, random);
+        double previousBest = Double.NEGATIVE_INFINITY;
+        for (int generation = 0; generation < 20; generation++)
+        {
+            double[] fitness = new double[underTest.size()];
+            for (int i = 0; i < fitness.length; i++)
+            {
+                fitness[i] = -Math.abs(underTest.get(i).guess(INPUT)[0] - 0.8);
+            }
+            double best = fitness[underTest.selectBest(fitness, 1)[0]];
+            assertTrue(best >= previousBest, "elite must not get lost");
+            previousBest = best;
+            underTest.evolve(fitness, 2, 3, 0.5, 0.1, random);
+            assertEquals(30, underTest.size());
+        }
+        assertTrue(previousBest > -0.05, "best individual should be close to target, but is " + previousBest);
+    }
+
+    @Test
+    void invalidSizeTest()
+    {
+        assertThrows(IllegalArgumentException.class, () -> Population.of(List.of()));
+        NeuralNetwork template = BUILDER.build();
+        assertThrows(IllegalArgumentException.class, () -> Population.create(template, 0, new SplittableRandom()));
+        // 4096 individuals with more than a million parameters don't fit into one array
+        NeuralNetwork large = NetworkBuilder.create(1000, 1).setHiddenLayers(1, 1000).build();
+        assertThrows(ArithmeticException.class, () -> Population.create(large, 4096, new SplittableRandom()));
+    }
+
+    @Test
+    void wrongDimensionTest()
+    {
+        List<NeuralNetwork> networks = List.of(BUILDER.build(), NetworkBuilder.create(2, 1).build());
+        assertThrows(WrongDimensionException.class, () -> Population.of(networks));
+        Population population = Population.of(createNetworks(2));
+        assertThrows(WrongDimensionException.class, () -> population.get(0).guess(new double[] { 1 }));
+    }
+}
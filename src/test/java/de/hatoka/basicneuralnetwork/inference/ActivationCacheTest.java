@@ -0,0 +1,122 @@
+package de.hatoka.basicneuralnetwork.inference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+import de.hatoka.basicneuralnetwork.utilities.Crossover;
+
+class ActivationCacheTest
+{
+    private static final int LAYERS = 4;
+
+    private final NeuralNetwork nn = NetworkBuilder.create(3, 2).setHiddenLayers(LAYERS - 1, 8).setSeed(1).build();
+    private final double[][] inputs = createInputs(50);
+
+    private static double[][] createInputs(int count)
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        double[][] result = new double[count][3];
+        for (double[] input : result)
+        {
+            for (int i = 0; i < input.length; i++)
+            {
+                input[i] = random.nextDouble(-1, 1);
+            }
+        }
+        return result;
+    }
+
+    private void assertGuess(NeuralNetwork network, double[][] outputs)
+    {
+        for (int i = 0; i < inputs.length; i++)
+        {
+            assertArrayEquals(network.guess(inputs[i]), outputs[i], 1e-12);
+        }
+    }
+
+    @Test
+    void guessTest()
+    {
+        ActivationCache cache = new ActivationCache(inputs, 1 << 20);
+        assertGuess(nn, cache.guess(nn));
+        assertEquals(LAYERS, cache.getCalculatedLayers());
+        assertEquals(0, cache.getReusedLayers());
+        // a copy is answered completely from cache
+        assertGuess(nn, cache.guess(nn.copy()));
+        assertEquals(LAYERS, cache.getReusedLayers());
+    }
+
+    @Test
+    void changedLastLayerTest()
+    {
+        ActivationCache cache = new ActivationCache(inputs, 1 << 20);
+        cache.guess(nn);
+        NeuralNetwork child = nn.copy();
+        ParameterLayout layout = child.getParameterLayout();
+        double[] parameters = new double[layout.getParameterCount()];
+        child.copyParameters(parameters, 0);
+        parameters[layout.getWeightsOffset(LAYERS - 1)] += 0.5;
+        child.setParameters(parameters, 0);
+        assertEquals(nn.getLayerStamp(0), child.getLayerStamp(0));
+        assertNotEquals(nn.getLayerStamp(LAYERS - 1), child.getLayerStamp(LAYERS - 1));
+
+        assertGuess(child, cache.guess(child));
+        assertEquals(LAYERS - 1, cache.getReusedLayers());
+        assertEquals(LAYERS + 1, cache.getCalculatedLayers());
+    }
+
+    @Test
+    void layerwiseMergeTest()
+    {
+        ActivationCache cache = new ActivationCache(inputs, 1 << 20);
+        cache.guess(nn);
+        NeuralNetwork other = NetworkBuilder.create(3, 2).setHiddenLayers(LAYERS - 1, 8).setSeed(2).build();
+        NeuralNetwork child = nn.merge(other, Crossover.layerwise(0.5), new SplittableRandom(3));
+        int leading = 0;
+        while (leading < LAYERS && child.getLayerStamp(leading) == nn.getLayerStamp(leading))
+        {
+            leading++;
+        }
+        assertGuess(child, cache.guess(child));
+        assertEquals(leading, cache.getReusedLayers());
+    }
+
+    @Test
+    void stampTest()
+    {
+        NeuralNetwork copy = nn.copy();
+        copy.train(inputs[0], new double[] { 1, 0 });
+        for (int layer = 0; layer < LAYERS; layer++)
+        {
+            assertNotEquals(nn.getLayerStamp(layer), copy.getLayerStamp(layer));
+        }
+        copy = nn.copy();
+        copy.getWeights();
+        assertNotEquals(nn.getLayerStamp(0), copy.getLayerStamp(0));
+        copy = nn.copy();
+        copy.mutate(0, new SplittableRandom(1));
+        assertEquals(nn.getLayerStamp(0), copy.getLayerStamp(0));
+    }
+
+    @Test
+    void memoryBoundTest()
+    {
+        // activations of one hidden layer need 50 * 8 * 8 bytes
+        ActivationCache cache = new ActivationCache(inputs, 50 * 8 * 8 * 2);
+        cache.guess(nn);
+        cache.guess(nn.copy());
+        assertTrue(cache.getUsedBytes() <= 50 * 8 * 8 * 2);
+        assertEquals(2, cache.size());
+        // cached output layer (stamps of all layers) is still used
+        assertEquals(LAYERS, cache.getReusedLayers());
+    }
+}
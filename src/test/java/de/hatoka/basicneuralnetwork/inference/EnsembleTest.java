@@ -0,0 +1,94 @@
+package de.hatoka.basicneuralnetwork.inference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunctions;
+
+class EnsembleTest
+{
+    private static final double DELTA = 1E-12;
+    private static final NetworkBuilder BUILDER = NetworkBuilder.create(3, 2).setHiddenLayers(2, 5);
+    private static final double[] INPUT = { 0.1, -0.4, 0.8 };
+
+    private List<NeuralNetwork> createMembers(int count)
+    {
+        List<NeuralNetwork> result = new ArrayList<>();
+        for (int i = 1; i <= count; i++)
+        {
+            result.add(BUILDER.setSeed(i).build());
+        }
+        return result;
+    }
+
+    @Test
+    void guessAllTest()
+    {
+        List<NeuralNetwork> members = createMembers(10);
+        Ensemble underTest = new Ensemble(members);
+        assertEquals(10, underTest.size());
+        double[][] result = underTest.guessAll(INPUT);
+        for (int m = 0; m < members.size(); m++)
+        {
+            assertArrayEquals(members.get(m).guess(INPUT), result[m], DELTA);
+        }
+    }
+
+    @Test
+    void guessWithoutHiddenLayersTest()
+    {
+        NeuralNetwork nnA = NetworkBuilder.create(3, 2).setSeed(1).build();
+        NeuralNetwork nnB = NetworkBuilder.create(3, 2).setSeed(2).build();
+        double[][] result = new Ensemble(nnA, nnB).guessAll(INPUT);
+        assertArrayEquals(nnA.guess(INPUT), result[0], DELTA);
+        assertArrayEquals(nnB.guess(INPUT), result[1], DELTA);
+    }
+
+    @Test
+    void guessMeanTest()
+    {
+        List<NeuralNetwork> members = createMembers(4);
+        double[] expected = new double[2];
+        for (NeuralNetwork nn : members)
+        {
+            double[] output = nn.guess(INPUT);
+            expected[0] += output[0] / members.size();
+            expected[1] += output[1] / members.size();
+        }
+        assertArrayEquals(expected, new Ensemble(members).guessMean(INPUT), DELTA);
+    }
+
+    @Test
+    void guessVoteTest()
+    {
+        List<NeuralNetwork> members = createMembers(7);
+        int[] expected = new int[2];
+        for (NeuralNetwork nn : members)
+        {
+            double[] output = nn.guess(INPUT);
+            expected[output[1] > output[0] ? 1 : 0]++;
+        }
+        Ensemble underTest = new Ensemble(members);
+        assertArrayEquals(expected, underTest.guessVotes(INPUT));
+        assertEquals(expected[1] > expected[0] ? 1 : 0, underTest.guessVote(INPUT));
+    }
+
+    @Test
+    void wrongDimensionTest()
+    {
+        NeuralNetwork other = NetworkBuilder.create(3, 2).setHiddenLayers(1, 5).build();
+        assertThrows(WrongDimensionException.class, () -> new Ensemble(BUILDER.build(), other));
+        assertThrows(IllegalArgumentException.class,
+                        () -> new Ensemble(BUILDER.build(), BUILDER.setActivationFunction(ActivationFunctions.TANH).build()));
+        assertThrows(WrongDimensionException.class, () -> new Ensemble(BUILDER.build()).guessMean(new double[] { 1 }));
+    }
+}
@@ -0,0 +1,82 @@
+package de.hatoka.basicneuralnetwork.inference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+class GuessCacheTest
+{
+    private final NeuralNetwork nn = NetworkBuilder.create(2, 3).setHiddenLayers(1, 4).setSeed(123456L).build();
+
+    @Test
+    void exactTest()
+    {
+        GuessCache underTest = GuessCache.exact(nn, 16);
+        double[] input = { 0.25, 0.75 };
+        assertArrayEquals(nn.guess(input), underTest.guess(input));
+        assertArrayEquals(nn.guess(input), underTest.guess(new double[] { 0.25, 0.75 }));
+        underTest.guess(new double[] { 0.25, 0.7500001 });
+        assertEquals(1, underTest.getHits());
+        assertEquals(2, underTest.getMisses());
+        assertEquals(1d / 3, underTest.getHitRate());
+    }
+
+    @Test
+    void quantizedTest()
+    {
+        GuessCache underTest = GuessCache.quantized(nn, 16, 0.01);
+        double[] first = underTest.guess(new double[] { 0.251, 0.749 });
+        double[] second = underTest.guess(new double[] { 0.249, 0.751 });
+        assertArrayEquals(nn.guess(new double[] { 0.25, 0.75 }), first);
+        assertArrayEquals(first, second);
+        assertEquals(1, underTest.getHits());
+    }
+
+    @Test
+    void invalidateTest()
+    {
+        GuessCache underTest = GuessCache.exact(nn, 16);
+        double[] input = { 0.25, 0.75 };
+        underTest.guess(input);
+        nn.train(input, new double[] { 1, 0, 1 });
+        assertArrayEquals(nn.guess(input), underTest.guess(input));
+        nn.mutate(1.0);
+        assertArrayEquals(nn.guess(input), underTest.guess(input));
+        nn.setWeights(nn.copy().getWeights());
+        underTest.guess(input);
+        assertEquals(0, underTest.getHits());
+        assertEquals(4, underTest.getMisses());
+    }
+
+    @Test
+    void evictionTest()
+    {
+        GuessCache underTest = GuessCache.exact(nn, 8);
+        assertEquals(8, underTest.getCapacity());
+        for (int i = 0; i < 100; i++)
+        {
+            double[] input = { i, -i };
+            assertArrayEquals(nn.guess(input), underTest.guess(input));
+        }
+        assertEquals(100 - underTest.getCapacity(), underTest.getEvictions());
+        // most recent input is still available
+        underTest.guess(new double[] { 99, -99 });
+        assertEquals(1, underTest.getHits());
+        assertTrue(underTest.getHitRate() > 0);
+    }
+
+    @Test
+    void wrongDimensionTest()
+    {
+        GuessCache underTest = GuessCache.exact(nn, 8);
+        assertThrows(WrongDimensionException.class, () -> underTest.guess(new double[] { 1 }));
+        assertThrows(IllegalArgumentException.class, () -> GuessCache.quantized(nn, 8, 0));
+    }
+}
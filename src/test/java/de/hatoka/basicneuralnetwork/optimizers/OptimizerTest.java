@@ -0,0 +1,226 @@
+package de.hatoka.basicneuralnetwork.optimizers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.utilities.FileReaderAndWriter;
+import de.hatoka.basicneuralnetwork.utilities.NetworkCodec;
+
+class OptimizerTest
+{
+    private static final int SAMPLES = 200;
+
+    private final List<Path> createdFiles = new ArrayList<>();
+    private final double[][] inputs = new double[SAMPLES][2];
+    private final double[][] targets = new double[SAMPLES][1];
+
+    OptimizerTest()
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            inputs[i][0] = random.nextDouble();
+            inputs[i][1] = random.nextDouble();
+            targets[i][0] = inputs[i][0] * inputs[i][1];
+        }
+    }
+
+    @AfterEach
+    public void removeCreateFiles()
+    {
+        createdFiles.forEach(p -> p.toFile().delete());
+        createdFiles.clear();
+    }
+
+    private void train(NeuralNetwork nn, int epochs)
+    {
+        for (int epoch = 0; epoch < epochs; epoch++)
+        {
+            for (int i = 0; i < SAMPLES; i++)
+            {
+                nn.train(inputs[i], targets[i]);
+            }
+        }
+    }
+
+    private double error(NeuralNetwork nn)
+    {
+        double result = 0;
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            double difference = nn.guess(inputs[i])[0] - targets[i][0];
+            result += difference * difference;
+        }
+        return result / SAMPLES;
+    }
+
+    @Test
+    void updateTest()
+    {
+        OptimizerState state = new OptimizerState(1, 1);
+        double[] values = { 2 };
+        new MomentumOptimizer(0.9, false).update(values, 1, 0.1, state, 0);
+        assertEquals(0.2, values[0], 1e-12);
+        values[0] = 2;
+        new MomentumOptimizer(0.9, false).update(values, 1, 0.1, state, 0);
+        assertEquals(0.9 * 0.2 + 0.2, values[0], 1e-12);
+
+        state = new OptimizerState(1, 1);
+        values[0] = 2;
+        new MomentumOptimizer(0.9, true).update(values, 1, 0.1, state, 0);
+        assertEquals(0.9 * 0.2 + 0.2, values[0], 1e-12);
+
+        // the first step of Adam and RMSProp is independent of the size of the gradient
+        state = new OptimizerState(2, 1);
+        state.nextStep();
+        values[0] = -1e-3;
+        new AdamOptimizer(0.9, 0.999, 1e-8).update(values, 1, 0.01, state, 0);
+        assertEquals(-0.01, values[0], 1e-6);
+        state = new OptimizerState(1, 1);
+        values[0] = 1e-3;
+        new RmsPropOptimizer(0.9, 1e-8).update(values, 1, 0.01, state, 0);
+        assertEquals(0.01 / Math.sqrt(0.1), values[0], 1e-6);
+    }
+
+    @Test
+    void sgdTest()
+    {
+        // SGD needs no state and trains as before
+        NeuralNetwork nn = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setSeed(1).build();
+        NeuralNetwork sgd = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setOptimizer(Optimizers.SGD).setSeed(1)
+                                          .build();
+        train(nn, 1);
+        train(sgd, 1);
+        assertEquals(nn, sgd);
+        assertNull(sgd.getOptimizerState());
+        double[] values = { 2, 3 };
+        new SgdOptimizer().update(values, 2, 0.5, null, 0);
+        assertArrayEquals(new double[] { 1, 1.5 }, values);
+    }
+
+    @Test
+    void convergenceTest()
+    {
+        NetworkBuilder builder = NetworkBuilder.create(2, 1).setHiddenLayers(1, 8).setSeed(1);
+        NeuralNetwork sgd = builder.setLearningRate(0.01).build();
+        train(sgd, 10);
+        double sgdError = error(sgd);
+        for (Optimizers optimizer : new Optimizers[] { Optimizers.MOMENTUM, Optimizers.NESTEROV, Optimizers.RMSPROP,
+            Optimizers.ADAM })
+        {
+            NeuralNetwork nn = builder.setLearningRate(0.01).setOptimizer(optimizer).build();
+            train(nn, 10);
+            LoggerFactory.getLogger(getClass()).info("{}: {} (SGD {})", optimizer, error(nn), sgdError);
+            assertTrue(error(nn) < sgdError, optimizer + " " + error(nn) + " SGD " + sgdError);
+            assertEquals(10 * SAMPLES, nn.getOptimizerState().getSteps());
+        }
+    }
+
+    @Test
+    void resumeTest() throws IOException
+    {
+        NeuralNetwork nn = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setOptimizer(Optimizers.ADAM)
+                                         .setLearningRate(0.01).setSeed(1).build();
+        train(nn, 2);
+        Path file = Files.createTempFile("adam_", ".json");
+        createdFiles.add(file);
+        FileReaderAndWriter io = new FileReaderAndWriter();
+        io.write(nn, file);
+        NeuralNetwork loaded = io.read(file);
+        NeuralNetwork decoded = new NetworkCodec().fromBytes(new NetworkCodec().toBytes(nn));
+        NeuralNetwork copy = nn.copy();
+        assertEquals(Optimizers.ADAM, loaded.getConfiguration().getOptimizer());
+        assertEquals(nn.getOptimizerState().getSteps(), loaded.getOptimizerState().getSteps());
+        assertArrayEquals(nn.getOptimizerState().getValues(1), decoded.getOptimizerState().getValues(1));
+        // continued training with the state gives the same network
+        train(nn, 1);
+        train(loaded, 1);
+        train(decoded, 1);
+        assertEquals(nn, loaded);
+        assertEquals(nn, decoded);
+        // a copy has its own state
+        assertNotEquals(nn.getOptimizerState().getSteps(), copy.getOptimizerState().getSteps());
+        train(copy, 1);
+        assertEquals(nn, copy);
+    }
+
+    @Test
+    void miniBatchTest()
+    {
+        NetworkBuilder builder = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setLearningRate(0.01).setSeed(1);
+        NeuralNetwork sgd = builder.build();
+        NeuralNetwork adam = builder.setOptimizer(Optimizers.ADAM).build();
+        int parameterCount = sgd.getParameterLayout().getParameterCount();
+        for (int epoch = 0; epoch < 20; epoch++)
+        {
+            for (int from = 0; from < SAMPLES; from += 10)
+            {
+                double[] sgdGradient = new double[parameterCount];
+                double[] adamGradient = new double[parameterCount];
+                for (int i = from; i < from + 10; i++)
+                {
+                    sgd.addGradient(inputs[i], targets[i], sgdGradient, 0);
+                    adam.addGradient(inputs[i], targets[i], adamGradient, 0);
+                }
+                sgd.applyGradient(sgdGradient, 10);
+                adam.applyGradient(adamGradient, 10);
+            }
+        }
+        // mini-batches use the optimizer of the network
+        assertNull(sgd.getOptimizerState());
+        assertEquals(20 * SAMPLES / 10, adam.getOptimizerState().getSteps());
+        assertTrue(error(adam) < error(sgd), "ADAM " + error(adam) + " SGD " + error(sgd));
+    }
+
+    @Test
+    void copyOnWriteTest()
+    {
+        NeuralNetwork nn = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setOptimizer(Optimizers.ADAM).setSeed(1)
+                                         .build();
+        nn.train(inputs[0], targets[0]);
+        OptimizerState state = nn.getOptimizerState();
+        double[] moments = state.getValues(0).clone();
+        NeuralNetwork copy = nn.copy();
+        // the copy shares the state until it trains
+        assertSame(state, copy.getOptimizerState());
+        copy.train(inputs[1], targets[1]);
+        assertNotSame(state, copy.getOptimizerState());
+        assertEquals(2, copy.getOptimizerState().getSteps());
+        assertEquals(1, state.getSteps());
+        assertArrayEquals(moments, state.getValues(0));
+        // the source owns the state exclusively again
+        nn.train(inputs[1], targets[1]);
+        assertSame(state, nn.getOptimizerState());
+        assertArrayEquals(copy.getOptimizerState().getValues(0), nn.getOptimizerState().getValues(0));
+    }
+
+    @Test
+    void wrongStateTest()
+    {
+        NeuralNetwork nn = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setOptimizer(Optimizers.ADAM).build();
+        int parameterCount = nn.getParameterLayout().getParameterCount();
+        assertThrows(WrongDimensionException.class, () -> nn.setOptimizerState(new OptimizerState(1, parameterCount)));
+        assertThrows(WrongDimensionException.class, () -> nn.setOptimizerState(new OptimizerState(2, 3)));
+        nn.setOptimizerState(new OptimizerState(2, parameterCount));
+    }
+}
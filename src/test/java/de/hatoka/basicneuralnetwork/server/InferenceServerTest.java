@@ -0,0 +1,144 @@
+package de.hatoka.basicneuralnetwork.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+
+class InferenceServerTest
+{
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final NeuralNetwork nn = NetworkBuilder.create(2, 3).setHiddenLayers(1, 4).setSeed(123456L).build();
+    private InferenceServer underTest;
+
+    @BeforeEach
+    public void startServer() throws IOException
+    {
+        underTest = new InferenceServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16, 100)
+                        .register("test", nn).start();
+    }
+
+    @AfterEach
+    public void stopServer()
+    {
+        underTest.close();
+    }
+
+    @Test
+    void guessJsonTest() throws Exception
+    {
+        HttpResponse<String> response = post("test", InferenceServer.CONTENT_TYPE_JSON, "[0.5, 1.0]");
+        assertEquals(200, response.statusCode());
+        assertArrayEquals(nn.guess(new double[] { 0.5, 1.0 }), new Gson().fromJson(response.body(), double[].class));
+    }
+
+    @Test
+    void guessJsonBatchTest() throws Exception
+    {
+        HttpResponse<String> response = post("test", InferenceServer.CONTENT_TYPE_JSON, "[[0.5, 1.0], [0, 0]]");
+        assertEquals(200, response.statusCode());
+        double[][] result = new Gson().fromJson(response.body(), double[][].class);
+        assertEquals(2, result.length);
+        assertArrayEquals(nn.guess(new double[] { 0.5, 1.0 }), result[0]);
+        assertArrayEquals(nn.guess(new double[] { 0, 0 }), result[1]);
+    }
+
+    @Test
+    void guessBinaryBatchTest() throws Exception
+    {
+        ByteBuffer body = ByteBuffer.allocate(4 * Double.BYTES);
+        body.asDoubleBuffer().put(new double[] { 0.5, 1.0, 0, 0 });
+        HttpResponse<byte[]> response = client.send(request("test", InferenceServer.CONTENT_TYPE_BINARY)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body.array())).build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        DoubleBuffer result = ByteBuffer.wrap(response.body()).asDoubleBuffer();
+        assertEquals(2 * nn.getOutputNodes(), result.remaining());
+        double[] first = new double[nn.getOutputNodes()];
+        result.get(first);
+        assertArrayEquals(nn.guess(new double[] { 0.5, 1.0 }), first);
+    }
+
+    @Test
+    void errorTest() throws Exception
+    {
+        assertEquals(404, post("unknown", InferenceServer.CONTENT_TYPE_JSON, "[0, 0]").statusCode());
+        assertEquals(400, post("test", InferenceServer.CONTENT_TYPE_JSON, "[0, 0, 0]").statusCode());
+        assertEquals(400, post("test", InferenceServer.CONTENT_TYPE_JSON, "{}").statusCode());
+    }
+
+    @Test
+    void listModelsTest() throws Exception
+    {
+        HttpResponse<String> response = client.send(request("", InferenceServer.CONTENT_TYPE_JSON).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"test\""), response.body());
+    }
+
+    @Test
+    void payloadTooLargeTest() throws Exception
+    {
+        underTest.setMaxBatchSize(2);
+        // 2 inputs with 2 values as binary doubles plus headroom
+        byte[] body = new byte[2 * 2 * Double.BYTES + 1024 + 8];
+        HttpResponse<String> response = client.send(request("test", InferenceServer.CONTENT_TYPE_BINARY)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(),
+                        HttpResponse.BodyHandlers.ofString());
+        assertEquals(413, response.statusCode());
+        String json = "[" + "[0, 0],".repeat(1000) + "[0, 0]]";
+        assertEquals(413, post("test", InferenceServer.CONTENT_TYPE_JSON, json).statusCode());
+        assertEquals(200, post("test", InferenceServer.CONTENT_TYPE_JSON, "[[0.5, 1.0], [0, 0]]").statusCode());
+    }
+
+    @Test
+    void loadGeneratorTest()
+    {
+        LoadGenerator.LoadReport report;
+        try (LoadGenerator generator = LoadGenerator.binary(uri("test"), new double[] { 0.5, 1.0 }))
+        {
+            report = generator.run(200, 8);
+        }
+        LoggerFactory.getLogger(getClass()).info("load report {}", report);
+        assertEquals(200, report.requests());
+        assertEquals(0, report.failed());
+        assertTrue(report.p50Nanos() <= report.p99Nanos());
+    }
+
+    private HttpResponse<String> post(String model, String contentType, String body) throws Exception
+    {
+        return client.send(request(model, contentType).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                        HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String model, String contentType)
+    {
+        return HttpRequest.newBuilder(uri(model)).header("Content-Type", contentType);
+    }
+
+    private URI uri(String model)
+    {
+        InetSocketAddress address = underTest.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort() + InferenceServer.CONTEXT + "/"
+                        + model);
+    }
+}
@@ -0,0 +1,157 @@
+package de.hatoka.basicneuralnetwork.training;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.dataset.Sample;
+import de.hatoka.basicneuralnetwork.training.OnlineTrainer.OverloadPolicy;
+
+class OnlineTrainerTest
+{
+    private static List<Sample> createSamples(int count, int inputs)
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        List<Sample> result = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            double[] input = new double[inputs];
+            for (int j = 0; j < inputs; j++)
+            {
+                input[j] = random.nextDouble();
+            }
+            result.add(new Sample(input, new double[] { input[0] * input[1] }));
+        }
+        return result;
+    }
+
+    private static OnlineTrainer.Statistics publish(OnlineTrainer trainer, List<Sample> samples) throws Exception
+    {
+        try (ExecutorService executor = Executors.newSingleThreadExecutor())
+        {
+            try (SubmissionPublisher<Sample> publisher = new SubmissionPublisher<>(executor, 8))
+            {
+                publisher.subscribe(trainer);
+                for (Sample sample : samples)
+                {
+                    // blocks while the subscriber doesn't request further samples
+                    publisher.submit(sample);
+                }
+            }
+            return trainer.getCompletion().get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void blockTest() throws Exception
+    {
+        NeuralNetwork nn = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setSeed(1).build();
+        NeuralNetwork expected = nn.copy();
+        List<Sample> samples = createSamples(2000, 2);
+        double adaption = 0;
+        for (Sample sample : samples)
+        {
+            adaption += expected.train(sample.input(), sample.target());
+        }
+        OnlineTrainer.Statistics statistics = publish(new OnlineTrainer(nn, 16, OverloadPolicy.BLOCK), samples);
+        assertEquals(2000, statistics.received());
+        assertEquals(2000, statistics.trained());
+        assertEquals(0, statistics.dropped());
+        assertEquals(0, statistics.buffered());
+        assertEquals(adaption, statistics.adaption(), 1e-9);
+        // same order as training sample by sample
+        assertEquals(expected, nn);
+    }
+
+    @Test
+    void miniBatchTest() throws Exception
+    {
+        NeuralNetwork nn = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setLearningRate(1).setSeed(1).build();
+        List<Sample> samples = createSamples(400, 2);
+        double before = error(nn, samples);
+        for (int epoch = 0; epoch < 10; epoch++)
+        {
+            OnlineTrainer trainer = new OnlineTrainer(nn, 64, OverloadPolicy.BLOCK).setBatchSize(8);
+            assertEquals(400, publish(trainer, samples).trained());
+        }
+        assertTrue(error(nn, samples) < before / 2, error(nn, samples) + " " + before);
+    }
+
+    private static double error(NeuralNetwork nn, List<Sample> samples)
+    {
+        double result = 0;
+        for (Sample sample : samples)
+        {
+            double difference = nn.guess(sample.input())[0] - sample.target()[0];
+            result += difference * difference;
+        }
+        return result;
+    }
+
+    private static OnlineTrainer.Statistics burst(OverloadPolicy policy) throws Exception
+    {
+        // training of the large network is slower than the delivery of samples
+        NeuralNetwork nn = NetworkBuilder.create(100, 1).setHiddenLayers(2, 100).setSeed(1).build();
+        List<Sample> samples = createSamples(5000, 100);
+        OnlineTrainer trainer = new OnlineTrainer(nn, 32, policy);
+        OnlineTrainer.Statistics result = publish(trainer, samples);
+        LoggerFactory.getLogger(OnlineTrainerTest.class).info("{}: {}", policy, result);
+        return result;
+    }
+
+    @Test
+    void dropTest() throws Exception
+    {
+        OnlineTrainer.Statistics statistics = burst(OverloadPolicy.DROP);
+        assertEquals(5000, statistics.received());
+        assertEquals(5000, statistics.trained() + statistics.dropped());
+        assertTrue(statistics.dropped() > 0);
+        assertTrue(statistics.samplesPerSecond() > 0);
+    }
+
+    @Test
+    void sampleTest() throws Exception
+    {
+        OnlineTrainer.Statistics statistics = burst(OverloadPolicy.SAMPLE);
+        assertEquals(5000, statistics.received());
+        assertEquals(5000, statistics.trained() + statistics.dropped());
+        assertTrue(statistics.dropped() > 0);
+    }
+
+    @Test
+    void errorTest()
+    {
+        NeuralNetwork nn = NetworkBuilder.create(2, 1).build();
+        OnlineTrainer trainer = new OnlineTrainer(nn, 4, OverloadPolicy.BLOCK);
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                        () -> publish(trainer, createSamples(10, 3)));
+        assertInstanceOf(WrongDimensionException.class, exception.getCause());
+    }
+
+    @Test
+    void batchSizeTest() throws Exception
+    {
+        NeuralNetwork nn = NetworkBuilder.create(2, 1).build();
+        OnlineTrainer trainer = new OnlineTrainer(nn, 4, OverloadPolicy.BLOCK);
+        assertThrows(IllegalArgumentException.class, () -> trainer.setBatchSize(0));
+        publish(trainer.setBatchSize(2), createSamples(10, 2));
+        // the training thread has read the batch size already
+        assertThrows(IllegalStateException.class, () -> trainer.setBatchSize(4));
+    }
+}
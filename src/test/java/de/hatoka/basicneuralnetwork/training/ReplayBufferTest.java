@@ -0,0 +1,215 @@
+package de.hatoka.basicneuralnetwork.training;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+
+class ReplayBufferTest
+{
+    @Test
+    void ringTest()
+    {
+        ReplayBuffer buffer = new ReplayBuffer(1, 2, 3);
+        ReplayBuffer.Batch batch = buffer.newBatch(100);
+        assertEquals(0, buffer.sample(batch, new SplittableRandom(1)));
+        for (int i = 0; i < 5; i++)
+        {
+            buffer.add(new double[] { i }, i % 2, i, new double[] { i + 1 }, i == 4);
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(100, buffer.sample(batch, new SplittableRandom(1)));
+        boolean[] seen = new boolean[5];
+        for (int i = 0; i < batch.size(); i++)
+        {
+            int value = (int)batch.getStates()[i][0];
+            // oldest transitions are replaced
+            assertTrue(value >= 2, "replaced transition " + value);
+            seen[value] = true;
+            assertEquals(value + 1, batch.getNextStates()[i][0]);
+            assertEquals(value, batch.getRewards()[i]);
+            assertEquals(value % 2, batch.getActions()[i]);
+            assertEquals(value == 4, batch.getTerminal()[i]);
+            assertEquals(1, batch.getWeights()[i]);
+        }
+        assertTrue(seen[2] && seen[3] && seen[4]);
+    }
+
+    @Test
+    void prioritizedTest()
+    {
+        ReplayBuffer buffer = new ReplayBuffer(1, 1, 10).setPriorityExponent(1).setImportanceExponent(1);
+        for (int i = 0; i < 10; i++)
+        {
+            buffer.add(new double[] { i }, 0, 0, new double[] { i }, true);
+        }
+        ReplayBuffer.Batch batch = buffer.newBatch(10);
+        buffer.sample(batch, new SplittableRandom(1));
+        // priority of transition 7 is 91 times of the others
+        double[] errors = new double[10];
+        for (int i = 0; i < 10; i++)
+        {
+            batch.getIndices()[i] = i;
+            errors[i] = i == 7 ? 91 : 1;
+        }
+        buffer.updatePriorities(batch, errors);
+        batch = buffer.newBatch(10_000);
+        buffer.sample(batch, new SplittableRandom(2));
+        int count = 0;
+        for (int i = 0; i < batch.size(); i++)
+        {
+            if (batch.getStates()[i][0] == 7)
+            {
+                count++;
+                assertEquals(1 / 91.0, batch.getWeights()[i], 1e-12);
+            }
+            else
+            {
+                assertEquals(1, batch.getWeights()[i], 1e-12);
+            }
+        }
+        assertEquals(9100, count, 200);
+    }
+
+    @Test
+    void changeExponentTest()
+    {
+        ReplayBuffer buffer = new ReplayBuffer(1, 1, 10).setPriorityExponent(1);
+        for (int i = 0; i < 10; i++)
+        {
+            buffer.add(new double[] { i }, 0, 0, new double[] { i }, true);
+        }
+        ReplayBuffer.Batch batch = buffer.newBatch(10);
+        buffer.sample(batch, new SplittableRandom(1));
+        double[] errors = new double[10];
+        for (int i = 0; i < 10; i++)
+        {
+            batch.getIndices()[i] = i;
+            errors[i] = i == 7 ? 91 : 1;
+        }
+        buffer.updatePriorities(batch, errors);
+        // all priorities are weighted with the new exponent: sqrt(91) / (sqrt(91) + 9)
+        buffer.setPriorityExponent(0.5);
+        batch = buffer.newBatch(10_000);
+        buffer.sample(batch, new SplittableRandom(2));
+        assertEquals(10_000 * Math.sqrt(91) / (Math.sqrt(91) + 9), countState(batch, 7), 200);
+        buffer.setPriorityExponent(0);
+        buffer.sample(batch, new SplittableRandom(3));
+        assertEquals(1000, countState(batch, 7), 150);
+        // priorities changed during uniform sampling (only stored, the tree isn't updated) are used afterwards
+        ReplayBuffer.Batch all = buffer.newBatch(10);
+        buffer.sample(all, new SplittableRandom(4));
+        for (int i = 0; i < 10; i++)
+        {
+            all.getIndices()[i] = i;
+            errors[i] = i == 3 ? 91 : 1;
+        }
+        buffer.updatePriorities(all, errors);
+        buffer.setPriorityExponent(1);
+        buffer.sample(batch, new SplittableRandom(5));
+        assertEquals(10_000 * 91 / 100, countState(batch, 3), 200);
+    }
+
+    private static int countState(ReplayBuffer.Batch batch, double state)
+    {
+        int result = 0;
+        for (int i = 0; i < batch.size(); i++)
+        {
+            if (batch.getStates()[i][0] == state)
+            {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void concurrentTest() throws Exception
+    {
+        ReplayBuffer buffer = new ReplayBuffer(3, 2, 1000).setPriorityExponent(0.6);
+        try (ExecutorService executor = Executors.newFixedThreadPool(4))
+        {
+            Future<?>[] actors = new Future<?>[4];
+            for (int a = 0; a < actors.length; a++)
+            {
+                int actor = a;
+                actors[a] = executor.submit(() -> {
+                    double[] state = new double[3];
+                    double[] next = new double[3];
+                    for (int i = 0; i < 50_000; i++)
+                    {
+                        state[0] = state[1] = state[2] = actor * 100_000 + i;
+                        next[0] = next[1] = next[2] = state[0] + 1;
+                        buffer.add(state, actor % 2, state[0], next, false);
+                    }
+                });
+            }
+            // the learner reads while the actors are writing, transitions are never mixed
+            ReplayBuffer.Batch batch = buffer.newBatch(32);
+            SplittableRandom random = new SplittableRandom(1);
+            double[] errors = new double[32];
+            for (int step = 0; step < 2000; step++)
+            {
+                for (int i = 0; i < buffer.sample(batch, random); i++)
+                {
+                    double value = batch.getStates()[i][0];
+                    assertEquals(value, batch.getStates()[i][2]);
+                    assertEquals(value + 1, batch.getNextStates()[i][1]);
+                    assertEquals(value, batch.getRewards()[i]);
+                    assertEquals((int)value / 100_000 % 2, batch.getActions()[i]);
+                    errors[i] = random.nextDouble();
+                }
+                buffer.updatePriorities(batch, errors);
+            }
+            for (Future<?> actor : actors)
+            {
+                actor.get(60, TimeUnit.SECONDS);
+            }
+        }
+        assertEquals(1000, buffer.size());
+    }
+
+    @Test
+    void trainTest()
+    {
+        // one state, action 0 earns a reward of 1, action 1 nothing
+        NeuralNetwork nn = NetworkBuilder.create(1, 2).setHiddenLayers(1, 4).setLearningRate(0.5).setSeed(1).build();
+        NeuralNetwork targetNetwork = nn.copy();
+        ReplayBuffer buffer = ReplayBuffer.create(nn, 100).setPriorityExponent(0.6);
+        for (int i = 0; i < 100; i++)
+        {
+            buffer.add(new double[] { 1 }, i % 2, i % 2 == 0 ? 1 : 0, new double[] { 1 }, true);
+        }
+        ReplayBuffer.Batch batch = buffer.newBatch(16);
+        SplittableRandom random = new SplittableRandom(1);
+        for (int step = 0; step < 300; step++)
+        {
+            buffer.sample(batch, random);
+            buffer.train(nn, targetNetwork, 0.9, batch);
+        }
+        double[] values = nn.guess(new double[] { 1 });
+        assertEquals(1, values[0], 0.2);
+        assertEquals(0, values[1], 0.2);
+    }
+
+    @Test
+    void wrongDimensionTest()
+    {
+        ReplayBuffer buffer = ReplayBuffer.create(NetworkBuilder.create(2, 3).build(), 10);
+        WrongDimensionException exception = assertThrows(WrongDimensionException.class,
+                        () -> buffer.add(new double[3], 0, 0, new double[2], false));
+        assertEquals("Expected 2 value(s) for Input-layer but got 3.", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> buffer.add(new double[2], 3, 0, new double[2], false));
+    }
+}
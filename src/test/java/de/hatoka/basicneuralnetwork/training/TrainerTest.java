@@ -0,0 +1,184 @@
+package de.hatoka.basicneuralnetwork.training;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.WrongDimensionException;
+import de.hatoka.basicneuralnetwork.dataset.ArrayDataset;
+import de.hatoka.basicneuralnetwork.dataset.Sample;
+
+class TrainerTest
+{
+    private static final int SAMPLES = 500;
+
+    private final NeuralNetwork nn = NetworkBuilder.create(2, 1).setHiddenLayers(1, 4).setSeed(1).build();
+    private final List<Sample> samples = createSamples();
+
+    private static List<Sample> createSamples()
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        List<Sample> result = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            result.add(new Sample(new double[] { x, y }, new double[] { x * y }));
+        }
+        return result;
+    }
+
+    /**
+     * @return iterator returning the same arrays for each sample
+     */
+    private Iterator<Sample> reusingIterator()
+    {
+        Sample reused = new Sample(new double[2], new double[1]);
+        Iterator<Sample> source = samples.iterator();
+        return new Iterator<>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return source.hasNext();
+            }
+
+            @Override
+            public Sample next()
+            {
+                Sample sample = source.next();
+                System.arraycopy(sample.input(), 0, reused.input(), 0, 2);
+                System.arraycopy(sample.target(), 0, reused.target(), 0, 1);
+                return reused;
+            }
+        };
+    }
+
+    @Test
+    void streamInOrderTest()
+    {
+        NeuralNetwork expected = nn.copy();
+        double adaption = 0;
+        for (int epoch = 0; epoch < 3; epoch++)
+        {
+            for (Sample sample : samples)
+            {
+                adaption += expected.train(sample.input(), sample.target());
+            }
+        }
+        List<EpochStatistics> statistics = new Trainer(nn).setShuffleBufferSize(1).setBatchSize(7)
+                                                          .train(this::reusingIterator, 3);
+        assertEquals(expected, nn);
+        assertEquals(3, statistics.size());
+        assertEquals(SAMPLES, statistics.get(2).samples());
+        assertEquals(adaption, statistics.stream().mapToDouble(EpochStatistics::adaption).sum(), 1e-9);
+    }
+
+    @Test
+    void shuffleBufferTest()
+    {
+        Trainer trainer = new Trainer(nn).setShuffleBufferSize(50);
+        Trainer.SampleSource source = trainer.shuffle(reusingIterator(), new SplittableRandom(1));
+        double[] input = new double[2];
+        double[] target = new double[1];
+        List<Double> order = new ArrayList<>();
+        while (source.next(input, target))
+        {
+            assertEquals(input[0] * input[1], target[0]);
+            order.add(input[0]);
+        }
+        List<Double> expected = samples.stream().map(s -> s.input()[0]).toList();
+        assertEquals(SAMPLES, order.size());
+        assertNotEquals(expected, order);
+        double[] sortedOrder = order.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        double[] sortedExpected = expected.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        assertArrayEquals(sortedExpected, sortedOrder);
+    }
+
+    @Test
+    void datasetTest()
+    {
+        ArrayDataset dataset = new ArrayDataset(samples.stream().map(Sample::input).toArray(double[][]::new),
+                        samples.stream().map(Sample::target).toArray(double[][]::new));
+        NeuralNetwork other = nn.copy();
+        List<EpochStatistics> epochs = new ArrayList<>();
+        new Trainer(nn).setSeed(3).setListener(epochs::add).train(dataset, 20);
+        new Trainer(other).setSeed(3).train(dataset, 20);
+        // reproducible for a fixed seed
+        assertEquals(nn, other);
+        assertEquals(20, epochs.size());
+        assertTrue(epochs.get(19).getMeanAdaption() < epochs.get(0).getMeanAdaption());
+        LoggerFactory.getLogger(getClass()).info("{} samples per second, waited {} ns for loading",
+                        epochs.get(19).getSamplesPerSecond(), epochs.get(19).waitNanos());
+    }
+
+    @Test
+    void slowSourceTest()
+    {
+        // loading of each batch needs 2 ms, the wait time shows the part not hidden by training
+        List<EpochStatistics> statistics = new Trainer(nn).setBatchSize(25).train(() -> new Iterator<>()
+        {
+            private final Iterator<Sample> source = samples.iterator();
+            private int count = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return source.hasNext();
+            }
+
+            @Override
+            public Sample next()
+            {
+                if (count++ % 25 == 0)
+                {
+                    try
+                    {
+                        Thread.sleep(2);
+                    }
+                    catch(InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return source.next();
+            }
+        }, 1);
+        EpochStatistics epoch = statistics.get(0);
+        assertEquals(SAMPLES, epoch.samples());
+        assertTrue(epoch.waitNanos() <= epoch.wallTimeNanos());
+    }
+
+    @Test
+    void wrongDimensionTest()
+    {
+        List<Sample> wrong = new ArrayList<>(samples);
+        wrong.add(new Sample(new double[3], new double[1]));
+        Trainer trainer = new Trainer(nn).setShuffleBufferSize(1);
+        WrongDimensionException exception = assertThrows(WrongDimensionException.class,
+                        () -> trainer.train(wrong, 1));
+        assertEquals("Expected 2 value(s) for Input-layer but got 3.", exception.getMessage());
+    }
+
+    @Test
+    void invalidSizesTest()
+    {
+        // empty batches would be loaded forever
+        Trainer trainer = new Trainer(nn);
+        assertThrows(IllegalArgumentException.class, () -> trainer.setBatchSize(0));
+        assertThrows(IllegalArgumentException.class, () -> trainer.setBatchSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> trainer.setShuffleBufferSize(0));
+    }
+}
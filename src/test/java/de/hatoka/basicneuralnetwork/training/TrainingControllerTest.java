@@ -0,0 +1,127 @@
+package de.hatoka.basicneuralnetwork.training;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import de.hatoka.basicneuralnetwork.InputNormalization;
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.dataset.ArrayDataset;
+import de.hatoka.basicneuralnetwork.dataset.NormalizedDataset;
+import de.hatoka.basicneuralnetwork.evaluation.Evaluator;
+import de.hatoka.basicneuralnetwork.optimizers.Optimizers;
+
+class TrainingControllerTest
+{
+    private final NeuralNetwork nn = NetworkBuilder.create(2, 1).setHiddenLayers(1, 6).setLearningRate(0.5).setSeed(1)
+                                                   .build();
+    private final ArrayDataset training = createDataset(200, 1);
+    private final ArrayDataset validation = createDataset(100, 2);
+
+    private static ArrayDataset createDataset(int size, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[][] inputs = new double[size][2];
+        double[][] targets = new double[size][1];
+        for (int i = 0; i < size; i++)
+        {
+            inputs[i][0] = random.nextDouble();
+            inputs[i][1] = random.nextDouble();
+            // noisy targets, so the validation loss stops improving
+            targets[i][0] = inputs[i][0] * inputs[i][1] + random.nextGaussian() * 0.05;
+        }
+        return new ArrayDataset(inputs, targets);
+    }
+
+    @Test
+    void patienceTest()
+    {
+        List<Double> losses = new ArrayList<>();
+        TrainingController.Result result = new TrainingController(new Trainer(nn)).setValidation(validation)
+                                                                                   .setMaxEpochs(1000).setPatience(3)
+                                                                                   .setListener(losses::add)
+                                                                                   .train(training);
+        LoggerFactory.getLogger(getClass()).info("{}", result);
+        assertEquals(TrainingController.StopReason.PATIENCE, result.reason());
+        assertTrue(result.epochs() < 1000);
+        assertEquals(result.epochs(), losses.size());
+        assertEquals(result.bestEpoch() + 4, result.epochs());
+        assertEquals(losses.get(result.bestEpoch()).doubleValue(), result.bestLoss());
+        // parameters of best epoch are restored
+        assertEquals(result.bestLoss(), new Evaluator().evaluate(nn, validation).getMeanSquaredError(), 1e-12);
+    }
+
+    @Test
+    void targetTest()
+    {
+        TrainingController.Result result = new TrainingController(new Trainer(nn)).setValidation(validation)
+                                                                                   .setTargetLoss(0.01)
+                                                                                   .train(training);
+        assertEquals(TrainingController.StopReason.TARGET_REACHED, result.reason());
+        assertTrue(result.bestLoss() <= 0.01);
+        assertEquals(result.epochs() - 1, result.bestEpoch());
+    }
+
+    @Test
+    void plateauTest()
+    {
+        // without validation set the smoothed training loss is used
+        TrainingController.Result result = new TrainingController(new Trainer(nn)).setMaxEpochs(50).setPatience(50)
+                                                                                   .setMinImprovement(0.05)
+                                                                                   .setPlateauReduction(0.5, 2)
+                                                                                   .train(training);
+        assertEquals(TrainingController.StopReason.MAX_EPOCHS, result.reason());
+        assertEquals(50, result.epochs());
+        assertTrue(result.learningRate() < 0.5);
+        assertEquals(result.learningRate(), nn.getLearningRate());
+    }
+
+    @Test
+    void adamWithoutValidationTest()
+    {
+        NeuralNetwork adam = NetworkBuilder.create(2, 1).setHiddenLayers(1, 6).setLearningRate(0.01)
+                                           .setOptimizer(Optimizers.ADAM).setSeed(1).build();
+        List<Double> losses = new ArrayList<>();
+        TrainingController.Result result = new TrainingController(new Trainer(adam)).setMaxEpochs(200).setPatience(3)
+                                                                                     .setSmoothing(0)
+                                                                                     .setListener(losses::add)
+                                                                                     .train(training);
+        assertEquals(TrainingController.StopReason.PATIENCE, result.reason());
+        // loss of the training set doesn't depend on the learning rate of the optimizer
+        assertTrue(result.bestLoss() < losses.get(0) / 2);
+        assertEquals(result.bestLoss(), new Evaluator().evaluate(adam, training).getMeanSquaredError(), 1e-12);
+        // optimizer state of best epoch is restored with the parameters
+        assertEquals((result.bestEpoch() + 1L) * training.size(), adam.getOptimizerState().getSteps());
+    }
+
+    @Test
+    void normalizationTest()
+    {
+        // inputs of a different scale, the trainer normalizes them
+        double[][] inputs = new double[training.size()][2];
+        double[][] targets = new double[training.size()][1];
+        for (int i = 0; i < inputs.length; i++)
+        {
+            training.copyInput(i, inputs[i], 0);
+            training.copyTarget(i, targets[i], 0);
+            inputs[i][0] = 1000 + inputs[i][0] * 100;
+        }
+        ArrayDataset raw = new ArrayDataset(inputs, targets);
+        InputNormalization normalization = InputNormalization.of(raw);
+        TrainingController.Result result = new TrainingController(new Trainer(nn).setNormalization(normalization))
+                        .setValidation(raw).setMaxEpochs(20).train(raw);
+        assertEquals(result.bestLoss(), new Evaluator().evaluate(nn, new NormalizedDataset(raw, normalization))
+                                                       .getMeanSquaredError(), 1e-12);
+        assertTrue(result.bestLoss() < 0.05, "loss " + result.bestLoss());
+        // the folded network rates the raw inputs the same way
+        normalization.fold(nn);
+        assertEquals(result.bestLoss(), new Evaluator().evaluate(nn, raw).getMeanSquaredError(), 1e-9);
+    }
+}
@@ -0,0 +1,180 @@
+package de.hatoka.basicneuralnetwork.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.ejml.simple.SimpleMatrix;
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.ParameterLayout;
+
+class CrossoverTest
+{
+    private static final double A = 1;
+    private static final double B = 2;
+
+    private final NeuralNetwork network = NetworkBuilder.create(10, 4).setHiddenLayers(2, 20).setSeed(1).build();
+    private final ParameterLayout layout = network.getParameterLayout();
+
+    /**
+     * @return array containing parent A (all 1) followed by parent B (all 2)
+     */
+    private double[] createParents()
+    {
+        double[] result = new double[layout.getParameterCount() * 2];
+        Arrays.fill(result, 0, layout.getParameterCount(), A);
+        Arrays.fill(result, layout.getParameterCount(), result.length, B);
+        return result;
+    }
+
+    private double[] apply(Crossover crossover, long seed)
+    {
+        double[] parents = createParents();
+        double[] child = new double[layout.getParameterCount()];
+        crossover.apply(parents, 0, parents, layout.getParameterCount(), child, 0, layout, new SplittableRandom(seed));
+        return child;
+    }
+
+    private static int count(double[] values, int from, int to, double value)
+    {
+        int result = 0;
+        for (int i = from; i < to; i++)
+        {
+            if (values[i] == value)
+            {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void bitMaskTest()
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        for (double probability : new double[] { 0, 0.1, 0.25, 0.5, 0.7, 1 })
+        {
+            BitMask mask = new BitMask(probability);
+            long bits = 0;
+            int masks = 10_000;
+            for (int i = 0; i < masks; i++)
+            {
+                bits += Long.bitCount(mask.next(random));
+            }
+            assertEquals(probability, (double)bits / masks / Long.SIZE, 0.005, "probability " + probability);
+        }
+    }
+
+    @Test
+    void uniformTest()
+    {
+        int length = layout.getParameterCount();
+        assertEquals(length, count(apply(Crossover.uniform(0), 1), 0, length, A));
+        assertEquals(length, count(apply(Crossover.uniform(1), 1), 0, length, B));
+        double[] child = apply(Crossover.uniform(0.3), 1);
+        int fromB = count(child, 0, length, B);
+        assertEquals(length, count(child, 0, length, A) + fromB);
+        assertEquals(0.3, (double)fromB / length, 0.05);
+    }
+
+    @Test
+    void uniformIntoParentTest()
+    {
+        int length = layout.getParameterCount();
+        // child is parent B
+        double[] parents = createParents();
+        Crossover.uniform(0.3).apply(parents, 0, parents, length, parents, length, layout, new SplittableRandom(2));
+        assertArrayEquals(apply(Crossover.uniform(0.3), 2), Arrays.copyOfRange(parents, length, 2 * length));
+        // child is parent A
+        parents = createParents();
+        Crossover.uniform(0.3).apply(parents, 0, parents, length, parents, 0, layout, new SplittableRandom(2));
+        assertArrayEquals(apply(Crossover.uniform(0.3), 2), Arrays.copyOf(parents, length));
+    }
+
+    @Test
+    void layerwiseTest()
+    {
+        double[] child = apply(Crossover.layerwise(0.5), 3);
+        for (int layer = 0; layer < layout.getLayers(); layer++)
+        {
+            int from = layout.getWeightsOffset(layer);
+            int to = layout.getLayerEnd(layer);
+            double value = child[from];
+            assertEquals(to - from, count(child, from, to, value), "layer " + layer);
+        }
+    }
+
+    @Test
+    void neuronwiseTest()
+    {
+        double[] child = apply(Crossover.neuronwise(0.5), 4);
+        int fromB = 0;
+        for (int layer = 0; layer < layout.getLayers(); layer++)
+        {
+            int cols = layout.getColumns(layer);
+            for (int row = 0; row < layout.getRows(layer); row++)
+            {
+                int rowStart = layout.getWeightsOffset(layer) + row * cols;
+                double bias = child[layout.getBiasesOffset(layer) + row];
+                assertEquals(cols, count(child, rowStart, rowStart + cols, bias), "layer " + layer + " row " + row);
+                fromB += bias == B ? 1 : 0;
+            }
+        }
+        assertTrue(fromB > 0 && fromB < 20 + 20 + 4);
+    }
+
+    @Test
+    void multiPointTest()
+    {
+        for (int points = 1; points < 5; points++)
+        {
+            double[] child = apply(Crossover.multiPoint(points), points);
+            int switches = 0;
+            for (int i = 1; i < child.length; i++)
+            {
+                switches += child[i] != child[i - 1] ? 1 : 0;
+            }
+            assertTrue(switches <= points, "points " + points);
+            assertEquals(child.length, count(child, 0, child.length, A) + count(child, 0, child.length, B));
+        }
+        double[] child = apply(Crossover.singlePoint(), 1);
+        assertEquals(A, child[0]);
+        assertEquals(B, child[child.length - 1]);
+    }
+
+    @Test
+    void blendTest()
+    {
+        double[] child = apply(Crossover.blend(0.25), 1);
+        for (double value : child)
+        {
+            assertEquals(0.25 * A + 0.75 * B, value, 1e-12);
+        }
+    }
+
+    @Test
+    void mergeNetworkTest()
+    {
+        NeuralNetwork other = NetworkBuilder.create(10, 4).setHiddenLayers(2, 20).setSeed(2).build();
+        NeuralNetwork merged = network.merge(other, Crossover.neuronwise(0.5), new SplittableRandom(1));
+        for (int layer = 0; layer < layout.getLayers(); layer++)
+        {
+            SimpleMatrix weights = merged.getWeights()[layer];
+            SimpleMatrix biases = merged.getBiases()[layer];
+            for (int row = 0; row < weights.getNumRows(); row++)
+            {
+                NeuralNetwork parent = biases.get(row, 0) == network.getBiases()[layer].get(row, 0) ? network : other;
+                for (int col = 0; col < weights.getNumCols(); col++)
+                {
+                    assertEquals(parent.getWeights()[layer].get(row, col), weights.get(row, col));
+                }
+            }
+        }
+    }
+}
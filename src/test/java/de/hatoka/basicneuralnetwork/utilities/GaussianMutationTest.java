@@ -0,0 +1,104 @@
+package de.hatoka.basicneuralnetwork.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class GaussianMutationTest
+{
+    private static final int SIZE = 100_000;
+
+    private static int countChanged(double[] values)
+    {
+        int result = 0;
+        for (double value : values)
+        {
+            if (value != 0)
+            {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void probabilityTest()
+    {
+        for (double probability : new double[] { 0.01, 0.1, 0.5, 0.9 })
+        {
+            double[] values = new double[SIZE];
+            int mutated = GaussianMutation.of(probability).mutate(values, 0, SIZE, new SplittableRandom(1));
+            assertEquals(mutated, countChanged(values));
+            assertEquals(probability, (double)mutated / SIZE, 0.01, "probability " + probability);
+        }
+    }
+
+    @Test
+    void limitsTest()
+    {
+        double[] values = new double[SIZE];
+        assertEquals(0, GaussianMutation.of(0).mutate(values, 0, SIZE, new SplittableRandom(1)));
+        assertEquals(SIZE, GaussianMutation.of(1).mutate(values, 0, SIZE, new SplittableRandom(1)));
+        assertEquals(SIZE, countChanged(values));
+    }
+
+    @Test
+    void tinyProbabilityTest()
+    {
+        // skips saturate to Long.MAX_VALUE and must not overflow the position
+        for (double probability : new double[] { 1e-18, 1e-300, Double.MIN_VALUE })
+        {
+            for (int seed = 0; seed < 100; seed++)
+            {
+                double[] values = new double[1000];
+                assertEquals(0, GaussianMutation.of(probability).mutate(values, 10, 1000, new SplittableRandom(seed)));
+                assertEquals(0, countChanged(values));
+            }
+        }
+    }
+
+    @Test
+    void rangeTest()
+    {
+        for (double probability : new double[] { 0.3, 0.5 })
+        {
+            double[] values = new double[200];
+            GaussianMutation.of(probability).mutate(values, 50, 130, new SplittableRandom(3));
+            for (int i = 0; i < values.length; i++)
+            {
+                if (i < 50 || i >= 130)
+                {
+                    assertEquals(0d, values[i], "position " + i);
+                }
+            }
+            assertTrue(countChanged(values) > 0);
+        }
+    }
+
+    @Test
+    void strengthTest()
+    {
+        double[] values = new double[SIZE];
+        new GaussianMutation(1, 2.0).mutate(values, 0, SIZE, new SplittableRandom(1));
+        double sum = 0;
+        for (double value : values)
+        {
+            sum += value * value;
+        }
+        assertEquals(2.0, Math.sqrt(sum / SIZE), 0.05);
+    }
+
+    @Test
+    void reproducibleTest()
+    {
+        double[] valuesA = new double[1000];
+        double[] valuesB = new double[1000];
+        GaussianMutation.of(0.2).mutate(valuesA, 0, valuesA.length, new SplittableRandom(5));
+        GaussianMutation.of(0.2).mutate(valuesB, 0, valuesB.length, new SplittableRandom(5));
+        assertArrayEquals(valuesA, valuesB);
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
 import org.ejml.simple.SimpleMatrix;
 import org.junit.jupiter.api.Test;
@@ -68,4 +69,14 @@ class MatrixUtilitiesTest {
         double value = result.get(0, 0);
         assertTrue(value == 5 || value == 3);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void mergeMatricesSeededTest() {
+        SimpleMatrix matrixA = MatrixUtilities.createRandomMatrix(4, 4, random);
+        SimpleMatrix matrixB = MatrixUtilities.createRandomMatrix(4, 4, random);
+
+        SimpleMatrix result1 = MatrixUtilities.mergeMatrices(matrixA, matrixB, 0.5, new SplittableRandom(7));
+        SimpleMatrix result2 = MatrixUtilities.mergeMatrices(matrixA, matrixB, 0.5, new SplittableRandom(7));
+        assertTrue(result1.isIdentical(result2, 0));
+    }
+}
@@ -0,0 +1,107 @@
+package de.hatoka.basicneuralnetwork.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import de.hatoka.basicneuralnetwork.InputNormalization;
+import de.hatoka.basicneuralnetwork.NetworkBuilder;
+import de.hatoka.basicneuralnetwork.NeuralNetwork;
+import de.hatoka.basicneuralnetwork.activationfunctions.ActivationFunctions;
+
+class NetworkCodecTest
+{
+    private final NetworkCodec codec = new NetworkCodec();
+
+    @Test
+    void roundTripTest() throws IOException
+    {
+        NeuralNetwork nn = NetworkBuilder.create(3, 2).setHiddenLayerNodes(5, 4, 3)
+                                         .setActivationFunction(ActivationFunctions.TANH).setLearningRate(0.2)
+                                         .setSeed(42).build();
+        nn.mutate(0.5);
+        NeuralNetwork read = codec.fromBytes(codec.toBytes(nn));
+        assertEquals(nn, read);
+        assertArrayEquals(new int[] { 5, 4, 3 }, read.getConfiguration().getHiddenLayers());
+        assertEquals(ActivationFunctions.TANH, read.getActivationFunction());
+        assertEquals(0.2, read.getLearningRate());
+        assertArrayEquals(nn.guess(new double[] { 1, 0, 1 }), read.guess(new double[] { 1, 0, 1 }));
+    }
+
+    @Test
+    void compactTest()
+    {
+        NeuralNetwork nn = NetworkBuilder.create(10, 4).setHiddenLayers(2, 20).setSeed(1).build();
+        byte[] bytes = codec.toBytes(nn);
+        // header (magic, nodes, 2 hidden layers, learning rate, activation function, seed, optimizer), raw parameters,
+        // size of optimizer state (0 for SGD) and size of input normalization (0 for raw inputs)
+        assertEquals(4 * 4 + 2 * 4 + 8 + 1 + 8 + 1 + nn.getParameterLayout().getParameterCount() * 8 + 4 + 4,
+                        bytes.length);
+        int json = new FileReaderAndWriter().asJson(nn).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(bytes.length < json / 2, "binary " + bytes.length + " json " + json);
+    }
+
+    @Test
+    void wrongInputTest()
+    {
+        assertThrows(IOException.class, () -> codec.fromBytes(new byte[] { 1, 2, 3, 4, 5 }));
+    }
+
+    @Test
+    void invalidCountsTest()
+    {
+        NeuralNetwork nn = NetworkBuilder.create(10, 4).setHiddenLayers(2, 20).setSeed(1).build();
+        byte[] valid = codec.toBytes(nn);
+        // input nodes, output nodes, number of hidden layers
+        for (int position : new int[] { 4, 8, 12 })
+        {
+            assertThrows(IOException.class, () -> codec.fromBytes(modify(valid, position, -1)));
+        }
+        assertThrows(IOException.class, () -> codec.fromBytes(modify(valid, 12, Integer.MAX_VALUE)));
+        // too many parameters
+        byte[] large = modify(modify(valid, 16, 1 << 20), 20, 1 << 20);
+        assertThrows(IOException.class, () -> codec.fromBytes(large));
+        // SGD has no optimizer state
+        assertThrows(IOException.class, () -> codec.fromBytes(modify(valid, valid.length - 8, 2)));
+        // normalization for less features than input nodes
+        assertThrows(IOException.class, () -> codec.fromBytes(modify(valid, valid.length - 4, 3)));
+        assertThrows(IOException.class, () -> codec.fromBytes(modify(valid, valid.length - 4, -1)));
+    }
+
+    @Test
+    void normalizationTest() throws IOException
+    {
+        NeuralNetwork nn = NetworkBuilder.create(2, 1).setHiddenLayers(1, 3).setSeed(1).build();
+        InputNormalization normalization = new InputNormalization(new double[] { 10, -1 }, new double[] { 2, 0.5 });
+        normalization.fold(nn);
+        byte[] bytes = codec.toBytes(nn);
+        NeuralNetwork read = codec.fromBytes(bytes);
+        assertArrayEquals(normalization.getMean(), read.getInputNormalization().getMean());
+        assertArrayEquals(normalization.getStandardDeviation(), read.getInputNormalization().getStandardDeviation());
+        assertArrayEquals(nn.guess(new double[] { 11, 0 }), read.guess(new double[] { 11, 0 }));
+
+        // format 'BNN2' ends after the optimizer state
+        NeuralNetwork raw = NetworkBuilder.create(2, 1).setHiddenLayers(1, 3).setSeed(1).build();
+        byte[] current = codec.toBytes(raw);
+        byte[] previous = Arrays.copyOf(modify(current, 0, 0x424E4E32), current.length - 4);
+        NeuralNetwork readPrevious = codec.fromBytes(previous);
+        assertEquals(raw, readPrevious);
+        assertNull(readPrevious.getInputNormalization());
+    }
+
+    private static byte[] modify(byte[] bytes, int position, int value)
+    {
+        byte[] result = bytes.clone();
+        ByteBuffer.wrap(result).putInt(position, value);
+        return result;
+    }
+}